@@ -0,0 +1,20 @@
+#!/bin/bash
+# 构建并运行JMH基准测试（附带-prof gc），结果写入target/results.json并与baseline/results.json对比
+# 用法: ./run.sh [JMH参数...]
+# 例:   ./run.sh                          全部基准
+#       ./run.sh AnalyzeTraffic -f 1      只运行匹配的基准，1个fork
+# 更新基线: 在基准机器上完整运行后 cp target/results.json baseline/results.json
+set -e
+
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+cd "$SCRIPT_DIR"
+
+mvn -B -q -f ../pom.xml install -DskipTests
+mvn -B -q package
+
+java -jar target/benchmarks.jar -prof gc -rf json -rff target/results.json "$@"
+
+if [ -f baseline/results.json ]; then
+  java -cp target/benchmarks.jar com.example.adtraffic.benchmark.CompareResults \
+      baseline/results.json target/results.json
+fi
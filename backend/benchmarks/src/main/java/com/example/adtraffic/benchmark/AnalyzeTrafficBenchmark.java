@@ -0,0 +1,81 @@
+package com.example.adtraffic.benchmark;
+
+import com.example.adtraffic.benchmark.TrafficDataGenerator.IpMix;
+import com.example.adtraffic.model.ScoreResult;
+import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.service.scoring.ScoringContext;
+import com.example.adtraffic.service.scoring.ScoringPipeline.PipelineResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TrafficScoringService.analyzeTraffic的完整耗时：访问频率统计、黑名单、四个评分维度（含线程池切换）、
+ * 规则集换算和评分记录编码，不包括HTTP和数据库。IP富化缓存在预热后全部命中，与线上稳定状态一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class AnalyzeTrafficBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"RESIDENTIAL", "HOSTILE"})
+    public IpMix ipMix;
+
+    @Param({"1", "10"})
+    public int eventScale;
+
+    private ScoringFixture fixture;
+    private TrafficData[] samples;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new ScoringFixture();
+        // 真人浏览比例：住宅网段80%，恶意组合20%
+        int humanPercent = ipMix == IpMix.HOSTILE ? 20 : 80;
+        List<TrafficData> generated = new TrafficDataGenerator(3, ipMix, eventScale, humanPercent).generate(SAMPLES);
+        samples = generated.toArray(new TrafficData[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    private TrafficData next() {
+        return samples[cursor++ & (SAMPLES - 1)];
+    }
+
+    @Benchmark
+    public ScoreResult analyzeTraffic() {
+        return fixture.trafficScoringService.analyzeTraffic(next());
+    }
+
+    /**
+     * 只运行评分流水线，与analyzeTraffic的差值即规则换算、结果组装和记录编码的开销
+     */
+    @Benchmark
+    public PipelineResult pipeline() {
+        TrafficData data = next();
+        ScoringContext context = new ScoringContext(data, fixture.velocityService.record(data),
+                fixture.scoringRulesService.select(data.getIp()));
+        return fixture.scoringPipeline.run(context);
+    }
+}
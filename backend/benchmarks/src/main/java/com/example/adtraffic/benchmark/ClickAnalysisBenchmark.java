@@ -0,0 +1,91 @@
+package com.example.adtraffic.benchmark;
+
+import com.example.adtraffic.benchmark.TrafficDataGenerator.IpMix;
+import com.example.adtraffic.benchmark.TrafficDataGenerator.Profile;
+import com.example.adtraffic.model.EventSeries;
+import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.service.rules.ScoringRules;
+import com.example.adtraffic.service.scoring.ScoringContext;
+import com.example.adtraffic.util.InteractionFeatures;
+import com.example.adtraffic.util.InteractionFeatures.ClickTiming;
+import com.example.adtraffic.util.InteractionFeatures.Trajectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点击维度：点击时间特征、鼠标轨迹特征和整个点击维度的评分（每次使用新的ScoringContext，轨迹不复用）。
+ * eventScale为1时是典型的页面访问，10时是停留较久、事件较多的访问
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ClickAnalysisBenchmark {
+
+    private static final int SAMPLES = 256;
+
+    @Param({"HUMAN", "BOT"})
+    public Profile profile;
+
+    @Param({"1", "10"})
+    public int eventScale;
+
+    private ScoringFixture fixture;
+    private TrafficData[] samples;
+    private ScoringRules rules;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new ScoringFixture();
+        TrafficDataGenerator generator = new TrafficDataGenerator(7, IpMix.RESIDENTIAL, eventScale, 100);
+        samples = new TrafficData[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = generator.next(profile);
+        }
+        rules = fixture.scoringRulesService.select(samples[0].getIp());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    private TrafficData next() {
+        return samples[cursor++ & (SAMPLES - 1)];
+    }
+
+    @Benchmark
+    public ClickTiming clickTiming() {
+        return InteractionFeatures.clickTiming(next().getClicks(), 1000);
+    }
+
+    @Benchmark
+    public Trajectory trajectory() {
+        return InteractionFeatures.trajectory(EventSeries.orEmpty(next().getMouseMovements()));
+    }
+
+    @Benchmark
+    public Map<String, Object> clickStage() {
+        ScoringContext context = new ScoringContext(next(), null, rules);
+        Map<String, Object> details = new HashMap<>();
+        details.put("score", fixture.clickBehaviorStage.score(context, details));
+        return details;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.adtraffic.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 对比两次JMH运行的JSON结果（-rf json），逐项输出耗时和每次操作分配字节数（-prof gc的gc.alloc.rate.norm）的变化，
+ * 超过阈值的项标记为退化，存在退化时以状态码1退出。
+ * 用法: CompareResults 基线结果 本次结果 [耗时阈值百分比，默认15] [分配阈值百分比，默认10]
+ */
+public final class CompareResults {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    // 每次操作分配量低于该值时不判定分配退化，避免几字节的抖动
+    private static final double MIN_ALLOCATION_BYTES = 64;
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: CompareResults <基线结果.json> <本次结果.json> [耗时阈值%] [分配阈值%]");
+            System.exit(2);
+        }
+        double timeThreshold = args.length > 2 ? Double.parseDouble(args[2]) : 15;
+        double allocationThreshold = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = index(objectMapper.readTree(new File(args[0])));
+        Map<String, JsonNode> current = index(objectMapper.readTree(new File(args[1])));
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %8s %12s %12s %8s%n",
+                "benchmark", "baseline", "current", "time", "B/op base", "B/op now", "alloc");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            JsonNode after = entry.getValue();
+            double score = after.path("primaryMetric").path("score").asDouble();
+            String unit = after.path("primaryMetric").path("scoreUnit").asText();
+            double allocation = allocation(after);
+            if (before == null) {
+                System.out.printf("%-70s %14s %14s %8s %12s %12s %8s%n", entry.getKey(), "-",
+                        format(score, unit), "new", "-", format(allocation), "");
+                continue;
+            }
+            double baseScore = before.path("primaryMetric").path("score").asDouble();
+            double baseAllocation = allocation(before);
+            double timeChange = change(baseScore, score);
+            double allocationChange = change(baseAllocation, allocation);
+            boolean timeRegressed = timeChange > timeThreshold;
+            boolean allocationRegressed = allocation >= MIN_ALLOCATION_BYTES && allocationChange > allocationThreshold;
+            if (timeRegressed || allocationRegressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14s %14s %7.1f%%%s %12s %12s %7.1f%%%s%n", entry.getKey(),
+                    format(baseScore, unit), format(score, unit), timeChange, timeRegressed ? "!" : " ",
+                    format(baseAllocation), format(allocation), allocationChange, allocationRegressed ? "!" : " ");
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-70s 本次未运行%n", key);
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d 项超过阈值（耗时 %.0f%%，分配 %.0f%%），标记为!%n",
+                    regressions, timeThreshold, allocationThreshold);
+            System.exit(1);
+        }
+        System.out.println("未发现退化");
+    }
+
+    /**
+     * 以"基准方法 参数=值..."为键
+     */
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace("com.example.adtraffic.benchmark.", ""));
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                params.put(field.getKey(), field.getValue().asText());
+            }
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            indexed.put(key.toString(), result);
+        }
+        return indexed;
+    }
+
+    private static double allocation(JsonNode result) {
+        JsonNode metric = result.path("secondaryMetrics").path(ALLOCATION);
+        return metric.isMissingNode() ? Double.NaN : metric.path("score").asDouble();
+    }
+
+    private static double change(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return 0;
+        }
+        return (after - before) / before * 100;
+    }
+
+    private static String format(double score, String unit) {
+        return String.format("%.1f %s", score, unit);
+    }
+
+    private static String format(double bytes) {
+        return Double.isNaN(bytes) ? "-" : String.format("%.0f", bytes);
+    }
+}
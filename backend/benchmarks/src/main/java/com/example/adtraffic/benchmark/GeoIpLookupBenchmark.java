@@ -0,0 +1,105 @@
+package com.example.adtraffic.benchmark;
+
+import com.example.adtraffic.benchmark.TrafficDataGenerator.IpMix;
+import com.example.adtraffic.model.IpEnrichment;
+import com.example.adtraffic.model.TrafficData;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.AnonymousIpResponse;
+import com.maxmind.geoip2.model.AsnResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GeoIP查询：内存映射的三个测试库各自的单次查询，富化缓存未命中时的完整查询（解析IP、三次查询），
+ * 以及命中富化缓存时的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class GeoIpLookupBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"MIXED"})
+    public IpMix ipMix;
+
+    private ScoringFixture fixture;
+    private String[] ips;
+    private InetAddress[] addresses;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new ScoringFixture();
+        List<TrafficData> samples = new TrafficDataGenerator(42, ipMix, 1, 70).generate(SAMPLES);
+        ips = new String[SAMPLES];
+        addresses = new InetAddress[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            ips[i] = samples.get(i).getIp();
+            addresses[i] = InetAddress.getByName(ips[i]);
+        }
+        // 预先填充富化缓存
+        fixture.ipEnrichmentService.enrichAll(List.of(ips));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    private int next() {
+        return cursor++ & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public Optional<CountryResponse> country() throws IOException, GeoIp2Exception {
+        return fixture.geoIpService.country(addresses[next()]);
+    }
+
+    @Benchmark
+    public Optional<AsnResponse> asn() throws IOException, GeoIp2Exception {
+        return fixture.geoIpService.asn(addresses[next()]);
+    }
+
+    @Benchmark
+    public Optional<AnonymousIpResponse> anonymousIp() throws IOException, GeoIp2Exception {
+        return fixture.geoIpService.anonymousIp(addresses[next()]);
+    }
+
+    /**
+     * 富化缓存未命中时的数据库部分：解析IP字符串后依次查询三个库
+     */
+    @Benchmark
+    public void lookupAll(Blackhole blackhole) throws IOException, GeoIp2Exception {
+        InetAddress address = InetAddress.getByName(ips[next()]);
+        blackhole.consume(fixture.geoIpService.country(address));
+        blackhole.consume(fixture.geoIpService.asn(address));
+        blackhole.consume(fixture.geoIpService.anonymousIp(address));
+    }
+
+    @Benchmark
+    public IpEnrichment enrichCached() {
+        return fixture.ipEnrichmentService.enrich(ips[next()]);
+    }
+}
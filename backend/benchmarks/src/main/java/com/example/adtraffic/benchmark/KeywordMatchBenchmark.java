@@ -0,0 +1,69 @@
+package com.example.adtraffic.benchmark;
+
+import com.example.adtraffic.service.AsnClassifier;
+import com.example.adtraffic.service.AsnClassifier.Classification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ASN组织名的数据中心/代理关键词匹配：按ASN号缓存前的自动机扫描，以及命中缓存时的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class KeywordMatchBenchmark {
+
+    // 常见ASN组织名，约一半不含任何关键词（住宅宽带和移动网络占多数）
+    private static final String[] ORGANIZATIONS = {
+            "CHINANET-BACKBONE No.31,Jin-rong Street",
+            "China Mobile Communications Group Co., Ltd.",
+            "CHINA UNICOM China169 Backbone",
+            "Amazon.com, Inc.",
+            "Google LLC",
+            "Hetzner Online GmbH",
+            "COMCAST-7922",
+            "Deutsche Telekom AG",
+            "SoftBank Corp.",
+            "Datacamp Limited",
+            "Zwiebelfreunde e.V.",
+            "M247 Europe SRL",
+            "Cloudflare, Inc.",
+            "PJSC \"Vimpelcom\"",
+            "Hangzhou Alibaba Advertising Co.,Ltd.",
+            "Shenzhen Tencent Computer Systems Company Limited"};
+
+    private AsnClassifier classifier;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        classifier = new AsnClassifier(100000);
+    }
+
+    /**
+     * 不带ASN号时每次都扫描组织名
+     */
+    @Benchmark
+    public Classification classifyUncached() {
+        return classifier.classify(null, ORGANIZATIONS[cursor++ & 15]);
+    }
+
+    @Benchmark
+    public Classification classifyCached() {
+        int index = cursor++ & 15;
+        return classifier.classify(index, ORGANIZATIONS[index]);
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.adtraffic.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 最小的MaxMind DB写入器，只用于生成基准测试的测试库：IPv6搜索树（IPv4网段映射到::/96），
+ * 24位记录，相同的数据只写一次。
+ * 值类型按Java类型选择：String为utf8，Integer为uint16，Long为uint32，BigInteger为uint64，
+ * Boolean、Map、List分别为boolean、map、array，与GeoIP2读取器的构造参数类型对应
+ */
+final class MmdbWriter {
+
+    private static final byte[] METADATA_MARKER = {
+            (byte) 0xAB, (byte) 0xCD, (byte) 0xEF, 'M', 'a', 'x', 'M', 'i', 'n', 'd', '.', 'c', 'o', 'm'};
+    private static final int RECORD_BITS = 24;
+    private static final int DATA_SEPARATOR = 16;
+
+    private final String databaseType;
+    private final Node root = new Node();
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    private final Map<Map<String, Object>, Integer> dataOffsets = new HashMap<>();
+
+    MmdbWriter(String databaseType) {
+        this.databaseType = databaseType;
+    }
+
+    /**
+     * 插入一个网段，较大的网段应先于其中更小的网段插入
+     */
+    MmdbWriter insert(String cidr, Map<String, Object> record) throws IOException {
+        int slash = cidr.indexOf('/');
+        byte[] address = InetAddress.getByName(cidr.substring(0, slash)).getAddress();
+        int prefix = Integer.parseInt(cidr.substring(slash + 1));
+        if (address.length == 4) {
+            byte[] mapped = new byte[16];
+            System.arraycopy(address, 0, mapped, 12, 4);
+            address = mapped;
+            prefix += 96;
+        }
+        Integer offset = dataOffsets.get(record);
+        if (offset == null) {
+            offset = data.size();
+            encode(record, data);
+            dataOffsets.put(record, offset);
+        }
+
+        Node node = root;
+        for (int depth = 0; depth < prefix - 1; depth++) {
+            int bit = bit(address, depth);
+            Object child = node.children[bit];
+            if (!(child instanceof Node)) {
+                // 已有更大网段的数据时拆分，两侧都先继承原数据
+                Node split = new Node();
+                split.children[0] = child;
+                split.children[1] = child;
+                node.children[bit] = split;
+                child = split;
+            }
+            node = (Node) child;
+        }
+        node.children[bit(address, prefix - 1)] = offset;
+        return this;
+    }
+
+    void write(OutputStream out) throws IOException {
+        // 按广度优先编号，记录值小于节点数时指向节点，等于节点数表示无数据，大于节点数时指向数据区
+        List<Node> nodes = new ArrayList<>();
+        Map<Node, Integer> numbers = new IdentityHashMap<>();
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            numbers.put(node, nodes.size());
+            nodes.add(node);
+            for (Object child : node.children) {
+                if (child instanceof Node) {
+                    queue.add((Node) child);
+                }
+            }
+        }
+        int nodeCount = nodes.size();
+        for (Node node : nodes) {
+            for (Object child : node.children) {
+                long value;
+                if (child instanceof Node) {
+                    value = numbers.get(child);
+                } else if (child instanceof Integer) {
+                    value = nodeCount + DATA_SEPARATOR + (Integer) child;
+                } else {
+                    value = nodeCount;
+                }
+                if (value >= 1L << RECORD_BITS) {
+                    throw new IOException("测试库过大，超出24位记录范围");
+                }
+                out.write((int) (value >>> 16));
+                out.write((int) (value >>> 8));
+                out.write((int) value);
+            }
+        }
+        out.write(new byte[DATA_SEPARATOR]);
+        data.writeTo(out);
+
+        out.write(METADATA_MARKER);
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("binary_format_major_version", 2);
+        metadata.put("binary_format_minor_version", 0);
+        metadata.put("build_epoch", BigInteger.valueOf(System.currentTimeMillis() / 1000));
+        metadata.put("database_type", databaseType);
+        metadata.put("description", Map.of("en", databaseType + " test database for benchmarks"));
+        metadata.put("ip_version", 6);
+        metadata.put("languages", List.of("en", "zh-CN"));
+        metadata.put("node_count", (long) nodeCount);
+        metadata.put("record_size", RECORD_BITS);
+        encode(metadata, out);
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void encode(Object value, OutputStream out) throws IOException {
+        if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            writeControl(out, 2, bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Integer) {
+            writeUnsigned(out, 5, (Integer) value, 2);
+        } else if (value instanceof Long) {
+            writeUnsigned(out, 6, (Long) value, 4);
+        } else if (value instanceof BigInteger) {
+            writeUnsigned(out, 9, ((BigInteger) value).longValueExact(), 8);
+        } else if (value instanceof Boolean) {
+            writeControl(out, 14, (Boolean) value ? 1 : 0);
+        } else if (value instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) value;
+            writeControl(out, 7, map.size());
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                encode(entry.getKey(), out);
+                encode(entry.getValue(), out);
+            }
+        } else if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            writeControl(out, 11, list.size());
+            for (Object item : list) {
+                encode(item, out);
+            }
+        } else {
+            throw new IOException("不支持的类型: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * 无符号整数按去掉前导零后的字节数写入
+     */
+    private static void writeUnsigned(OutputStream out, int type, long value, int maxBytes) throws IOException {
+        if (value < 0 || (maxBytes < 8 && value >>> (maxBytes * 8) != 0)) {
+            throw new IOException("数值超出范围: " + value);
+        }
+        int length = (64 - Long.numberOfLeadingZeros(value) + 7) / 8;
+        writeControl(out, type, length);
+        for (int i = length - 1; i >= 0; i--) {
+            out.write((int) (value >>> (i * 8)));
+        }
+    }
+
+    /**
+     * 控制字节：高3位为类型（扩展类型为0，下一字节为类型减7），低5位为长度
+     */
+    private static void writeControl(OutputStream out, int type, int size) throws IOException {
+        int sizeBits;
+        byte[] sizeBytes;
+        if (size < 29) {
+            sizeBits = size;
+            sizeBytes = new byte[0];
+        } else if (size < 29 + 256) {
+            sizeBits = 29;
+            sizeBytes = new byte[]{(byte) (size - 29)};
+        } else if (size < 285 + 65536) {
+            sizeBits = 30;
+            int rest = size - 285;
+            sizeBytes = new byte[]{(byte) (rest >>> 8), (byte) rest};
+        } else {
+            throw new IOException("字段过长: " + size);
+        }
+        if (type <= 7) {
+            out.write((type << 5) | sizeBits);
+        } else {
+            out.write(sizeBits);
+            out.write(type - 7);
+        }
+        out.write(sizeBytes);
+    }
+
+    private static final class Node {
+        // 子节点Node、数据区偏移Integer，或null表示无数据
+        private final Object[] children = new Object[2];
+    }
+}
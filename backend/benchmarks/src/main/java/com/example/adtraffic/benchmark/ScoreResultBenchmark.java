@@ -0,0 +1,137 @@
+package com.example.adtraffic.benchmark;
+
+import com.example.adtraffic.benchmark.TrafficDataGenerator.IpMix;
+import com.example.adtraffic.model.ScoreResult;
+import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.model.TrafficScoreRecord;
+import com.example.adtraffic.service.rules.ScoringRules;
+import com.example.adtraffic.service.rules.ScoringRules.Evaluation;
+import com.example.adtraffic.service.scoring.ScoringContext;
+import com.example.adtraffic.service.scoring.ScoringPipeline.PipelineResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各维度评分之后的部分：按规则集换算总分并生成ScoreResult、编码score_details写入评分记录、
+ * 序列化接口返回的JSON，以及读取时把编码后的明细还原为JSON。
+ * 输入是用合成流量实际跑一遍评分流水线得到的结果
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ScoreResultBenchmark {
+
+    private static final int SAMPLES = 256;
+
+    private ScoringFixture fixture;
+    private ScoringContext[] contexts;
+    private PipelineResult[] pipelineResults;
+    private ScoreResult[] results;
+    private TrafficScoreRecord[] records;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new ScoringFixture();
+        List<TrafficData> samples = new TrafficDataGenerator(11, IpMix.MIXED, 1, 70).generate(SAMPLES);
+        contexts = new ScoringContext[SAMPLES];
+        pipelineResults = new PipelineResult[SAMPLES];
+        results = new ScoreResult[SAMPLES];
+        records = new TrafficScoreRecord[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            TrafficData data = samples.get(i);
+            contexts[i] = new ScoringContext(data, fixture.velocityService.record(data),
+                    fixture.scoringRulesService.select(data.getIp()));
+            pipelineResults[i] = fixture.scoringPipeline.run(contexts[i]);
+            results[i] = fixture.trafficScoringService.analyzeTraffic(data);
+            records[i] = new TrafficScoreRecord();
+            fixture.scoreDetailsCodec.apply(records[i], results[i].getDetails());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    private int next() {
+        return cursor++ & (SAMPLES - 1);
+    }
+
+    /**
+     * 与TrafficScoringService相同的步骤：规则集换算总分、附加规则、结论，组装ScoreResult
+     */
+    @Benchmark
+    public ScoreResult buildScoreResult() {
+        int index = next();
+        ScoringContext context = contexts[index];
+        PipelineResult pipelineResult = pipelineResults[index];
+        ScoringRules rules = context.getRules();
+        Evaluation evaluation = rules.evaluate(context, pipelineResult);
+        Map<String, Object> details = new HashMap<>(pipelineResult.getDetails());
+        details.put("ipMalicious", false);
+        details.put("ruleSet", rules.getName());
+        if (!evaluation.getFiredRules().isEmpty()) {
+            details.put("rulesFired", evaluation.getFiredRules());
+        }
+        ScoreResult result = new ScoreResult();
+        result.setIpGeoInfo("未知");
+        result.setTotalScore(evaluation.getTotalScore());
+        result.setConclusion(rules.conclude(evaluation.getTotalScore()));
+        result.setDetails(details);
+        return result;
+    }
+
+    /**
+     * 写入前的明细编码（score_details_bin和score_details_extra）
+     */
+    @Benchmark
+    public TrafficScoreRecord encodeDetails() {
+        TrafficScoreRecord record = new TrafficScoreRecord();
+        fixture.scoreDetailsCodec.apply(record, results[next()].getDetails());
+        return record;
+    }
+
+    /**
+     * 旧格式：明细整体序列化为JSON写入score_details
+     */
+    @Benchmark
+    public String detailsJson() throws JsonProcessingException {
+        return fixture.objectMapper.writeValueAsString(results[next()].getDetails());
+    }
+
+    /**
+     * /api/traffic-analysis返回的响应体
+     */
+    @Benchmark
+    public byte[] responseJson() throws JsonProcessingException {
+        return fixture.objectMapper.writeValueAsBytes(results[next()]);
+    }
+
+    /**
+     * 查询记录详情时把编码后的明细还原为JSON
+     */
+    @Benchmark
+    public String renderDetails() {
+        TrafficScoreRecord record = records[next()];
+        return fixture.scoreDetailsCodec.readJson(record.getScoreDetailsBin(), record.getScoreDetailsExtra(), null);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.adtraffic.benchmark;
+
+import com.example.adtraffic.model.TrafficScoreRecord;
+import com.example.adtraffic.repository.TrafficScoreRepository;
+import com.example.adtraffic.service.AsnClassifier;
+import com.example.adtraffic.service.CardinalityStore;
+import com.example.adtraffic.service.GeoIpService;
+import com.example.adtraffic.service.IpBlocklistService;
+import com.example.adtraffic.service.IpEnrichmentService;
+import com.example.adtraffic.service.ScoreDetailsCodec;
+import com.example.adtraffic.service.ScoreRecordListener;
+import com.example.adtraffic.service.ScoreRecordWriter;
+import com.example.adtraffic.service.TrafficScoringService;
+import com.example.adtraffic.service.VelocityService;
+import com.example.adtraffic.service.audit.AuditLog;
+import com.example.adtraffic.service.rules.ScoringRulesService;
+import com.example.adtraffic.service.scoring.ClickBehaviorStage;
+import com.example.adtraffic.service.scoring.DeviceFingerprintStage;
+import com.example.adtraffic.service.scoring.IpFeatureStage;
+import com.example.adtraffic.service.scoring.ScoringPipeline;
+import com.example.adtraffic.service.scoring.SessionBehaviorStage;
+import com.example.adtraffic.util.CountryLanguageTable;
+import com.example.adtraffic.util.LogSampler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 不启动Spring容器，按application.properties的默认值手工组装评分链路。
+ * GeoIP测试库复制到临时目录后按文件路径打开，与生产环境一样使用内存映射；
+ * 评分记录交给丢弃记录的仓库，数据库不在测量范围内。
+ * 指标记录到Prometheus注册表，并按application.properties开启耗时直方图，记录指标的开销计入结果
+ */
+public final class ScoringFixture implements AutoCloseable {
+
+    private final Path workDirectory;
+
+    public final ObjectMapper objectMapper = new ObjectMapper();
+    public final PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    public final GeoIpService geoIpService;
+    public final AsnClassifier asnClassifier;
+    public final IpEnrichmentService ipEnrichmentService;
+    public final IpBlocklistService ipBlocklistService;
+    public final CardinalityStore cardinalityStore;
+    public final VelocityService velocityService;
+    public final CountryLanguageTable countryLanguageTable;
+    public final ClickBehaviorStage clickBehaviorStage;
+    public final ScoringPipeline scoringPipeline;
+    public final ScoringRulesService scoringRulesService;
+    public final ScoreDetailsCodec scoreDetailsCodec;
+    public final TrafficScoringService trafficScoringService;
+    public final AuditLog auditLog;
+
+    public ScoringFixture() {
+        DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+        try {
+            workDirectory = Files.createTempDirectory("adtraffic-benchmark");
+            for (String file : List.of(TestDatabases.ASN_FILE, TestDatabases.COUNTRY_FILE,
+                    TestDatabases.ANONYMOUS_IP_FILE)) {
+                try (InputStream input = new ClassPathResource("geoip/" + file).getInputStream()) {
+                    Files.copy(input, workDirectory.resolve(file), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            try (InputStream input = new ClassPathResource("geo/country-languages.txt").getInputStream()) {
+                countryLanguageTable = CountryLanguageTable.load(input);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法准备基准测试数据", e);
+        }
+
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return id.getType() == Meter.Type.TIMER
+                        ? DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config)
+                        : config;
+            }
+        });
+        LogSampler logSampler = new LogSampler(0.01);
+        // 审计日志按默认配置启动，写入临时目录
+        auditLog = new AuditLog(new StandardEnvironment(), meterRegistry, true,
+                workDirectory.resolve("audit").toString(), 64L * 1024 * 1024, 4, 16384, 1000);
+        auditLog.start();
+
+        Resource unused = new ClassPathResource("geoip/none.mmdb");
+        geoIpService = new GeoIpService(event -> { }, meterRegistry, unused, unused, unused,
+                workDirectory.resolve(TestDatabases.ASN_FILE).toString(),
+                workDirectory.resolve(TestDatabases.COUNTRY_FILE).toString(),
+                workDirectory.resolve(TestDatabases.ANONYMOUS_IP_FILE).toString(),
+                30000);
+        asnClassifier = new AsnClassifier(100000);
+        ipEnrichmentService = new IpEnrichmentService(geoIpService, asnClassifier, 100000, 600);
+        ipBlocklistService = new IpBlocklistService(resourceLoader,
+                List.of("classpath:blocklist/malicious.txt"), List.of("classpath:blocklist/proxy.txt"));
+        cardinalityStore = new CardinalityStore(10, 64L * 1024 * 1024, "", "");
+        velocityService = new VelocityService(4, 16384, 8192);
+
+        clickBehaviorStage = new ClickBehaviorStage(50);
+        scoringPipeline = new ScoringPipeline(List.of(
+                new IpFeatureStage(ipEnrichmentService, ipBlocklistService, cardinalityStore, countryLanguageTable,
+                        auditLog, 100),
+                clickBehaviorStage,
+                new SessionBehaviorStage(50),
+                new DeviceFingerprintStage(cardinalityStore, 50)),
+                meterRegistry, 32, 1000, 0, false);
+        scoringRulesService = new ScoringRulesService(resourceLoader, objectMapper, scoringPipeline,
+                "classpath:scoring-rules.json");
+        scoreDetailsCodec = new ScoreDetailsCodec(objectMapper);
+
+        // 未启动的写入器直接同步调用仓库的save
+        ScoreRecordWriter scoreRecordWriter = new ScoreRecordWriter(discardingRepository(), null, null,
+                false, 10000, 500, 200, 50, ScoreRecordWriter.OverflowPolicy.DROP_NEWEST,
+                new DefaultListableBeanFactory().getBeanProvider(ScoreRecordListener.class), meterRegistry);
+        trafficScoringService = new TrafficScoringService(scoreRecordWriter, scoreDetailsCodec,
+                ipEnrichmentService, ipBlocklistService, scoringPipeline, velocityService,
+                cardinalityStore, scoringRulesService, auditLog, meterRegistry, logSampler, 64);
+    }
+
+    @Override
+    public void close() {
+        scoringPipeline.shutdown();
+        geoIpService.close();
+        auditLog.stop();
+        try (Stream<Path> files = Files.walk(workDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // 临时目录清理失败不影响结果
+        }
+    }
+
+    /**
+     * 只实现save的仓库，记录直接丢弃
+     */
+    private static TrafficScoreRepository discardingRepository() {
+        return (TrafficScoreRepository) Proxy.newProxyInstance(TrafficScoreRepository.class.getClassLoader(),
+                new Class<?>[]{TrafficScoreRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "save":
+                            return (TrafficScoreRecord) args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "DiscardingTrafficScoreRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
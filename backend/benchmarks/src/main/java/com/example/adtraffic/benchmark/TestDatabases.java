@@ -0,0 +1,136 @@
+package com.example.adtraffic.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试使用的GeoIP测试库内容：少量网段及其国家、ASN和匿名标记，
+ * 合成流量的IP也从这些网段中选取。打包在 src/main/resources/geoip 中，修改网段后重新生成：
+ * java -cp target/benchmarks.jar com.example.adtraffic.benchmark.TestDatabases src/main/resources/geoip
+ */
+public final class TestDatabases {
+
+    public static final String ASN_FILE = "GeoLite2-ASN.mmdb";
+    public static final String COUNTRY_FILE = "GeoLite2-Country.mmdb";
+    public static final String ANONYMOUS_IP_FILE = "GeoIP2-Anonymous-IP.mmdb";
+
+    /**
+     * 一个测试网段，anonymous为vpn、hosting、proxy、tor、residential中的若干项
+     */
+    public static final class Network {
+        final String cidr;
+        final String countryCode;
+        final String countryName;
+        final String continentCode;
+        final long asn;
+        final String organization;
+        final List<String> anonymous;
+
+        Network(String cidr, String countryCode, String countryName, String continentCode,
+                long asn, String organization, String... anonymous) {
+            this.cidr = cidr;
+            this.countryCode = countryCode;
+            this.countryName = countryName;
+            this.continentCode = continentCode;
+            this.asn = asn;
+            this.organization = organization;
+            this.anonymous = List.of(anonymous);
+        }
+    }
+
+    // 住宅网段、云服务商、托管商、VPN和Tor出口，覆盖评分中的各个分支
+    public static final List<Network> RESIDENTIAL = List.of(
+            new Network("58.16.0.0/13", "CN", "China", "AS", 4134, "CHINANET-BACKBONE"),
+            new Network("114.80.0.0/12", "CN", "China", "AS", 4812, "China Telecom (Group)"),
+            new Network("126.0.0.0/8", "JP", "Japan", "AS", 17676, "SoftBank Corp."),
+            new Network("95.24.0.0/13", "RU", "Russia", "EU", 8402, "PJSC \"Vimpelcom\""),
+            new Network("73.0.0.0/8", "US", "United States", "NA", 7922, "COMCAST-7922"),
+            new Network("2001:da8::/32", "CN", "China", "AS", 23910, "China Next Generation Internet CERNET2"));
+
+    public static final List<Network> DATACENTER = List.of(
+            new Network("3.0.0.0/9", "US", "United States", "NA", 16509, "Amazon.com, Inc.", "hosting"),
+            new Network("34.64.0.0/10", "US", "United States", "NA", 396982, "Google LLC", "hosting"),
+            new Network("5.9.0.0/16", "DE", "Germany", "EU", 24940, "Hetzner Online GmbH", "hosting"),
+            new Network("2a01:4f8::/32", "DE", "Germany", "EU", 24940, "Hetzner Online GmbH", "hosting"));
+
+    public static final List<Network> ANONYMOUS = List.of(
+            new Network("89.187.160.0/19", "GB", "United Kingdom", "EU", 60068, "Datacamp Limited", "vpn", "hosting"),
+            new Network("185.220.100.0/22", "DE", "Germany", "EU", 60729, "Zwiebelfreunde e.V.", "tor"),
+            new Network("45.12.0.0/16", "NL", "Netherlands", "EU", 9009, "M247 Europe SRL", "proxy"),
+            new Network("104.28.0.0/16", "US", "United States", "NA", 13335, "Cloudflare, Inc.", "vpn", "residential"));
+
+    private static final Map<String, String> CONTINENT_NAMES = Map.of(
+            "AS", "Asia", "EU", "Europe", "NA", "North America");
+
+    private TestDatabases() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "src/main/resources/geoip");
+        writeAll(directory);
+        System.out.println("已生成测试库: " + directory.toAbsolutePath());
+    }
+
+    public static void writeAll(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        MmdbWriter country = new MmdbWriter("GeoLite2-Country");
+        MmdbWriter asn = new MmdbWriter("GeoLite2-ASN");
+        MmdbWriter anonymousIp = new MmdbWriter("GeoIP2-Anonymous-IP");
+        for (List<Network> group : List.of(RESIDENTIAL, DATACENTER, ANONYMOUS)) {
+            for (Network network : group) {
+                country.insert(network.cidr, countryRecord(network));
+                asn.insert(network.cidr, asnRecord(network));
+                if (!network.anonymous.isEmpty()) {
+                    anonymousIp.insert(network.cidr, anonymousRecord(network));
+                }
+            }
+        }
+        write(country, directory.resolve(COUNTRY_FILE));
+        write(asn, directory.resolve(ASN_FILE));
+        write(anonymousIp, directory.resolve(ANONYMOUS_IP_FILE));
+    }
+
+    private static void write(MmdbWriter writer, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            writer.write(out);
+        }
+    }
+
+    private static Map<String, Object> countryRecord(Network network) {
+        Map<String, Object> country = new LinkedHashMap<>();
+        country.put("iso_code", network.countryCode);
+        country.put("names", Map.of("en", network.countryName));
+        Map<String, Object> continent = new LinkedHashMap<>();
+        continent.put("code", network.continentCode);
+        continent.put("names", Map.of("en", CONTINENT_NAMES.get(network.continentCode)));
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("continent", continent);
+        record.put("country", country);
+        record.put("registered_country", country);
+        return record;
+    }
+
+    private static Map<String, Object> asnRecord(Network network) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("autonomous_system_number", network.asn);
+        record.put("autonomous_system_organization", network.organization);
+        return record;
+    }
+
+    private static Map<String, Object> anonymousRecord(Network network) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("is_anonymous", true);
+        record.put("is_anonymous_vpn", network.anonymous.contains("vpn"));
+        record.put("is_hosting_provider", network.anonymous.contains("hosting"));
+        record.put("is_public_proxy", network.anonymous.contains("proxy"));
+        record.put("is_tor_exit_node", network.anonymous.contains("tor"));
+        record.put("is_residential_proxy", network.anonymous.contains("residential"));
+        return record;
+    }
+}
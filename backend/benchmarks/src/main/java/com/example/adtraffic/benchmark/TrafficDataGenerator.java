@@ -0,0 +1,296 @@
+package com.example.adtraffic.benchmark;
+
+import com.example.adtraffic.benchmark.TestDatabases.Network;
+import com.example.adtraffic.model.EventSeries;
+import com.example.adtraffic.model.TrafficData;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 合成的TrafficData：按访客类型生成点击、鼠标移动和滚动事件，IP按给定的组合从测试库网段中选取。
+ * 固定种子时结果可重现，同一组数据可以在不同版本间对比
+ */
+public final class TrafficDataGenerator {
+
+    /**
+     * 访客类型：真人浏览、脚本点击、进入即离开
+     */
+    public enum Profile {
+        HUMAN, BOT, BOUNCE
+    }
+
+    /**
+     * IP组合，比例依次为住宅、数据中心、匿名网络、局域网、测试库中不存在的地址（百分比）
+     */
+    public enum IpMix {
+        RESIDENTIAL(90, 5, 0, 5, 0),
+        MIXED(55, 20, 15, 5, 5),
+        HOSTILE(10, 45, 40, 0, 5);
+
+        private final int[] cumulative = new int[5];
+
+        IpMix(int... weights) {
+            int sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+        }
+    }
+
+    private static final String[] USER_AGENTS = {
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) "
+                    + "Chrome/120.0.0.0 Safari/537.36",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) "
+                    + "Version/17.1 Safari/605.1.15",
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 17_1 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) "
+                    + "Version/17.1 Mobile/15E148 Safari/604.1",
+            "Mozilla/5.0 (X11; Linux x86_64; rv:121.0) Gecko/20100101 Firefox/121.0"};
+
+    private static final String HEADLESS_USER_AGENT = "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) HeadlessChrome/120.0.0.0 Safari/537.36";
+
+    private static final String[] TARGETS = {"ad-banner", "ad-image", "ad-title", "ad-cta", "page-link"};
+
+    private static final Map<String, String> LANGUAGES = Map.of(
+            "CN", "zh-CN,zh;q=0.9,en;q=0.8",
+            "JP", "ja-JP,ja;q=0.9,en-US;q=0.7",
+            "RU", "ru-RU,ru;q=0.9,en;q=0.6",
+            "US", "en-US,en;q=0.9",
+            "DE", "de-DE,de;q=0.9,en;q=0.8",
+            "GB", "en-GB,en;q=0.9",
+            "NL", "nl-NL,nl;q=0.9,en;q=0.8");
+
+    // 脚本流量共用的少量设备指纹，用于触发指纹扇出判定
+    private static final int BOT_FINGERPRINTS = 8;
+
+    private final SplittableRandom random;
+    private final IpMix ipMix;
+    private final int eventScale;
+    // 各访客类型的累计比例（百分比）
+    private final int[] profileCumulative;
+
+    /**
+     * @param eventScale 事件数量倍数，1为典型页面访问，数值越大单次访问的事件越多
+     * @param humanPercent 真人浏览的比例，其余按3:1分配给脚本点击和进入即离开
+     */
+    public TrafficDataGenerator(long seed, IpMix ipMix, int eventScale, int humanPercent) {
+        this.random = new SplittableRandom(seed);
+        this.ipMix = ipMix;
+        this.eventScale = Math.max(1, eventScale);
+        int bots = (100 - humanPercent) * 3 / 4;
+        this.profileCumulative = new int[]{humanPercent, humanPercent + bots, 100};
+    }
+
+    public List<TrafficData> generate(int count) {
+        List<TrafficData> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(next());
+        }
+        return result;
+    }
+
+    public TrafficData next() {
+        int roll = random.nextInt(100);
+        Profile profile = roll < profileCumulative[0] ? Profile.HUMAN
+                : roll < profileCumulative[1] ? Profile.BOT : Profile.BOUNCE;
+        return next(profile);
+    }
+
+    public TrafficData next(Profile profile) {
+        int ipRoll = random.nextInt(100);
+        Network network = network(ipRoll);
+        TrafficData data = new TrafficData();
+        data.setIp(network != null ? randomAddress(network.cidr) : unlistedAddress(ipRoll));
+        String countryCode = network != null ? network.countryCode : "CN";
+        long now = System.currentTimeMillis();
+        data.setStartTime(now - 60_000);
+        Map<String, Object> sessionData = new HashMap<>();
+        Map<String, String> source = new HashMap<>();
+        source.put("referrer", random.nextBoolean() ? "https://www.baidu.com/" : "https://news.example.com/");
+        source.put("utm_source", "benchmark");
+
+        switch (profile) {
+            case HUMAN:
+                data.setUserAgent(USER_AGENTS[random.nextInt(USER_AGENTS.length)]);
+                data.setAcceptLanguage(LANGUAGES.getOrDefault(countryCode, "en-US,en;q=0.9"));
+                data.setDeviceFingerprint("fp-" + Long.toHexString(random.nextLong()) + "|language:"
+                        + data.getAcceptLanguage().substring(0, data.getAcceptLanguage().indexOf(',')));
+                data.setClicks(humanClicks(now, 1 + random.nextInt(6 * eventScale)));
+                data.setMouseMovements(humanMovements(now, 50 + random.nextInt(400 * eventScale)));
+                data.setScrollEvents(humanScrolls(now, 3 + random.nextInt(30 * eventScale)));
+                sessionData.put("duration", 10 + random.nextDouble() * 290);
+                sessionData.put("interactions", data.getClicks().size() + data.getScrollEvents().size());
+                break;
+            case BOT:
+                data.setUserAgent(random.nextInt(3) == 0 ? HEADLESS_USER_AGENT : USER_AGENTS[0]);
+                data.setAcceptLanguage(random.nextBoolean() ? "en-US,en;q=0.9" : null);
+                data.setDeviceFingerprint("fp-bot-" + random.nextInt(BOT_FINGERPRINTS));
+                data.setClicks(botClicks(now, 5 + random.nextInt(20 * eventScale)));
+                data.setMouseMovements(botMovements(now, 10 + random.nextInt(100 * eventScale)));
+                data.setScrollEvents(botScrolls(now, random.nextInt(10 * eventScale)));
+                sessionData.put("duration", 0.5 + random.nextDouble() * 4);
+                sessionData.put("interactions", data.getClicks().size());
+                break;
+            case BOUNCE:
+            default:
+                data.setUserAgent(USER_AGENTS[random.nextInt(USER_AGENTS.length)]);
+                data.setAcceptLanguage(LANGUAGES.getOrDefault(countryCode, "en-US,en;q=0.9"));
+                data.setDeviceFingerprint(random.nextBoolean() ? "fp-" + Long.toHexString(random.nextLong()) : null);
+                data.setClicks(EventSeries.empty());
+                data.setMouseMovements(humanMovements(now, random.nextInt(5)));
+                data.setScrollEvents(humanScrolls(now, random.nextInt(3)));
+                sessionData.put("duration", random.nextDouble() * 8);
+                sessionData.put("interactions", 0);
+                break;
+        }
+        sessionData.put("conversions", 0);
+        data.setSessionData(sessionData);
+        data.setSource(source);
+        return data;
+    }
+
+    /**
+     * 按IP组合选取网段，局域网和不存在的地址返回null
+     */
+    private Network network(int roll) {
+        int[] cumulative = ipMix.cumulative;
+        if (roll < cumulative[0]) {
+            return pick(TestDatabases.RESIDENTIAL);
+        } else if (roll < cumulative[1]) {
+            return pick(TestDatabases.DATACENTER);
+        } else if (roll < cumulative[2]) {
+            return pick(TestDatabases.ANONYMOUS);
+        }
+        return null;
+    }
+
+    private String unlistedAddress(int roll) {
+        if (roll < ipMix.cumulative[3]) {
+            return "192.168." + random.nextInt(256) + "." + (1 + random.nextInt(254));
+        }
+        // TEST-NET-3，不在测试库中
+        return "203.0.113." + (1 + random.nextInt(254));
+    }
+
+    private Network pick(List<Network> networks) {
+        return networks.get(random.nextInt(networks.size()));
+    }
+
+    private String randomAddress(String cidr) {
+        int slash = cidr.indexOf('/');
+        int prefix = Integer.parseInt(cidr.substring(slash + 1));
+        try {
+            byte[] address = InetAddress.getByName(cidr.substring(0, slash)).getAddress();
+            for (int bit = prefix; bit < address.length * 8; bit++) {
+                if (random.nextBoolean()) {
+                    address[bit >>> 3] |= (byte) (0x80 >>> (bit & 7));
+                }
+            }
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(cidr, e);
+        }
+    }
+
+    private EventSeries humanClicks(long now, int count) {
+        EventSeries.Builder builder = EventSeries.builder(count);
+        long time = now - 50_000;
+        for (int i = 0; i < count; i++) {
+            // 间隔呈长尾分布，位置在广告区域内随机
+            time += 400 + (long) (-Math.log(1 - random.nextDouble()) * 2500);
+            int index = builder.append();
+            builder.timestamp(index, time)
+                    .x(index, 100 + random.nextInt(600))
+                    .y(index, 80 + random.nextInt(400))
+                    .target(index, TARGETS[random.nextInt(TARGETS.length)])
+                    .path(index, "/landing");
+        }
+        return builder.build();
+    }
+
+    private EventSeries botClicks(long now, int count) {
+        EventSeries.Builder builder = EventSeries.builder(count);
+        long time = now - 5_000;
+        int interval = 80 + random.nextInt(150);
+        for (int i = 0; i < count; i++) {
+            // 固定间隔，反复点击同一坐标
+            time += interval + random.nextInt(3);
+            int index = builder.append();
+            builder.timestamp(index, time).x(index, 320).y(index, 240).target(index, "ad-cta").path(index, "/landing");
+        }
+        return builder.build();
+    }
+
+    private EventSeries humanMovements(long now, int count) {
+        EventSeries.Builder builder = EventSeries.builder(count);
+        long time = now - 55_000;
+        double x = 200 + random.nextInt(400);
+        double y = 150 + random.nextInt(300);
+        double heading = random.nextDouble() * Math.PI * 2;
+        double speed = 0.3 + random.nextDouble();
+        for (int i = 0; i < count; i++) {
+            // 方向和速度缓慢变化的曲线，采样间隔不固定
+            int dt = 8 + random.nextInt(33);
+            time += dt;
+            heading += (random.nextDouble() - 0.5) * 0.6;
+            speed = Math.max(0.05, Math.min(2.5, speed + (random.nextDouble() - 0.5) * 0.3));
+            x = Math.max(0, Math.min(1920, x + Math.cos(heading) * speed * dt));
+            y = Math.max(0, Math.min(1080, y + Math.sin(heading) * speed * dt));
+            int index = builder.append();
+            builder.timestamp(index, time).x(index, (int) x).y(index, (int) y);
+        }
+        return builder.build();
+    }
+
+    private EventSeries botMovements(long now, int count) {
+        EventSeries.Builder builder = EventSeries.builder(count);
+        long time = now - 5_000;
+        int x = random.nextInt(100);
+        int y = random.nextInt(100);
+        for (int i = 0; i < count; i++) {
+            // 固定16ms采样的直线移动，偶尔直接跳到目标位置
+            time += 16;
+            if (random.nextInt(20) == 0) {
+                x = 320;
+                y = 240;
+            } else {
+                x += 7;
+                y += 4;
+            }
+            int index = builder.append();
+            builder.timestamp(index, time).x(index, x).y(index, y);
+        }
+        return builder.build();
+    }
+
+    private EventSeries humanScrolls(long now, int count) {
+        EventSeries.Builder builder = EventSeries.builder(count);
+        long time = now - 45_000;
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            time += 150 + random.nextInt(2500);
+            // 大多向下滚动，偶尔往回翻看
+            position = Math.max(0, position + (random.nextInt(6) == 0 ? -random.nextInt(400) : random.nextInt(600)));
+            int index = builder.append();
+            builder.timestamp(index, time).scrollY(index, position);
+        }
+        return builder.build();
+    }
+
+    private EventSeries botScrolls(long now, int count) {
+        EventSeries.Builder builder = EventSeries.builder(count);
+        long time = now - 5_000;
+        for (int i = 0; i < count; i++) {
+            time += 250;
+            int index = builder.append();
+            builder.timestamp(index, time).scrollY(index, i * 300);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,20 @@
+#!/bin/bash
+# 吞吐对比：依次以不同并发压测 /api/traffic-analysis，输出wrk的吞吐和延迟分布
+# 用法: scripts/throughput.sh [地址] [持续时间]
+# 例:   scripts/throughput.sh http://127.0.0.1:8080 60s
+set -e
+
+TARGET=${1:-http://127.0.0.1:8080}
+DURATION=${2:-60s}
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+
+# 预热，让JIT、富化缓存和连接池进入稳定状态
+wrk -t4 -c50 -d15s -s "$SCRIPT_DIR/traffic-analysis.lua" "$TARGET/api/traffic-analysis" > /dev/null
+
+for CONNECTIONS in 100 200 400 800 1600; do
+  echo "=== connections=$CONNECTIONS duration=$DURATION ==="
+  wrk -t8 -c"$CONNECTIONS" -d"$DURATION" --latency --timeout 10s \
+      -s "$SCRIPT_DIR/traffic-analysis.lua" "$TARGET/api/traffic-analysis"
+  curl -s "$TARGET/api/monitor/score-record-writer"; echo
+  curl -s "$TARGET/api/monitor/scoring-pipeline"; echo
+done
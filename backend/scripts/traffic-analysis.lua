@@ -0,0 +1,12 @@
+-- wrk脚本：向 /api/traffic-analysis 提交评分请求，IP在一组公网地址中轮换，避免全部命中同一条富化缓存
+wrk.method = "POST"
+wrk.headers["Content-Type"] = "application/json"
+
+local counter = 0
+
+request = function()
+  counter = counter + 1
+  local ip = string.format("%d.%d.%d.%d", 20 + counter % 200, counter % 251, (counter * 7) % 253, 1 + counter % 254)
+  local body = string.format([[{"ip":"%s","userAgent":"Mozilla/5.0 (Windows NT 10.0; Win64; x64)","clicks":[{"timestamp":1000,"x":120,"y":340},{"timestamp":2600,"x":410,"y":95}],"mouseMovements":[{"timestamp":900,"x":100,"y":300},{"timestamp":950,"x":118,"y":332}],"scrollEvents":[{"timestamp":800,"scrollY":240}],"sessionData":{"duration":42},"deviceFingerprint":"language:zh-CN"}]], ip)
+  return wrk.format(nil, nil, nil, body)
+end
@@ -0,0 +1,29 @@
+package com.example.adtraffic.config;
+
+import com.example.adtraffic.util.CountryLanguageTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 加载国家与常用语言对照表，供地理位置一致性检查使用
+ */
+@Configuration
+@Slf4j
+public class CountryLanguageConfig {
+
+    @Bean
+    public CountryLanguageTable countryLanguageTable(
+            ResourceLoader resourceLoader,
+            @Value("${geoip.country-languages:classpath:geo/country-languages.txt}") String location) throws IOException {
+        try (InputStream input = resourceLoader.getResource(location).getInputStream()) {
+            CountryLanguageTable table = CountryLanguageTable.load(input);
+            log.info("国家语言对照表加载完成: {} 个国家/地区", table.countryCount());
+            return table;
+        }
+    }
+}
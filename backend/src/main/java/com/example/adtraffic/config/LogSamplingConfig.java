@@ -0,0 +1,18 @@
+package com.example.adtraffic.config;
+
+import com.example.adtraffic.util.LogSampler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 每个请求都会执行的日志共用的抽样比例，各次执行的耗时和结果由Micrometer指标完整统计
+ */
+@Configuration
+public class LogSamplingConfig {
+
+    @Bean
+    public LogSampler requestLogSampler(@Value("${logging.sampling.per-request-rate:0.01}") double rate) {
+        return new LogSampler(rate);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.adtraffic.config;
+
+import com.example.adtraffic.service.retention.DeletePartitionStrategy;
+import com.example.adtraffic.service.retention.MySqlPartitionStrategy;
+import com.example.adtraffic.service.retention.PartitionGranularity;
+import com.example.adtraffic.service.retention.PartitionStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 按数据库类型选择评分记录的分区方式：MySQL使用原生RANGE分区，其他数据库按时间段分批删除
+ */
+@Configuration
+@Slf4j
+public class RetentionConfig {
+
+    @Bean
+    public PartitionStrategy recordPartitionStrategy(
+            JdbcTemplate jdbcTemplate,
+            @Value("${retention.partition.granularity:DAY}") PartitionGranularity granularity,
+            @Value("${retention.partition.convert-max-rows:0}") long convertMaxRows,
+            @Value("${retention.delete-batch-size:5000}") int deleteBatchSize) {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        PartitionStrategy strategy = "MySQL".equalsIgnoreCase(product)
+                ? new MySqlPartitionStrategy(jdbcTemplate, granularity, convertMaxRows)
+                : new DeletePartitionStrategy(jdbcTemplate, granularity, deleteBatchSize);
+        log.info("评分记录分区方式: {}（数据库 {}）", strategy.name(), product);
+        return strategy;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.adtraffic.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+import java.sql.Driver;
+
+/**
+ * 虚拟线程模式的启动检查。
+ * mysql-connector-j 9.0之前在连接和语句的I/O路径上使用synchronized，
+ * 虚拟线程在其中阻塞会钉住载体线程，少量慢查询就能占满全部载体线程。
+ * 查询接口和CALLER_RUNS溢出策略会在请求线程上执行JDBC，因此检测到旧驱动时拒绝启动
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadGuard implements InitializingBean {
+
+    private static final int PINNING_SAFE_MYSQL_MAJOR_VERSION = 9;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean requirePinningSafeDriver;
+
+    public VirtualThreadGuard(
+            DataSourceProperties dataSourceProperties,
+            @Value("${virtual-threads.require-pinning-safe-driver:true}") boolean requirePinningSafeDriver) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.requirePinningSafeDriver = requirePinningSafeDriver;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        int javaVersion = Runtime.version().feature();
+        if (javaVersion < 21) {
+            // Spring Boot在Java 21以下会忽略该配置，继续使用平台线程
+            log.warn("已开启spring.threads.virtual.enabled，但当前运行在Java {}，仍使用平台线程", javaVersion);
+            return;
+        }
+
+        String driverClassName = dataSourceProperties.determineDriverClassName();
+        if (driverClassName == null || !driverClassName.startsWith("com.mysql")) {
+            return;
+        }
+        int majorVersion = mysqlDriverMajorVersion(driverClassName);
+        if (majorVersion >= PINNING_SAFE_MYSQL_MAJOR_VERSION) {
+            log.info("虚拟线程模式: MySQL驱动版本 {}，I/O路径不会钉住载体线程", majorVersion);
+            return;
+        }
+
+        String message = "虚拟线程模式下MySQL驱动版本为" + majorVersion
+                + "，该版本使用synchronized，阻塞时会钉住载体线程；请使用 -Pjava21 构建（mysql-connector-j 9.x）";
+        if (requirePinningSafeDriver) {
+            throw new IllegalStateException(message);
+        }
+        log.warn("{}（virtual-threads.require-pinning-safe-driver=false，继续启动）", message);
+    }
+
+    private static int mysqlDriverMajorVersion(String driverClassName) {
+        try {
+            Driver driver = (Driver) Class.forName(driverClassName).getDeclaredConstructor().newInstance();
+            return driver.getMajorVersion();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("无法加载数据库驱动 " + driverClassName, e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.adtraffic.controller;
+
+import com.example.adtraffic.service.CardinalityStore;
+import com.example.adtraffic.service.GeoIpService;
+import com.example.adtraffic.service.IpBlocklistService;
+import com.example.adtraffic.service.IpEnrichmentService;
+import com.example.adtraffic.service.RecentRecordsCache;
+import com.example.adtraffic.service.ScoreDetailsMigrationService;
+import com.example.adtraffic.service.ScoreRecordWriter;
+import com.example.adtraffic.service.TrafficStreamService;
+import com.example.adtraffic.service.VelocityService;
+import com.example.adtraffic.service.audit.AuditLog;
+import com.example.adtraffic.service.retention.RecordRetentionService;
+import com.example.adtraffic.service.rules.ScoringRulesService;
+import com.example.adtraffic.service.scoring.ScoringPipeline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")
+@CrossOrigin
+public class MonitorController {
+
+    private final GeoIpService geoIpService;
+    private final IpEnrichmentService ipEnrichmentService;
+    private final ScoreRecordWriter scoreRecordWriter;
+    private final IpBlocklistService ipBlocklistService;
+    private final ScoringPipeline scoringPipeline;
+    private final RecordRetentionService recordRetentionService;
+    private final ScoreDetailsMigrationService scoreDetailsMigrationService;
+    private final VelocityService velocityService;
+    private final CardinalityStore cardinalityStore;
+    private final ScoringRulesService scoringRulesService;
+    private final AuditLog auditLog;
+    private final RecentRecordsCache recentRecordsCache;
+    private final TrafficStreamService trafficStreamService;
+
+    @Autowired
+    public MonitorController(GeoIpService geoIpService,
+                             IpEnrichmentService ipEnrichmentService,
+                             ScoreRecordWriter scoreRecordWriter,
+                             IpBlocklistService ipBlocklistService,
+                             ScoringPipeline scoringPipeline,
+                             RecordRetentionService recordRetentionService,
+                             ScoreDetailsMigrationService scoreDetailsMigrationService,
+                             VelocityService velocityService,
+                             CardinalityStore cardinalityStore,
+                             ScoringRulesService scoringRulesService,
+                             AuditLog auditLog,
+                             RecentRecordsCache recentRecordsCache,
+                             TrafficStreamService trafficStreamService) {
+        this.geoIpService = geoIpService;
+        this.ipEnrichmentService = ipEnrichmentService;
+        this.scoreRecordWriter = scoreRecordWriter;
+        this.ipBlocklistService = ipBlocklistService;
+        this.scoringPipeline = scoringPipeline;
+        this.recordRetentionService = recordRetentionService;
+        this.scoreDetailsMigrationService = scoreDetailsMigrationService;
+        this.velocityService = velocityService;
+        this.cardinalityStore = cardinalityStore;
+        this.scoringRulesService = scoringRulesService;
+        this.auditLog = auditLog;
+        this.recentRecordsCache = recentRecordsCache;
+        this.trafficStreamService = trafficStreamService;
+    }
+
+    @GetMapping("/geoip-databases")
+    public ResponseEntity<?> getGeoIpDatabases() {
+        return ResponseEntity.ok(geoIpService.getDatabaseInfo());
+    }
+
+    @GetMapping("/ip-enrichment-cache")
+    public ResponseEntity<?> getIpEnrichmentCacheStatistics() {
+        return ResponseEntity.ok(ipEnrichmentService.getCacheStatistics());
+    }
+
+    @GetMapping("/score-record-writer")
+    public ResponseEntity<?> getScoreRecordWriterStatistics() {
+        return ResponseEntity.ok(scoreRecordWriter.getStatistics());
+    }
+
+    @GetMapping("/blocklists")
+    public ResponseEntity<?> getBlocklists() {
+        return ResponseEntity.ok(ipBlocklistService.getStatistics());
+    }
+
+    @GetMapping("/scoring-pipeline")
+    public ResponseEntity<?> getScoringPipeline() {
+        return ResponseEntity.ok(scoringPipeline.getStatistics());
+    }
+
+    @GetMapping("/record-retention")
+    public ResponseEntity<?> getRecordRetention() {
+        return ResponseEntity.ok(recordRetentionService.getStatistics());
+    }
+
+    @GetMapping("/score-details-migration")
+    public ResponseEntity<?> getScoreDetailsMigration() {
+        return ResponseEntity.ok(scoreDetailsMigrationService.getStatistics());
+    }
+
+    @GetMapping("/velocity")
+    public ResponseEntity<?> getVelocity() {
+        return ResponseEntity.ok(velocityService.getStatistics());
+    }
+
+    @GetMapping("/cardinality")
+    public ResponseEntity<?> getCardinality() {
+        return ResponseEntity.ok(cardinalityStore.getStatistics());
+    }
+
+    @GetMapping("/scoring-rules")
+    public ResponseEntity<?> getScoringRules() {
+        return ResponseEntity.ok(scoringRulesService.getStatistics());
+    }
+
+    @GetMapping("/audit-log")
+    public ResponseEntity<?> getAuditLog() {
+        return ResponseEntity.ok(auditLog.getStatistics());
+    }
+
+    @GetMapping("/recent-records-cache")
+    public ResponseEntity<?> getRecentRecordsCache() {
+        return ResponseEntity.ok(recentRecordsCache.getStatistics());
+    }
+
+    @GetMapping("/traffic-stream")
+    public ResponseEntity<?> getTrafficStream() {
+        return ResponseEntity.ok(trafficStreamService.getStatistics());
+    }
+
+    /**
+     * 立即重新加载评分规则文件，加载失败时返回400和错误信息，当前规则保持不变
+     */
+    @PostMapping("/scoring-rules/reload")
+    public ResponseEntity<?> reloadScoringRules() {
+        String error = scoringRulesService.reload();
+        if (error != null) {
+            return ResponseEntity.badRequest().body(Map.of("error", error));
+        }
+        return ResponseEntity.ok(scoringRulesService.getStatistics());
+    }
+}
@@ -1,16 +1,39 @@
 package com.example.adtraffic.controller;
 
+import com.example.adtraffic.model.BatchScoreItem;
 import com.example.adtraffic.model.TrafficData;
 import com.example.adtraffic.model.ScoreResult;
-import com.example.adtraffic.model.TrafficScoreRecord;
+import com.example.adtraffic.model.RecordCursor;
+import com.example.adtraffic.model.TrafficScoreRecordSummary;
+import com.example.adtraffic.service.RecentRecordsCache;
+import com.example.adtraffic.service.ScoreDetailsCodec;
+import com.example.adtraffic.service.TrafficDataBatchReader;
+import com.example.adtraffic.service.TrafficDataBatchReader.BatchTooLargeException;
 import com.example.adtraffic.service.TrafficScoringService;
+import com.example.adtraffic.service.TrafficStatisticsService;
+import com.example.adtraffic.service.TrafficStreamService;
 import com.example.adtraffic.repository.TrafficScoreRepository;
+import com.example.adtraffic.util.LogSampler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import lombok.extern.slf4j.Slf4j;
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,58 +45,220 @@ public class TrafficAnalysisController {
 
     private final TrafficScoringService trafficScoringService;
     private final TrafficScoreRepository trafficScoreRepository;
+    private final TrafficDataBatchReader batchReader;
+    private final TrafficStatisticsService trafficStatisticsService;
+    private final ScoreDetailsCodec scoreDetailsCodec;
+    private final RecentRecordsCache recentRecordsCache;
+    private final TrafficStreamService trafficStreamService;
+    private final LogSampler logSampler;
+    private final int batchMaxItems;
+
+    // 记录列表单页最多条数
+    private static final int MAX_PAGE_SIZE = RecentRecordsCache.MAX_RECORDS;
 
     @Autowired
     public TrafficAnalysisController(TrafficScoringService trafficScoringService, 
-                                    TrafficScoreRepository trafficScoreRepository) {
+                                    TrafficScoreRepository trafficScoreRepository,
+                                    TrafficDataBatchReader batchReader,
+                                    TrafficStatisticsService trafficStatisticsService,
+                                    ScoreDetailsCodec scoreDetailsCodec,
+                                    RecentRecordsCache recentRecordsCache,
+                                    TrafficStreamService trafficStreamService,
+                                    LogSampler logSampler,
+                                    @Value("${scoring.batch.max-items:10000}") int batchMaxItems) {
         this.trafficScoringService = trafficScoringService;
         this.trafficScoreRepository = trafficScoreRepository;
+        this.batchReader = batchReader;
+        this.trafficStatisticsService = trafficStatisticsService;
+        this.scoreDetailsCodec = scoreDetailsCodec;
+        this.recentRecordsCache = recentRecordsCache;
+        this.trafficStreamService = trafficStreamService;
+        this.logSampler = logSampler;
+        this.batchMaxItems = batchMaxItems;
     }
 
     @PostMapping("/traffic-analysis")
     public ResponseEntity<ScoreResult> analyzeTraffic(@RequestBody TrafficData trafficData,
-                                                     @RequestHeader(value = "X-Real-IP", required = false) String realIp) {
-        log.info("Received traffic analysis request for IP: {}", trafficData.getIp());
+                                                     HttpServletRequest request,
+                                                     @RequestHeader(value = "X-Real-IP", required = false) String realIp,
+                                                     @RequestHeader(value = "Accept-Language", required = false) String acceptLanguage) {
+        if (log.isInfoEnabled() && logSampler.sample()) {
+            log.info("Received traffic analysis request for IP: {}", trafficData.getIp());
+        }
         
         // 如果通过代理，使用X-Real-IP
         if (realIp != null && !realIp.isEmpty() && (trafficData.getIp() == null || trafficData.getIp().isEmpty())) {
             trafficData.setIp(realIp);
         }
+        // 都没有时使用连接的对端地址：ip列不允许为空，缺少ip的记录会导致所在的整批写入失败
+        if (trafficData.getIp() == null || trafficData.getIp().isEmpty()) {
+            trafficData.setIp(request.getRemoteAddr());
+        }
+        if (trafficData.getIp() == null || trafficData.getIp().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (trafficData.getAcceptLanguage() == null && acceptLanguage != null) {
+            trafficData.setAcceptLanguage(acceptLanguage);
+        }
         
         ScoreResult result = trafficScoringService.analyzeTraffic(trafficData);
         return ResponseEntity.ok(result);
     }
     
+    /**
+     * 批量评分：请求体为TrafficData的JSON数组，或Content-Type为application/x-ndjson时每行一条，可用gzip压缩。
+     * 结果按输入顺序返回，单条解析或评分失败只在该条的error中说明；评分记录在一个事务中写入，写入失败时整批返回500
+     */
+    @PostMapping(value = "/traffic-analysis/batch",
+                 consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> analyzeTrafficBatch(
+            HttpServletRequest request,
+            @RequestHeader(value = "Content-Encoding", required = false) String contentEncoding) throws IOException {
+        List<TrafficData> batch = new ArrayList<>();
+        Map<Integer, String> parseErrors = new HashMap<>();
+        TrafficDataBatchReader.ItemHandler handler = new TrafficDataBatchReader.ItemHandler() {
+            @Override
+            public void item(int index, TrafficData data) {
+                // ip列不允许为空，缺少ip的数据若进入批量写入会导致整批回滚
+                if (data.getIp() == null || data.getIp().isEmpty()) {
+                    error(index, "缺少ip");
+                    return;
+                }
+                batch.add(data);
+            }
+
+            @Override
+            public void error(int index, String message) {
+                batch.add(null);
+                parseErrors.put(index, message);
+            }
+        };
+
+        try (InputStream input = TrafficDataBatchReader.decode(request.getInputStream(), contentEncoding)) {
+            if (MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))) {
+                batchReader.readNdjson(input, batchMaxItems, handler);
+            } else {
+                batchReader.readArray(input, batchMaxItems, handler);
+            }
+        } catch (UnsupportedEncodingException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                    .body(Map.of("error", "不支持的Content-Encoding: " + contentEncoding));
+        } catch (BatchTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "请求体格式错误: " + e.getOriginalMessage()));
+        }
+
+        List<BatchScoreItem> items = trafficScoringService.analyzeBatch(batch);
+        parseErrors.forEach((index, message) -> items.get(index).setError(message));
+
+        long failed = items.stream().filter(item -> item.getError() != null).count();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("total", items.size());
+        response.put("succeeded", items.size() - failed);
+        response.put("failed", failed);
+        response.put("items", items);
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * 记录列表：按(createdAt, id)倒序键集分页，只查询列表需要的列。
+     * 返回的nextCursor作为下一次请求的cursor参数，为null表示没有更多记录。
+     * 第一页来自 RecentRecordsCache 并带ETag，仪表盘轮询时内容未变化返回304；后续页直接查询数据库
+     */
     @GetMapping("/traffic-records")
     public ResponseEntity<?> getTrafficRecords(
             @RequestParam(required = false) String conclusion,
-            @RequestParam(required = false, defaultValue = "20") int limit) {
-        
-        List<TrafficScoreRecord> records;
-        
-        if (conclusion != null && !conclusion.isEmpty()) {
-            records = trafficScoreRepository.findByConclusion(conclusion);
-        } else {
-            records = trafficScoreRepository.findTop100ByOrderByCreatedAtDesc();
-            if (records.size() > limit) {
-                records = records.subList(0, limit);
+            @RequestParam(required = false, defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+
+        RecordCursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                after = RecordCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "无效的cursor"));
             }
         }
-        
+
+        int pageSize = Math.max(0, Math.min(limit, MAX_PAGE_SIZE));
+        // 添加统计数据（增量维护的计数，不查询数据库）
+        Map<String, Long> conclusionStats = trafficStatisticsService.getConclusionCounts();
+        String etag = null;
+        List<TrafficScoreRecordSummary> records = Collections.emptyList();
+        if (after == null) {
+            RecentRecordsCache.Snapshot recent = recentRecordsCache.recent(conclusion);
+            etag = "\"" + Long.toHexString(recent.getVersion()) + "-" + pageSize
+                    + "-" + Integer.toHexString(conclusionStats.hashCode()) + "\"";
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            records = recent.first(pageSize);
+        } else if (pageSize > 0) {
+            Pageable page = PageRequest.of(0, pageSize);
+            records = conclusion != null && !conclusion.isEmpty()
+                    ? trafficScoreRepository.findPageByConclusionAfter(conclusion, after.getCreatedAt(), after.getId(), page)
+                    : trafficScoreRepository.findRecentPageAfter(after.getCreatedAt(), after.getId(), page);
+        }
+
         Map<String, Object> response = new HashMap<>();
         response.put("records", records);
         response.put("total", records.size());
-        
-        // 添加统计数据
-        List<Object[]> stats = trafficScoreRepository.countByConclusion();
-        Map<String, Long> conclusionStats = new HashMap<>();
-        
-        for (Object[] stat : stats) {
-            conclusionStats.put((String) stat[0], (Long) stat[1]);
-        }
-        
+        // 本页已满时可能还有更多记录
+        response.put("nextCursor", pageSize > 0 && records.size() == pageSize
+                ? RecordCursor.of(records.get(records.size() - 1)).encode() : null);
         response.put("statistics", conclusionStats);
-        
+
+        if (etag == null) {
+            return ResponseEntity.ok(response);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(response);
+    }
+
+    /**
+     * 实时推送新的评分结果（Server-Sent Events，事件名traffic-scored），可按结论和分数范围（含两端）过滤。
+     * 客户端处理不及时时服务端丢弃最旧的事件，不影响评分
+     */
+    @GetMapping(value = "/traffic-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTraffic(
+            @RequestParam(required = false) String conclusion,
+            @RequestParam(required = false, defaultValue = "0") int minScore,
+            @RequestParam(required = false, defaultValue = "100") int maxScore) {
+        // 响应体只能是SseEmitter，出错时只返回状态码
+        if (minScore > maxScore) {
+            return ResponseEntity.badRequest().build();
+        }
+        SseEmitter emitter = trafficStreamService.subscribe(conclusion, minScore, maxScore);
+        if (emitter == null) {
+            // 订阅者已达上限
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * 单条记录的完整内容，评分明细统一以JSON返回
+     */
+    @GetMapping("/traffic-records/{id}")
+    public ResponseEntity<?> getTrafficRecord(@PathVariable long id) {
+        return trafficScoreRepository.findById(id)
+                .<ResponseEntity<?>>map(record -> ResponseEntity.ok(scoreDetailsCodec.render(record)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "记录不存在")));
+    }
+    
+    /**
+     * 按分钟或小时的汇总统计（granularity: minute / hour）
+     */
+    @GetMapping("/traffic-statistics")
+    public ResponseEntity<?> getTrafficStatistics(
+            @RequestParam(required = false, defaultValue = "minute") String granularity,
+            @RequestParam(required = false, defaultValue = "60") int limit) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("conclusions", trafficStatisticsService.getConclusionCounts());
+        response.put("granularity", "hour".equalsIgnoreCase(granularity) ? "hour" : "minute");
+        response.put("rollups", trafficStatisticsService.getRollups(granularity, limit));
+        response.put("lastReconciliation", trafficStatisticsService.getLastReconciliation());
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+}
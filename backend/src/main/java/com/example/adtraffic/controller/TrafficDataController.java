@@ -1,11 +1,25 @@
 package com.example.adtraffic.controller;
 
 import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.service.TrafficDataBatchReader;
+import com.example.adtraffic.service.TrafficDataBatchReader.BatchTooLargeException;
 import com.example.adtraffic.service.TrafficDataService;
+import com.example.adtraffic.service.audit.AuditLog;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import lombok.extern.slf4j.Slf4j;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/traffic")
@@ -14,28 +28,89 @@ import lombok.extern.slf4j.Slf4j;
 public class TrafficDataController {
 
     private final TrafficDataService trafficDataService;
+    private final TrafficDataBatchReader batchReader;
+    private final AuditLog auditLog;
+    private final int streamMaxItems;
 
     @Autowired
-    public TrafficDataController(TrafficDataService trafficDataService) {
+    public TrafficDataController(TrafficDataService trafficDataService,
+                                 TrafficDataBatchReader batchReader,
+                                 AuditLog auditLog,
+                                 @Value("${traffic.stream.max-items:100000}") int streamMaxItems) {
         this.trafficDataService = trafficDataService;
+        this.batchReader = batchReader;
+        this.auditLog = auditLog;
+        this.streamMaxItems = streamMaxItems;
     }
 
-    @PostMapping
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> collectTrafficData(@RequestBody TrafficData data) {
-        log.info("Received traffic data collection request for IP: {}", data.getIp());
-        TrafficData savedData = trafficDataService.saveTrafficData(data);
-        return ResponseEntity.ok().body(savedData);
+        auditLog.trafficCollected(data);
+        trafficDataService.saveTrafficData(data);
+        // 只返回确认，不回传数据本身
+        return ResponseEntity.ok().body(Map.of("accepted", 1));
+    }
+
+    /**
+     * 流式采集：请求体为NDJSON（可用Content-Encoding: gzip压缩），
+     * 边解压边解析，每解析出一条即放入缓冲区，不缓存整个请求体
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> collectTrafficDataStream(
+            HttpServletRequest request,
+            @RequestHeader(value = "Content-Encoding", required = false) String contentEncoding) throws IOException {
+        int[] counts = new int[2];
+        TrafficDataBatchReader.ItemHandler handler = new TrafficDataBatchReader.ItemHandler() {
+            @Override
+            public void item(int index, TrafficData data) {
+                auditLog.trafficCollected(data);
+                trafficDataService.saveTrafficData(data);
+                counts[0]++;
+            }
+
+            @Override
+            public void error(int index, String message) {
+                counts[1]++;
+                log.debug("第 {} 条流量数据无法解析: {}", index, message);
+            }
+        };
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        HttpStatus status = HttpStatus.OK;
+        try (InputStream input = TrafficDataBatchReader.decode(request.getInputStream(), contentEncoding)) {
+            batchReader.readStream(input, streamMaxItems, handler);
+        } catch (UnsupportedEncodingException e) {
+            status = HttpStatus.UNSUPPORTED_MEDIA_TYPE;
+            response.put("error", "不支持的Content-Encoding: " + contentEncoding);
+        } catch (BatchTooLargeException e) {
+            status = HttpStatus.PAYLOAD_TOO_LARGE;
+            response.put("error", e.getMessage());
+        } catch (JsonProcessingException e) {
+            // 语法错误之后的数据无法解析，此前的数据已经入缓冲区
+            status = HttpStatus.BAD_REQUEST;
+            response.put("error", "请求体格式错误: " + e.getOriginalMessage());
+        }
+        response.put("accepted", counts[0]);
+        response.put("rejected", counts[1]);
+        log.debug("流式采集完成: 接收 {} 条, 拒绝 {} 条", counts[0], counts[1]);
+        return ResponseEntity.status(status).body(response);
     }
 
     @GetMapping("/latest")
     public ResponseEntity<?> getLatestTrafficData() {
         TrafficData latestData = trafficDataService.getLatestTrafficData();
         if (latestData != null) {
-            log.info("Returning latest traffic data for IP: {}", latestData.getIp());
+            log.debug("Returning latest traffic data for IP: {}", latestData.getIp());
             return ResponseEntity.ok().body(latestData);
         } else {
-            log.info("No traffic data found");
+            log.debug("No traffic data found");
             return ResponseEntity.notFound().build();
         }
     }
-} 
\ No newline at end of file
+
+    @GetMapping("/recent")
+    public ResponseEntity<?> getRecentTrafficData(@RequestParam(required = false, defaultValue = "20") int limit) {
+        List<TrafficData> recentData = trafficDataService.getRecentTrafficData(limit);
+        return ResponseEntity.ok().body(recentData);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.example.adtraffic.model;
+
+import lombok.Data;
+
+/**
+ * 批量评分中单条数据的结果，result和error二者只有一个非空
+ */
+@Data
+public class BatchScoreItem {
+    private int index;
+    private ScoreResult result;
+    private String error;
+}
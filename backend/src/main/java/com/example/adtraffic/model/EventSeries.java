@@ -0,0 +1,291 @@
+package com.example.adtraffic.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 点击、鼠标移动、滚动等交互事件的列式存储。
+ * JSON中仍是对象数组（timestamp、x、y、scrollY、target、path），
+ * 反序列化时直接写入原始类型数组，字符串列按序列内字典编码，避免每个事件一个Map
+ */
+@JsonDeserialize(using = EventSeries.Deserializer.class)
+@JsonSerialize(using = EventSeries.Serializer.class)
+public final class EventSeries {
+
+    // 数值字段缺失时的占位值
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    private static final EventSeries EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final long[] timestamps;
+    private final int[] x;
+    private final int[] y;
+    private final int[] scrollY;
+    private final int[] targetIds;
+    private final int[] pathIds;
+    private final String[] dictionary;
+
+    private EventSeries(int size, long[] timestamps, int[] x, int[] y, int[] scrollY,
+                        int[] targetIds, int[] pathIds, String[] dictionary) {
+        this.size = size;
+        this.timestamps = timestamps;
+        this.x = x;
+        this.y = y;
+        this.scrollY = scrollY;
+        this.targetIds = targetIds;
+        this.pathIds = pathIds;
+        this.dictionary = dictionary;
+    }
+
+    public static EventSeries empty() {
+        return EMPTY;
+    }
+
+    public static EventSeries orEmpty(EventSeries series) {
+        return series == null ? EMPTY : series;
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 时间戳列，有效长度为size()，缺失时为0
+     */
+    public long[] timestamps() {
+        return timestamps;
+    }
+
+    /**
+     * x坐标列，有效长度为size()，缺失时为MISSING
+     */
+    public int[] x() {
+        return x;
+    }
+
+    public int[] y() {
+        return y;
+    }
+
+    public int[] scrollY() {
+        return scrollY;
+    }
+
+    public long timestamp(int index) {
+        return timestamps[index];
+    }
+
+    public String target(int index) {
+        int id = targetIds[index];
+        return id < 0 ? null : dictionary[id];
+    }
+
+    public String path(int index) {
+        int id = pathIds[index];
+        return id < 0 ? null : dictionary[id];
+    }
+
+    public static final class Builder {
+        private int size;
+        private long[] timestamps;
+        private int[] x;
+        private int[] y;
+        private int[] scrollY;
+        private int[] targetIds;
+        private int[] pathIds;
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 8);
+            timestamps = new long[capacity];
+            x = new int[capacity];
+            y = new int[capacity];
+            scrollY = new int[capacity];
+            targetIds = new int[capacity];
+            pathIds = new int[capacity];
+        }
+
+        /**
+         * 追加一个事件，返回其下标，各列初始为缺失
+         */
+        public int append() {
+            if (size == timestamps.length) {
+                int capacity = size * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                scrollY = Arrays.copyOf(scrollY, capacity);
+                targetIds = Arrays.copyOf(targetIds, capacity);
+                pathIds = Arrays.copyOf(pathIds, capacity);
+            }
+            int index = size++;
+            timestamps[index] = 0;
+            x[index] = MISSING;
+            y[index] = MISSING;
+            scrollY[index] = MISSING;
+            targetIds[index] = -1;
+            pathIds[index] = -1;
+            return index;
+        }
+
+        public Builder timestamp(int index, long value) {
+            timestamps[index] = value;
+            return this;
+        }
+
+        public Builder x(int index, int value) {
+            x[index] = value;
+            return this;
+        }
+
+        public Builder y(int index, int value) {
+            y[index] = value;
+            return this;
+        }
+
+        public Builder scrollY(int index, int value) {
+            scrollY[index] = value;
+            return this;
+        }
+
+        public Builder target(int index, String value) {
+            targetIds[index] = intern(value);
+            return this;
+        }
+
+        public Builder path(int index, String value) {
+            pathIds[index] = intern(value);
+            return this;
+        }
+
+        private int intern(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer id = dictionaryIndex.get(value);
+            if (id == null) {
+                id = dictionary.size();
+                dictionary.add(value);
+                dictionaryIndex.put(value, id);
+            }
+            return id;
+        }
+
+        public EventSeries build() {
+            return new EventSeries(size, timestamps, x, y, scrollY, targetIds, pathIds,
+                    dictionary.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * 流式解析事件数组，不构建中间的JsonNode或Map
+     */
+    public static class Deserializer extends JsonDeserializer<EventSeries> {
+        @Override
+        public EventSeries deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                return (EventSeries) context.handleUnexpectedToken(EventSeries.class, parser);
+            }
+            Builder builder = new Builder(16);
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    // 非对象元素（如null）直接跳过
+                    parser.skipChildren();
+                    continue;
+                }
+                int index = builder.append();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if (value == JsonToken.VALUE_NULL) {
+                        continue;
+                    }
+                    if (value.isStructStart()) {
+                        // 字段值是对象或数组时按缺失处理，跳过整个值，否则后续字段会错位
+                        parser.skipChildren();
+                        continue;
+                    }
+                    switch (field) {
+                        case "timestamp":
+                            builder.timestamp(index, parser.getValueAsLong());
+                            break;
+                        case "x":
+                            builder.x(index, parser.getValueAsInt());
+                            break;
+                        case "y":
+                            builder.y(index, parser.getValueAsInt());
+                            break;
+                        case "scrollY":
+                            builder.scrollY(index, parser.getValueAsInt());
+                            break;
+                        case "target":
+                            builder.target(index, parser.getValueAsString());
+                            break;
+                        case "path":
+                            builder.path(index, parser.getValueAsString());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * 序列化回对象数组，缺失的字段不输出
+     */
+    public static class Serializer extends JsonSerializer<EventSeries> {
+        @Override
+        public void serialize(EventSeries series, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartArray();
+            for (int i = 0; i < series.size; i++) {
+                generator.writeStartObject();
+                generator.writeNumberField("timestamp", series.timestamps[i]);
+                writeIfPresent(generator, "x", series.x[i]);
+                writeIfPresent(generator, "y", series.y[i]);
+                writeIfPresent(generator, "scrollY", series.scrollY[i]);
+                if (series.targetIds[i] >= 0) {
+                    generator.writeStringField("target", series.dictionary[series.targetIds[i]]);
+                }
+                if (series.pathIds[i] >= 0) {
+                    generator.writeStringField("path", series.dictionary[series.pathIds[i]]);
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+
+        private static void writeIfPresent(JsonGenerator generator, String field, int value) throws IOException {
+            if (value != MISSING) {
+                generator.writeNumberField(field, value);
+            }
+        }
+    }
+}
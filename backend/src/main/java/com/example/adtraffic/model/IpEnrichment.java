@@ -0,0 +1,60 @@
+package com.example.adtraffic.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 单个IP的一次性富化结果（国家、ASN、匿名标记、代理判定），
+ * 由IpEnrichmentService缓存，评分各步骤只读取该记录，不再重复查询GeoIP数据库
+ */
+@Value
+@Builder
+public class IpEnrichment {
+
+    public enum AddressType {
+        LOOPBACK, SITE_LOCAL, PUBLIC, INVALID
+    }
+
+    public enum LookupStatus {
+        FOUND, NOT_FOUND, ERROR, UNAVAILABLE
+    }
+
+    String ip;
+    AddressType addressType;
+
+    // 国家信息
+    LookupStatus countryStatus;
+    String countryName;
+    String countryCode;
+    boolean highRiskCountry;
+
+    // ASN信息
+    LookupStatus asnStatus;
+    Integer asnNumber;
+    String asnOrganization;
+
+    // GeoIP2-Anonymous-IP标记
+    boolean anonymousVpn;
+    boolean hostingProvider;
+    boolean publicProxy;
+    boolean torExitNode;
+    boolean residentialProxy;
+
+    // 基于ASN组织名的关键词判定
+    boolean datacenter;
+    boolean proxyService;
+    String datacenterKeyword;
+    String proxyKeyword;
+
+    // 综合代理判定及展示用的地理位置描述
+    boolean proxy;
+    String geoInfo;
+
+    public boolean isAnonymous() {
+        return anonymousVpn || hostingProvider || publicProxy || torExitNode || residentialProxy;
+    }
+
+    public boolean isLocalAddress() {
+        return addressType == AddressType.LOOPBACK || addressType == AddressType.SITE_LOCAL;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.adtraffic.model;
+
+import lombok.Value;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * 记录列表的分页游标：上一页最后一条记录的(createdAt, id)，编码为URL安全的Base64字符串
+ */
+@Value
+public class RecordCursor {
+    LocalDateTime createdAt;
+    long id;
+
+    public static RecordCursor of(TrafficScoreRecordSummary record) {
+        return new RecordCursor(record.getCreatedAt(), record.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt.toEpochSecond(ZoneOffset.UTC) + "." + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 解析游标，格式错误时抛出IllegalArgumentException
+     */
+    public static RecordCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int dot = raw.indexOf('.');
+            int colon = raw.indexOf(':', dot + 1);
+            if (dot < 0 || colon < 0) {
+                throw new IllegalArgumentException("invalid cursor: " + token);
+            }
+            long epochSecond = Long.parseLong(raw.substring(0, dot));
+            int nano = Integer.parseInt(raw.substring(dot + 1, colon));
+            long id = Long.parseLong(raw.substring(colon + 1));
+            return new RecordCursor(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC), id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("invalid cursor: " + token, e);
+        }
+    }
+}
@@ -9,15 +9,4 @@ public class ScoreResult {
     private Map<String, Object> details;
     private String conclusion;
     private String ipGeoInfo;
-    
-    public void setTotalScore(int score) {
-        this.totalScore = score;
-        if (score >= 80) {
-            this.conclusion = "真实流量";
-        } else if (score >= 50) {
-            this.conclusion = "可疑流量";
-        } else {
-            this.conclusion = "假流量";
-        }
-    }
 } 
\ No newline at end of file
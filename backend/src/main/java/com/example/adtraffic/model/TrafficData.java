@@ -1,17 +1,19 @@
 package com.example.adtraffic.model;
 
 import lombok.Data;
-import java.util.List;
 import java.util.Map;
 
 @Data
 public class TrafficData {
     private String ip;
     private String userAgent;
+    // 浏览器的Accept-Language（如"zh-CN,zh;q=0.9,en;q=0.8"），缺失时由接口从请求头补充
+    private String acceptLanguage;
     private long startTime;
-    private List<Map<String, Object>> clicks;
-    private List<Map<String, Object>> mouseMovements;
-    private List<Map<String, Object>> scrollEvents;
+    // 交互事件以列式数组存储，见EventSeries
+    private EventSeries clicks;
+    private EventSeries mouseMovements;
+    private EventSeries scrollEvents;
     private Map<String, Object> sessionData;
     private String deviceFingerprint;
     private Map<String, String> source;
@@ -1,13 +1,23 @@
 package com.example.adtraffic.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "traffic_score_records")
+@Table(name = "traffic_score_records", indexes = {
+        // 记录列表按(created_at, id)倒序键集分页
+        @Index(name = "idx_tsr_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_tsr_conclusion_created_at_id", columnList = "conclusion, created_at, id"),
+        @Index(name = "idx_tsr_ip_created_at", columnList = "ip, created_at"),
+        @Index(name = "idx_tsr_total_score", columnList = "total_score")
+})
 public class TrafficScoreRecord {
+    // user_agent列长度，写入前截断
+    public static final int USER_AGENT_MAX_LENGTH = 500;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -15,7 +25,7 @@ public class TrafficScoreRecord {
     @Column(nullable = false)
     private String ip;
 
-    @Column(name = "user_agent", length = 500)
+    @Column(name = "user_agent", length = USER_AGENT_MAX_LENGTH)
     private String userAgent;
 
     @Column(name = "total_score", nullable = false)
@@ -37,13 +47,23 @@ public class TrafficScoreRecord {
     private String conclusion;
 
     @Column(name = "score_details", columnDefinition = "TEXT")
-    private String scoreDetails;  // JSON格式存储详细评分数据
+    private String scoreDetails;  // JSON格式存储详细评分数据（旧记录），新记录使用下面两列
+
+    @JsonIgnore
+    @Column(name = "score_details_bin", length = 255)
+    private byte[] scoreDetailsBin;  // 已知明细项的紧凑二进制编码，见ScoreDetailsCodec
+
+    @JsonIgnore
+    @Column(name = "score_details_extra", columnDefinition = "TEXT")
+    private String scoreDetailsExtra;  // 二进制编码之外的明细项（JSON）
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.example.adtraffic.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 评分记录列表使用的投影，不包含score_details
+ */
+public interface TrafficScoreRecordSummary {
+    Long getId();
+
+    String getIp();
+
+    String getUserAgent();
+
+    Integer getTotalScore();
+
+    Integer getIpScore();
+
+    Integer getClickScore();
+
+    Integer getSessionScore();
+
+    Integer getDeviceScore();
+
+    String getConclusion();
+
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,88 @@
+package com.example.adtraffic.model;
+
+/**
+ * 一次请求写入访问频率统计后，各时间窗口内的统计值（包含本次请求）
+ */
+public class VelocitySnapshot {
+
+    public enum Window {
+        MINUTE("1m", 60_000L, 4),
+        TEN_MINUTES("10m", 600_000L, 5),
+        HOUR("1h", 3_600_000L, 6);
+
+        private final String label;
+        private final long millis;
+        // 窗口划分的桶数
+        private final int buckets;
+
+        Window(String label, long millis, int buckets) {
+            this.label = label;
+            this.millis = millis;
+            this.buckets = buckets;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public int getBuckets() {
+            return buckets;
+        }
+    }
+
+    private static final int WINDOWS = Window.values().length;
+
+    private final long[] ipRequests = new long[WINDOWS];
+    private final long[] subnetRequests = new long[WINDOWS];
+    private final long[] fingerprintRequests = new long[WINDOWS];
+    private final int[] ipUserAgents = new int[WINDOWS];
+    private final int[] fingerprintIps = new int[WINDOWS];
+    private final boolean hasFingerprint;
+
+    public VelocitySnapshot(boolean hasFingerprint) {
+        this.hasFingerprint = hasFingerprint;
+    }
+
+    // 同一IP的请求数
+    public long ipRequests(Window window) {
+        return ipRequests[window.ordinal()];
+    }
+
+    // 同一网段（IPv4 /24，IPv6 /48）的请求数
+    public long subnetRequests(Window window) {
+        return subnetRequests[window.ordinal()];
+    }
+
+    // 同一设备指纹的请求数
+    public long fingerprintRequests(Window window) {
+        return fingerprintRequests[window.ordinal()];
+    }
+
+    // 同一IP使用过的不同User-Agent数
+    public int ipUserAgents(Window window) {
+        return ipUserAgents[window.ordinal()];
+    }
+
+    // 同一设备指纹出现过的不同IP数
+    public int fingerprintIps(Window window) {
+        return fingerprintIps[window.ordinal()];
+    }
+
+    public boolean hasFingerprint() {
+        return hasFingerprint;
+    }
+
+    public void set(Window window, long ipRequests, long subnetRequests, long fingerprintRequests,
+                    int ipUserAgents, int fingerprintIps) {
+        int i = window.ordinal();
+        this.ipRequests[i] = ipRequests;
+        this.subnetRequests[i] = subnetRequests;
+        this.fingerprintRequests[i] = fingerprintRequests;
+        this.ipUserAgents[i] = ipUserAgents;
+        this.fingerprintIps[i] = fingerprintIps;
+    }
+}
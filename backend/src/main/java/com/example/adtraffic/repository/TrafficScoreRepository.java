@@ -1,35 +1,73 @@
 package com.example.adtraffic.repository;
 
 import com.example.adtraffic.model.TrafficScoreRecord;
+import com.example.adtraffic.model.TrafficScoreRecordSummary;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface TrafficScoreRepository extends JpaRepository<TrafficScoreRecord, Long> {
-    
+
+    // 列表投影查询的列，不包含score_details
+    String SUMMARY_SELECT = "SELECT t.id AS id, t.ip AS ip, t.userAgent AS userAgent, t.totalScore AS totalScore, " +
+            "t.ipScore AS ipScore, t.clickScore AS clickScore, t.sessionScore AS sessionScore, " +
+            "t.deviceScore AS deviceScore, t.conclusion AS conclusion, t.createdAt AS createdAt " +
+            "FROM TrafficScoreRecord t ";
+
+    // 在(createdAt, id)倒序中位于游标之后；createdAt <= 条件让数据库可以直接使用索引范围扫描
+    String AFTER_CURSOR = "t.createdAt <= :createdAt AND (t.createdAt < :createdAt OR t.id < :id) ";
+
+    String NEWEST_FIRST = "ORDER BY t.createdAt DESC, t.id DESC";
+
     // 根据IP查询记录
     List<TrafficScoreRecord> findByIp(String ip);
-    
+
     // 查询某个时间段内的记录
     List<TrafficScoreRecord> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
-    
+
     // 查询某个分数范围内的记录
     List<TrafficScoreRecord> findByTotalScoreBetween(int minScore, int maxScore);
-    
-    // 根据结论查询记录
-    List<TrafficScoreRecord> findByConclusion(String conclusion);
-    
+
+    // 根据结论查询记录，按分页参数限制条数
+    List<TrafficScoreRecord> findByConclusion(String conclusion, Pageable pageable);
+
     // 查询最近的记录，按创建时间降序排列
     List<TrafficScoreRecord> findTop100ByOrderByCreatedAtDesc();
-    
+
     // 统计不同结论的数量
     @Query("SELECT t.conclusion, COUNT(t) FROM TrafficScoreRecord t GROUP BY t.conclusion")
     List<Object[]> countByConclusion();
-    
+
+    // 键集分页：最新的一页
+    @Query(SUMMARY_SELECT + NEWEST_FIRST)
+    List<TrafficScoreRecordSummary> findRecentPage(Pageable pageable);
+
+    // 键集分页：游标之后的一页
+    @Query(SUMMARY_SELECT + "WHERE " + AFTER_CURSOR + NEWEST_FIRST)
+    List<TrafficScoreRecordSummary> findRecentPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                                        @Param("id") long id,
+                                                        Pageable pageable);
+
+    // 键集分页：某个结论最新的一页
+    @Query(SUMMARY_SELECT + "WHERE t.conclusion = :conclusion " + NEWEST_FIRST)
+    List<TrafficScoreRecordSummary> findPageByConclusion(@Param("conclusion") String conclusion,
+                                                         Pageable pageable);
+
+    // 键集分页：某个结论游标之后的一页
+    @Query(SUMMARY_SELECT + "WHERE t.conclusion = :conclusion AND " + AFTER_CURSOR + NEWEST_FIRST)
+    List<TrafficScoreRecordSummary> findPageByConclusionAfter(@Param("conclusion") String conclusion,
+                                                              @Param("createdAt") LocalDateTime createdAt,
+                                                              @Param("id") long id,
+                                                              Pageable pageable);
+
     // 查询最近的可疑流量
-    @Query("SELECT t FROM TrafficScoreRecord t WHERE t.conclusion = '可疑流量' ORDER BY t.createdAt DESC")
-    List<TrafficScoreRecord> findRecentSuspiciousTraffic();
-} 
\ No newline at end of file
+    default List<TrafficScoreRecordSummary> findRecentSuspiciousTraffic(int limit) {
+        return findPageByConclusion("可疑流量", PageRequest.of(0, limit));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.util.AhoCorasickMatcher;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 根据ASN组织名判断是否为数据中心或代理服务商。
+ * 两组关键词预编译为一个Aho-Corasick自动机，一次扫描得出两个类别的结果；
+ * 同一ASN的组织名固定，判定结果按ASN号缓存
+ */
+@Service
+@Slf4j
+public class AsnClassifier {
+
+    private static final int DATACENTER = 0;
+    private static final int PROXY = 1;
+
+    private static final Classification NONE = new Classification(false, false, null, null);
+
+    private final AhoCorasickMatcher matcher;
+    private final Cache<Integer, Classification> verdictsByAsn;
+
+    public AsnClassifier(
+            @Value("${geoip.asn-verdict-cache.maximum-size:100000}") long maximumSize) {
+        // 数据中心和云服务提供商关键词
+        List<String> datacenterKeywords = Arrays.asList(
+                "datacenter", "data center", "hosting", "cloud", "server", "vps", "virtual private server",
+                "aws", "amazon", "azure", "google cloud", "gcp", "digital ocean", "linode", "vultr", "oci",
+                "oracle cloud", "alibaba cloud", "tencent cloud", "ibm cloud", "softlayer", "amazonaws",
+                "microsoft", "googleusercontent", "oracle", "alibaba", "tencent", "heroku", "digitalocean",
+                // 添加更多数据中心和云服务提供商
+                "clouvider", "cloudflare", "ovh", "hetzner", "scaleway", "upcloud", "packet", "rackspace",
+                "hostwinds", "hostgator", "godaddy", "namecheap", "dreamhost", "bluehost", "ionos", "1and1",
+                "leaseweb", "cogent", "choopa", "quadranet", "zenlayer", "psychz", "datacamp", "hostdime",
+                "hostinger", "atlantic.net", "kamatera", "xneelo", "netactuate", "liteserver", "contabo",
+                "aruba", "hivelocity", "server4you", "wholesaleinternet", "worldstream", "datapacket",
+                "servers.com", "server4u", "fastly", "akamai", "gcore", "edgecast", "incapsula", "imperva"
+        );
+
+        // 代理和VPN服务提供商关键词
+        List<String> proxyKeywords = Arrays.asList(
+                "proxy", "vpn", "tor", "exit node", "anonymous", "hide ip", "mask ip", "tunnel",
+                "nordvpn", "expressvpn", "cyberghost", "surfshark", "private internet access", "pia",
+                "protonvpn", "mullvad", "ipvanish", "torguard", "windscribe", "hidemyass", "hma",
+                // 添加更多代理和VPN服务提供商
+                "purevpn", "vyprvpn", "strongvpn", "privatevpn", "tunnelbear", "zenmate", "hotspotshield",
+                "vpnunlimited", "avast secureline", "norton secure vpn", "keepsolid", "clouvider", "cloudflare",
+                "zscaler", "brightdata", "luminati", "oxylabs", "geosurf", "smartproxy", "stormproxies",
+                "rsocks", "shifter", "soax", "packetstream", "netnut", "proxyrack", "privateproxy",
+                "proxybonanza", "proxies.io", "proxy-seller", "proxyscrape", "proxies4all", "proxyseller",
+                "proxynova", "proxy-cheap", "torproject", "exitnode", "onion"
+        );
+
+        this.matcher = AhoCorasickMatcher.builder(2)
+                .addAll(datacenterKeywords, DATACENTER)
+                .addAll(proxyKeywords, PROXY)
+                .build();
+        this.verdictsByAsn = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        log.info("ASN关键词自动机构建完成，共 {} 个关键词，{} 个状态",
+                datacenterKeywords.size() + proxyKeywords.size(), matcher.stateCount());
+    }
+
+    /**
+     * 判定ASN组织是否为数据中心或代理服务商，asnNumber不为空时按ASN号缓存结果
+     */
+    public Classification classify(Integer asnNumber, String organization) {
+        if (organization == null || organization.isEmpty()) {
+            return NONE;
+        }
+        if (asnNumber == null) {
+            return match(organization);
+        }
+        return verdictsByAsn.get(asnNumber, key -> match(organization));
+    }
+
+    /**
+     * ASN数据库更新后组织名可能变化，清空按ASN缓存的判定结果
+     */
+    @EventListener
+    public void onGeoIpDatabaseReloaded(GeoIpDatabaseReloadedEvent event) {
+        if ("ASN".equals(event.getDatabaseName())) {
+            verdictsByAsn.invalidateAll();
+        }
+    }
+
+    private Classification match(String organization) {
+        AhoCorasickMatcher.Match match = matcher.match(organization);
+        if (!match.matchedAny()) {
+            return NONE;
+        }
+        return new Classification(match.matched(DATACENTER), match.matched(PROXY),
+                match.keyword(DATACENTER), match.keyword(PROXY));
+    }
+
+    @lombok.Value
+    public static class Classification {
+        boolean datacenter;
+        boolean proxy;
+        String datacenterKeyword;
+        String proxyKeyword;
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.util.HyperLogLog;
+import com.example.adtraffic.util.SlidingWindowSketch;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 按小时统计的基数（去重计数）：每个设备指纹出现过的不同IP数，每个IP、每个ASN出现过的不同设备指纹数。
+ * 每个key保存当前小时和上一小时两个HyperLogLog，查询返回两者并集，即最近1到2小时的去重数。
+ * 总内存由Caffeine按字节权重限制，超出时淘汰不活跃的key。
+ * 配置了共享目录时，各实例定期把自己的寄存器写入该目录并合并其他实例的快照，
+ * HyperLogLog合并是逐个寄存器取最大值，重复合并不会重复计数
+ */
+@Service
+@Slf4j
+public class CardinalityStore {
+
+    public enum Dimension {
+        FINGERPRINT_IPS("fp-ip"),
+        IP_FINGERPRINTS("ip-fp"),
+        ASN_FINGERPRINTS("asn-fp");
+
+        private final String prefix;
+
+        Dimension(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private static final int SNAPSHOT_MAGIC = 0x484c4c31; // "HLL1"
+    private static final long HOUR_MILLIS = 3_600_000L;
+    // 每个key除寄存器外的大致内存开销
+    private static final int ENTRY_OVERHEAD = 160;
+
+    private final int precision;
+    private final Cache<String, HourlyCounter> counters;
+    private final Path snapshotDirectory;
+    private final String instanceId;
+    private final Map<Path, Long> mergedSnapshots = new ConcurrentHashMap<>();
+    private final AtomicLong snapshotsWritten = new AtomicLong();
+    private final AtomicLong snapshotsMerged = new AtomicLong();
+
+    public CardinalityStore(
+            @Value("${cardinality.hll.precision:10}") int precision,
+            @Value("${cardinality.max-memory-bytes:67108864}") long maxMemoryBytes,
+            @Value("${cardinality.snapshot.directory:}") String snapshotDirectory,
+            @Value("${cardinality.snapshot.instance-id:}") String instanceId) {
+        this.precision = precision;
+        this.counters = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String key, HourlyCounter counter) -> key.length() * 2 + counter.sizeInBytes() + ENTRY_OVERHEAD)
+                .recordStats()
+                .build();
+        this.snapshotDirectory = snapshotDirectory == null || snapshotDirectory.isBlank()
+                ? null : Paths.get(snapshotDirectory);
+        this.instanceId = instanceId == null || instanceId.isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9._-]", "_")
+                : instanceId;
+    }
+
+    /**
+     * 记录一次请求中IP与设备指纹的对应关系
+     */
+    public void recordTraffic(String ip, String fingerprint) {
+        if (ip == null || ip.isEmpty() || fingerprint == null || fingerprint.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        add(Dimension.FINGERPRINT_IPS, fingerprint, SlidingWindowSketch.hash(ip), now);
+        add(Dimension.IP_FINGERPRINTS, ip, SlidingWindowSketch.hash(fingerprint), now);
+    }
+
+    /**
+     * 记录ASN与设备指纹的对应关系（ASN在IP富化后才能得到）
+     */
+    public void recordAsn(Integer asn, String fingerprint) {
+        if (asn == null || fingerprint == null || fingerprint.isEmpty()) {
+            return;
+        }
+        add(Dimension.ASN_FINGERPRINTS, asn.toString(), SlidingWindowSketch.hash(fingerprint), System.currentTimeMillis());
+    }
+
+    /**
+     * 最近1到2小时内key对应的不同元素个数，未记录过的key返回0
+     */
+    public long estimate(Dimension dimension, String key) {
+        if (key == null || key.isEmpty()) {
+            return 0;
+        }
+        HourlyCounter counter = counters.getIfPresent(dimension.prefix + ":" + key);
+        return counter == null ? 0 : counter.estimate(currentHour());
+    }
+
+    private void add(Dimension dimension, String key, long elementHash, long now) {
+        counters.get(dimension.prefix + ":" + key, k -> new HourlyCounter(precision))
+                .add(now / HOUR_MILLIS, elementHash);
+    }
+
+    /**
+     * 与其他实例交换快照：先写出本实例的快照，再合并目录中其他实例新写入的快照
+     */
+    @Scheduled(fixedDelayString = "${cardinality.snapshot.interval-ms:60000}",
+               initialDelayString = "${cardinality.snapshot.interval-ms:60000}")
+    public void exchangeSnapshots() {
+        if (snapshotDirectory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(snapshotDirectory);
+            writeSnapshot();
+            mergeSnapshots();
+        } catch (IOException e) {
+            log.warn("基数统计快照交换失败: {}", e.toString());
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        long hour = currentHour();
+        Path target = snapshotDirectory.resolve(instanceId + ".hll.gz");
+        Path temp = snapshotDirectory.resolve(instanceId + ".hll.gz.tmp");
+        int entries = 0;
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp), 65536)))) {
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeByte(precision);
+            for (Map.Entry<String, HourlyCounter> entry : counters.asMap().entrySet()) {
+                for (HourlySlot slot : entry.getValue().slots(hour)) {
+                    output.writeBoolean(true);
+                    output.writeUTF(entry.getKey());
+                    output.writeLong(slot.hour);
+                    output.write(slot.hll.snapshot());
+                    entries++;
+                }
+            }
+            output.writeBoolean(false);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotsWritten.incrementAndGet();
+        log.debug("基数统计快照已写入 {}: {} 项", target, entries);
+    }
+
+    private void mergeSnapshots() throws IOException {
+        long hour = currentHour();
+        String ownFile = instanceId + ".hll.gz";
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(snapshotDirectory)) {
+            files = stream.filter(path -> path.getFileName().toString().endsWith(".hll.gz")
+                    && !path.getFileName().toString().equals(ownFile)).toList();
+        }
+        for (Path file : files) {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            // 已合并过的快照或两小时前的快照不再读取
+            if (modified <= mergedSnapshots.getOrDefault(file, 0L)
+                    || modified < System.currentTimeMillis() - 2 * HOUR_MILLIS) {
+                continue;
+            }
+            try {
+                int merged = mergeSnapshot(file, hour);
+                mergedSnapshots.put(file, modified);
+                snapshotsMerged.incrementAndGet();
+                log.debug("已合并基数统计快照 {}: {} 项", file, merged);
+            } catch (IOException e) {
+                log.warn("无法读取基数统计快照 {}: {}", file, e.toString());
+            }
+        }
+    }
+
+    private int mergeSnapshot(Path file, long currentHour) throws IOException {
+        int merged = 0;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 65536)))) {
+            if (input.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("不是基数统计快照");
+            }
+            int snapshotPrecision = input.readUnsignedByte();
+            if (snapshotPrecision != precision) {
+                throw new IOException("快照精度 " + snapshotPrecision + " 与本实例 " + precision + " 不一致");
+            }
+            byte[] registers = new byte[1 << precision];
+            while (input.readBoolean()) {
+                String key = input.readUTF();
+                long hour = input.readLong();
+                input.readFully(registers);
+                if (hour < currentHour - 1 || hour > currentHour) {
+                    continue;
+                }
+                counters.get(key, k -> new HourlyCounter(precision)).merge(hour, registers);
+                merged++;
+            }
+        }
+        return merged;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("keys", counters.estimatedSize());
+        stats.put("precision", precision);
+        stats.put("weightedBytes", counters.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        stats.put("evictions", counters.stats().evictionCount());
+        stats.put("snapshotDirectory", snapshotDirectory != null ? snapshotDirectory.toAbsolutePath().toString() : null);
+        stats.put("instanceId", instanceId);
+        stats.put("snapshotsWritten", snapshotsWritten.get());
+        stats.put("snapshotsMerged", snapshotsMerged.get());
+        return stats;
+    }
+
+    private static long currentHour() {
+        return System.currentTimeMillis() / HOUR_MILLIS;
+    }
+
+    /**
+     * 一个key的当前小时和上一小时的HyperLogLog，换小时时整体轮换
+     */
+    static final class HourlyCounter {
+        private final int precision;
+        private volatile HourlySlot current;
+        private volatile HourlySlot previous;
+
+        HourlyCounter(int precision) {
+            this.precision = precision;
+        }
+
+        void add(long hour, long elementHash) {
+            HourlySlot slot = slotFor(hour);
+            if (slot != null) {
+                slot.hll.add(elementHash);
+            }
+        }
+
+        void merge(long hour, byte[] registers) {
+            HourlySlot slot = slotFor(hour);
+            if (slot != null) {
+                slot.hll.merge(registers);
+            }
+        }
+
+        long estimate(long currentHour) {
+            HourlySlot now = current;
+            HourlySlot before = previous;
+            boolean nowValid = now != null && now.hour >= currentHour - 1;
+            boolean beforeValid = before != null && before.hour >= currentHour - 1;
+            if (nowValid && beforeValid) {
+                return HyperLogLog.estimateUnion(now.hll, before.hll);
+            }
+            return nowValid ? now.hll.estimate() : 0;
+        }
+
+        List<HourlySlot> slots(long currentHour) {
+            List<HourlySlot> slots = new ArrayList<>(2);
+            HourlySlot now = current;
+            HourlySlot before = previous;
+            if (now != null && now.hour >= currentHour - 1) {
+                slots.add(now);
+            }
+            if (before != null && before.hour >= currentHour - 1) {
+                slots.add(before);
+            }
+            return slots;
+        }
+
+        int sizeInBytes() {
+            return 2 * (1 << precision);
+        }
+
+        /**
+         * hour对应的槽位，必要时轮换；早于上一小时的写入返回null
+         */
+        private HourlySlot slotFor(long hour) {
+            HourlySlot now = current;
+            if (now != null && now.hour == hour) {
+                return now;
+            }
+            synchronized (this) {
+                now = current;
+                if (now == null || hour > now.hour) {
+                    HourlySlot fresh = new HourlySlot(hour, new HyperLogLog(precision));
+                    previous = now != null && now.hour == hour - 1 ? now : null;
+                    current = fresh;
+                    return fresh;
+                }
+                if (now.hour == hour) {
+                    return now;
+                }
+                HourlySlot before = previous;
+                if (before == null && hour == now.hour - 1) {
+                    before = new HourlySlot(hour, new HyperLogLog(precision));
+                    previous = before;
+                }
+                return before != null && before.hour == hour ? before : null;
+            }
+        }
+    }
+
+    private static final class HourlySlot {
+        private final long hour;
+        private final HyperLogLog hll;
+
+        HourlySlot(long hour, HyperLogLog hll) {
+            this.hour = hour;
+            this.hll = hll;
+        }
+    }
+}
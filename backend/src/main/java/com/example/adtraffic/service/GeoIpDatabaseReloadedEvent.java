@@ -0,0 +1,18 @@
+package com.example.adtraffic.service;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * GeoIP数据库文件被替换并重新加载后发布，依赖查询结果的缓存据此失效
+ */
+@Getter
+public class GeoIpDatabaseReloadedEvent extends ApplicationEvent {
+
+    private final String databaseName;
+
+    public GeoIpDatabaseReloadedEvent(Object source, String databaseName) {
+        super(source);
+        this.databaseName = databaseName;
+    }
+}
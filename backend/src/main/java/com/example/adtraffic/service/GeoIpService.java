@@ -0,0 +1,311 @@
+package com.example.adtraffic.service;
+
+import com.maxmind.db.Reader;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.AnonymousIpResponse;
+import com.maxmind.geoip2.model.AsnResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 持有ASN、Country、Anonymous-IP三个GeoIP数据库读取器，只负责原始查询。
+ * 配置了文件路径时以内存映射方式打开（数据在堆外，经页缓存共享），
+ * 并定期检查文件是否被替换，替换后原子切换到新读取器；未配置时回退到classpath加载。
+ * 每次查询按数据库和结果（found/not_found/error）记录耗时
+ */
+@Service
+@Slf4j
+public class GeoIpService {
+
+    private final ReloadableReader asnReader;
+    private final ReloadableReader countryReader;
+    private final ReloadableReader anonymousIpReader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long closeGraceMillis;
+    private final ScheduledExecutorService retiredReaderCloser;
+
+    public GeoIpService(
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("classpath:geoip/GeoLite2-ASN.mmdb") Resource asnDatabase,
+            @Value("classpath:geoip/GeoLite2-Country.mmdb") Resource countryDatabase,
+            @Value("classpath:geoip/GeoIP2-Anonymous-IP.mmdb") Resource anonymousIpDatabase,
+            @Value("${geoip.database.asn-file:}") String asnFile,
+            @Value("${geoip.database.country-file:}") String countryFile,
+            @Value("${geoip.database.anonymous-ip-file:}") String anonymousIpFile,
+            @Value("${geoip.database.close-grace-ms:30000}") long closeGraceMillis) {
+        this.eventPublisher = eventPublisher;
+        this.closeGraceMillis = closeGraceMillis;
+        this.retiredReaderCloser = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "geoip-reader-closer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.asnReader = new ReloadableReader("ASN", asnFile, asnDatabase, "代理检测功能受限。", meterRegistry);
+        this.countryReader = new ReloadableReader("Country", countryFile, countryDatabase, "地理位置检测功能受限。",
+                meterRegistry);
+        // Anonymous-IP数据库可能不存在，因为这是付费数据库
+        this.anonymousIpReader = new ReloadableReader("Anonymous-IP", anonymousIpFile, anonymousIpDatabase,
+                "匿名IP检测将使用替代方法。", meterRegistry);
+    }
+
+    public boolean hasAsnDatabase() {
+        return asnReader.current() != null;
+    }
+
+    public boolean hasCountryDatabase() {
+        return countryReader.current() != null;
+    }
+
+    public boolean hasAnonymousIpDatabase() {
+        return anonymousIpReader.current() != null;
+    }
+
+    public Optional<CountryResponse> country(InetAddress ipAddress) throws IOException, GeoIp2Exception {
+        return countryReader.lookup(reader -> reader.tryCountry(ipAddress));
+    }
+
+    public Optional<AsnResponse> asn(InetAddress ipAddress) throws IOException, GeoIp2Exception {
+        return asnReader.lookup(reader -> reader.tryAsn(ipAddress));
+    }
+
+    public Optional<AnonymousIpResponse> anonymousIp(InetAddress ipAddress) throws IOException, GeoIp2Exception {
+        return anonymousIpReader.lookup(reader -> reader.tryAnonymousIp(ipAddress));
+    }
+
+    /**
+     * 各数据库的加载方式、文件及构建时间
+     */
+    public List<Map<String, Object>> getDatabaseInfo() {
+        return Arrays.asList(asnReader.describe(), countryReader.describe(), anonymousIpReader.describe());
+    }
+
+    /**
+     * 定期检查数据库文件是否被替换（文件应通过rename原子替换）
+     */
+    @Scheduled(fixedDelayString = "${geoip.database.reload-check-interval-ms:30000}")
+    public void reloadChangedDatabases() {
+        for (ReloadableReader reader : Arrays.asList(asnReader, countryReader, anonymousIpReader)) {
+            if (reader.reloadIfChanged()) {
+                eventPublisher.publishEvent(new GeoIpDatabaseReloadedEvent(this, reader.name));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        retiredReaderCloser.shutdownNow();
+        for (ReloadableReader reader : Arrays.asList(asnReader, countryReader, anonymousIpReader)) {
+            closeQuietly(reader.name, reader.current());
+        }
+    }
+
+    private static void closeQuietly(String name, DatabaseReader reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.warn("关闭{}数据库读取器失败: {}", name, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Query<T> {
+        Optional<T> run(DatabaseReader reader) throws IOException, GeoIp2Exception;
+    }
+
+    /**
+     * 单个数据库的读取器引用，切换时旧读取器延迟关闭，保证进行中的查询不受影响
+     */
+    private class ReloadableReader {
+        private final String name;
+        private final Path file;
+        private final AtomicReference<DatabaseReader> reference = new AtomicReference<>();
+        private volatile String source = "none";
+        private FileVersion loadedVersion;
+        private FileVersion failedVersion;
+        private final Timer foundTimer;
+        private final Timer notFoundTimer;
+        private final Timer errorTimer;
+
+        ReloadableReader(String name, String filePath, Resource classpathFallback, String missingHint,
+                         MeterRegistry meterRegistry) {
+            this.name = name;
+            this.file = filePath == null || filePath.isEmpty() ? null : Paths.get(filePath);
+            String database = name.toLowerCase(Locale.ROOT);
+            this.foundTimer = lookupTimer(meterRegistry, database, "found");
+            this.notFoundTimer = lookupTimer(meterRegistry, database, "not_found");
+            this.errorTimer = lookupTimer(meterRegistry, database, "error");
+
+            if (file != null) {
+                if (Files.isRegularFile(file)) {
+                    reloadIfChanged();
+                } else {
+                    log.warn("{}数据库文件 {} 不存在，将在文件出现后自动加载。{}", name, file, missingHint);
+                }
+                return;
+            }
+
+            // 未配置文件路径时回退到classpath加载
+            try {
+                if (classpathFallback.isFile()) {
+                    reference.set(openMapped(classpathFallback.getFile().toPath()));
+                    source = "classpath (memory-mapped)";
+                    log.info("成功加载{}数据库 (内存映射)", name);
+                    return;
+                }
+                InputStream stream = classpathFallback.getInputStream();
+                reference.set(new DatabaseReader.Builder(stream).build());
+                source = "classpath (heap)";
+                log.info("成功加载{}数据库", name);
+            } catch (Exception e) {
+                log.warn("无法加载{}数据库: {}。{}", name, e.getMessage(), missingHint);
+            }
+        }
+
+        DatabaseReader current() {
+            return reference.get();
+        }
+
+        /**
+         * 数据库未加载时返回空结果，不计入指标
+         */
+        <T> Optional<T> lookup(Query<T> query) throws IOException, GeoIp2Exception {
+            DatabaseReader reader = reference.get();
+            if (reader == null) {
+                return Optional.empty();
+            }
+            long started = System.nanoTime();
+            Timer outcome = errorTimer;
+            try {
+                Optional<T> result = query.run(reader);
+                outcome = result.isPresent() ? foundTimer : notFoundTimer;
+                return result;
+            } finally {
+                outcome.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        synchronized boolean reloadIfChanged() {
+            if (file == null) {
+                return false;
+            }
+            FileVersion version;
+            try {
+                version = FileVersion.of(file);
+            } catch (IOException e) {
+                // 文件暂时不存在（例如替换过程中），保留当前读取器
+                return false;
+            }
+            if (version.equals(loadedVersion) || version.equals(failedVersion)) {
+                return false;
+            }
+
+            DatabaseReader fresh;
+            try {
+                fresh = openMapped(file);
+            } catch (Exception e) {
+                // 同一版本的文件不再重复尝试，等待下一次替换
+                failedVersion = version;
+                log.warn("无法加载{}数据库文件 {}: {}，继续使用当前版本", name, file, e.getMessage());
+                return false;
+            }
+            DatabaseReader retired = reference.getAndSet(fresh);
+            boolean reloaded = loadedVersion != null;
+            loadedVersion = version;
+            source = file + " (memory-mapped)";
+            log.info("{}{}数据库 (内存映射): {}, 构建时间: {}", reloaded ? "重新加载" : "成功加载",
+                    name, file, fresh.getMetadata().getBuildDate());
+
+            if (retired != null) {
+                retiredReaderCloser.schedule(() -> closeQuietly(name, retired), closeGraceMillis, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> info = new LinkedHashMap<>();
+            DatabaseReader reader = reference.get();
+            info.put("name", name);
+            info.put("loaded", reader != null);
+            info.put("source", source);
+            if (reader != null) {
+                info.put("databaseType", reader.getMetadata().getDatabaseType());
+                info.put("buildDate", reader.getMetadata().getBuildDate());
+            }
+            return info;
+        }
+
+        private Timer lookupTimer(MeterRegistry meterRegistry, String database, String outcome) {
+            return Timer.builder("adtraffic.geoip.lookup")
+                    .description("GeoIP数据库查询耗时")
+                    .tag("database", database)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+
+        private DatabaseReader openMapped(Path path) throws IOException {
+            return new DatabaseReader.Builder(path.toFile())
+                    .fileMode(Reader.FileMode.MEMORY_MAPPED)
+                    .build();
+        }
+    }
+
+    /**
+     * 用修改时间、大小和inode标识文件版本，rename替换后三者至少有一项变化
+     */
+    private static final class FileVersion {
+        private final long lastModified;
+        private final long size;
+        private final Object fileKey;
+
+        private FileVersion(long lastModified, long size, Object fileKey) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.fileKey = fileKey;
+        }
+
+        static FileVersion of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileVersion(attributes.lastModifiedTime().toMillis(), attributes.size(), attributes.fileKey());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof FileVersion)) {
+                return false;
+            }
+            FileVersion that = (FileVersion) other;
+            return lastModified == that.lastModified && size == that.size && Objects.equals(fileKey, that.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lastModified, size, fileKey);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.util.IpRangeSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * IP黑名单服务：从本地feed文件（Tor出口节点、厂商黑名单等）加载IP、CIDR和地址区间，
+ * 构建为紧凑的IpRangeSet，文件变化后在后台重建并原子替换
+ */
+@Service
+@Slf4j
+public class IpBlocklistService {
+
+    public static final String MALICIOUS = "malicious";
+    public static final String PROXY = "proxy";
+
+    private final ResourceLoader resourceLoader;
+    private final Map<String, Blocklist> blocklists = new LinkedHashMap<>();
+
+    public IpBlocklistService(
+            ResourceLoader resourceLoader,
+            @Value("${blocklist.malicious.sources:classpath:blocklist/malicious.txt}") List<String> maliciousSources,
+            @Value("${blocklist.proxy.sources:classpath:blocklist/proxy.txt}") List<String> proxySources) {
+        this.resourceLoader = resourceLoader;
+        blocklists.put(MALICIOUS, new Blocklist(MALICIOUS, maliciousSources));
+        blocklists.put(PROXY, new Blocklist(PROXY, proxySources));
+        blocklists.values().forEach(Blocklist::reloadIfChanged);
+    }
+
+    public boolean isMalicious(String ip) {
+        return blocklists.get(MALICIOUS).current.contains(ip);
+    }
+
+    public boolean isListedProxy(String ip) {
+        return blocklists.get(PROXY).current.contains(ip);
+    }
+
+    /**
+     * 各黑名单的区间数量、内存占用及加载信息
+     */
+    public List<Map<String, Object>> getStatistics() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Blocklist blocklist : blocklists.values()) {
+            IpRangeSet set = blocklist.current;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("name", blocklist.name);
+            stats.put("sources", blocklist.sources);
+            stats.put("ipv4Ranges", set.ipv4RangeCount());
+            stats.put("ipv6Ranges", set.ipv6RangeCount());
+            stats.put("memoryBytes", set.memoryBytes());
+            stats.put("acceptedEntries", blocklist.acceptedEntries);
+            stats.put("rejectedEntries", blocklist.rejectedEntries);
+            stats.put("loadedAt", blocklist.loadedAt);
+            result.add(stats);
+        }
+        return result;
+    }
+
+    /**
+     * 定期检查feed文件是否变化，变化后重建
+     */
+    @Scheduled(fixedDelayString = "${blocklist.reload-check-interval-ms:60000}")
+    public void reloadChangedBlocklists() {
+        blocklists.values().forEach(Blocklist::reloadIfChanged);
+    }
+
+    private class Blocklist {
+        private final String name;
+        private final List<String> sources;
+        private volatile IpRangeSet current = IpRangeSet.empty();
+        private volatile long acceptedEntries;
+        private volatile long rejectedEntries;
+        private volatile Date loadedAt;
+        private List<String> loadedVersion;
+
+        Blocklist(String name, List<String> sources) {
+            this.name = name;
+            this.sources = sources;
+        }
+
+        synchronized void reloadIfChanged() {
+            List<String> version = currentVersion();
+            if (version.equals(loadedVersion)) {
+                return;
+            }
+
+            long started = System.currentTimeMillis();
+            IpRangeSet.Builder builder = IpRangeSet.builder();
+            long[] counters = new long[2];
+            boolean complete = true;
+            for (String source : sources) {
+                try {
+                    loadSource(source.trim(), builder, counters);
+                } catch (IOException e) {
+                    complete = false;
+                    log.warn("无法加载{}黑名单 {}: {}", name, source, e.getMessage());
+                }
+            }
+            // 有来源加载失败时保留现有集合，不记录版本，下次检查时重试；
+            // 首次加载时没有可保留的集合，先使用已加载的部分
+            if (!complete && loadedAt != null) {
+                log.warn("{}黑名单未完整加载，继续使用 {} 加载的版本", name, loadedAt);
+                return;
+            }
+            IpRangeSet fresh = builder.build();
+
+            // 构建完成后一次性替换，查询线程始终看到完整的集合
+            current = fresh;
+            acceptedEntries = counters[0];
+            rejectedEntries = counters[1];
+            loadedAt = new Date();
+            loadedVersion = complete ? version : null;
+            log.info("{}黑名单加载完成: {} 条记录 ({} 条无法解析), IPv4区间 {}, IPv6区间 {}, 占用 {} 字节, 耗时 {}ms",
+                    name, counters[0], counters[1], fresh.ipv4RangeCount(), fresh.ipv6RangeCount(),
+                    fresh.memoryBytes(), System.currentTimeMillis() - started);
+        }
+
+        /**
+         * 各文件的路径、修改时间和大小，用于判断是否需要重建
+         */
+        private List<String> currentVersion() {
+            List<String> version = new ArrayList<>();
+            for (String source : sources) {
+                for (Path file : localFiles(source.trim())) {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        version.add(file + ":" + attributes.lastModifiedTime().toMillis() + ":" + attributes.size());
+                    } catch (IOException e) {
+                        version.add(file + ":missing");
+                    }
+                }
+            }
+            return version;
+        }
+
+        private void loadSource(String source, IpRangeSet.Builder builder, long[] counters) throws IOException {
+            if (source.isEmpty()) {
+                return;
+            }
+            if (source.startsWith("classpath:")) {
+                Resource resource = resourceLoader.getResource(source);
+                if (!resource.exists()) {
+                    log.warn("{}黑名单 {} 不存在", name, source);
+                    return;
+                }
+                try (InputStream stream = resource.getInputStream()) {
+                    parse(stream, builder, counters);
+                }
+                return;
+            }
+            for (Path file : localFiles(source)) {
+                try (InputStream stream = Files.newInputStream(file)) {
+                    parse(stream, builder, counters);
+                }
+            }
+        }
+
+        private void parse(InputStream stream, IpRangeSet.Builder builder, long[] counters) throws IOException {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String entry = extractEntry(line);
+                if (entry == null) {
+                    continue;
+                }
+                if (builder.add(entry)) {
+                    counters[0]++;
+                } else {
+                    counters[1]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * 目录来源展开为其中的普通文件，classpath来源不参与变化检测
+     */
+    private static List<Path> localFiles(String source) {
+        if (source.isEmpty() || source.startsWith("classpath:")) {
+            return Collections.emptyList();
+        }
+        Path path = Paths.get(source.startsWith("file:") ? source.substring(5) : source);
+        if (!Files.isDirectory(path)) {
+            return Collections.singletonList(path);
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 取一行中的地址部分：忽略#和;注释，支持"start - end"区间，
+     * 兼容"ExitAddress 1.2.3.4 ..."这类多列格式
+     */
+    private static String extractEntry(String line) {
+        int comment = line.indexOf('#');
+        if (comment >= 0) {
+            line = line.substring(0, comment);
+        }
+        int semicolon = line.indexOf(';');
+        if (semicolon >= 0) {
+            line = line.substring(0, semicolon);
+        }
+        line = line.trim();
+        if (line.isEmpty()) {
+            return null;
+        }
+        if (line.startsWith("ExitAddress ")) {
+            line = line.substring("ExitAddress ".length()).trim();
+        }
+        int space = indexOfWhitespaceOrComma(line);
+        if (space < 0) {
+            return line;
+        }
+        String first = line.substring(0, space);
+        String rest = line.substring(space + 1).trim();
+        if (rest.startsWith("-")) {
+            String second = rest.substring(1).trim();
+            int end = indexOfWhitespaceOrComma(second);
+            return first + "-" + (end < 0 ? second : second.substring(0, end));
+        }
+        return first;
+    }
+
+    private static int indexOfWhitespaceOrComma(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '\t' || c == ',') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
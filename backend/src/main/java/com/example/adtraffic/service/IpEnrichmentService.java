@@ -0,0 +1,268 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.model.IpEnrichment;
+import com.example.adtraffic.model.IpEnrichment.AddressType;
+import com.example.adtraffic.model.IpEnrichment.LookupStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.AnonymousIpResponse;
+import com.maxmind.geoip2.model.AsnResponse;
+import com.maxmind.geoip2.model.CountryResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * IP富化服务：每个IP只做一次Country/ASN/Anonymous-IP查询，
+ * 结果以不可变的IpEnrichment记录放入有界、按TTL过期的缓存
+ */
+@Service
+@Slf4j
+public class IpEnrichmentService {
+
+    private final GeoIpService geoIpService;
+    private final Cache<String, IpEnrichment> cache;
+    private final AsnClassifier asnClassifier;
+    private final Set<String> highRiskCountries;
+
+    public IpEnrichmentService(
+            GeoIpService geoIpService,
+            AsnClassifier asnClassifier,
+            @Value("${geoip.enrichment-cache.maximum-size:100000}") long maximumSize,
+            @Value("${geoip.enrichment-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.geoIpService = geoIpService;
+        this.asnClassifier = asnClassifier;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        // 初始化高风险国家列表
+        this.highRiskCountries = new HashSet<>(Arrays.asList(
+                "cn", "ru", "ir", "kp", "sy", "by", "ve", "cu"
+        ));
+    }
+
+    /**
+     * 获取IP的富化记录，命中缓存时不访问GeoIP数据库
+     */
+    public IpEnrichment enrich(String ip) {
+        String key = ip == null ? "" : ip;
+        return cache.get(key, this::lookup);
+    }
+
+    /**
+     * 批量富化，重复的IP只查询一次，已缓存的IP不访问GeoIP数据库
+     */
+    public Map<String, IpEnrichment> enrichAll(Collection<String> ips) {
+        Set<String> keys = new HashSet<>();
+        for (String ip : ips) {
+            keys.add(ip == null ? "" : ip);
+        }
+        return cache.getAll(keys, missing -> {
+            Map<String, IpEnrichment> loaded = new HashMap<>(missing.size() * 2);
+            for (String ip : missing) {
+                loaded.put(ip, lookup(ip));
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * GeoIP数据库重新加载后清空缓存，避免继续使用旧数据库的查询结果
+     */
+    @EventListener
+    public void onGeoIpDatabaseReloaded(GeoIpDatabaseReloadedEvent event) {
+        cache.invalidateAll();
+        log.info("{}数据库已重新加载，IP富化缓存已清空", event.getDatabaseName());
+    }
+
+    public boolean isHighRiskCountry(String countryCode) {
+        return countryCode != null && highRiskCountries.contains(countryCode.toLowerCase());
+    }
+
+    /**
+     * 缓存命中、未命中及淘汰计数
+     */
+    public Map<String, Object> getCacheStatistics() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("hitRate", stats.hitRate());
+        return result;
+    }
+
+    private IpEnrichment lookup(String ip) {
+        IpEnrichment.IpEnrichmentBuilder builder = IpEnrichment.builder().ip(ip);
+
+        InetAddress ipAddress;
+        try {
+            ipAddress = InetAddress.getByName(ip);
+        } catch (Exception e) {
+            log.error("解析IP {}时出错", ip, e);
+            return builder.addressType(AddressType.INVALID)
+                    .countryStatus(LookupStatus.ERROR)
+                    .asnStatus(LookupStatus.ERROR)
+                    .geoInfo(geoIpService.hasCountryDatabase() ? "获取地理位置出错" : "未知")
+                    .build();
+        }
+
+        // 检查私有IP和保留IP
+        if (ipAddress.isLoopbackAddress() || ipAddress.isSiteLocalAddress()) {
+            boolean loopback = ipAddress.isLoopbackAddress();
+            log.debug("IP {} 是本地或私有地址", ip);
+            return builder.addressType(loopback ? AddressType.LOOPBACK : AddressType.SITE_LOCAL)
+                    .countryStatus(LookupStatus.UNAVAILABLE)
+                    .asnStatus(LookupStatus.UNAVAILABLE)
+                    .geoInfo(!geoIpService.hasCountryDatabase() ? "未知" : loopback ? "本地回环地址" : "局域网地址")
+                    .build();
+        }
+        builder.addressType(AddressType.PUBLIC);
+
+        // Country查询
+        LookupStatus countryStatus = LookupStatus.UNAVAILABLE;
+        String countryName = null;
+        String countryCode = null;
+        if (geoIpService.hasCountryDatabase()) {
+            try {
+                Optional<CountryResponse> response = geoIpService.country(ipAddress);
+                if (response.isPresent()) {
+                    countryStatus = LookupStatus.FOUND;
+                    countryName = response.get().getCountry().getName();
+                    countryCode = response.get().getCountry().getIsoCode();
+                    log.debug("IP {} 地理位置: {} ({})", ip, countryName, countryCode);
+                } else {
+                    countryStatus = LookupStatus.NOT_FOUND;
+                    log.debug("在GeoIP数据库中未找到IP {}", ip);
+                }
+            } catch (GeoIp2Exception e) {
+                countryStatus = LookupStatus.NOT_FOUND;
+                log.debug("在GeoIP数据库中未找到IP {}: {}", ip, e.getMessage());
+            } catch (Exception e) {
+                countryStatus = LookupStatus.ERROR;
+                log.warn("无法获取IP的国家信息: {}", ip);
+            }
+        } else {
+            // 数据库缺失已在GeoIpService启动时提示，这里每次缓存未命中都会执行
+            log.debug("Country数据库未初始化，无法获取IP地理位置: {}", ip);
+        }
+        boolean highRisk = isHighRiskCountry(countryCode);
+        builder.countryStatus(countryStatus)
+                .countryName(countryName)
+                .countryCode(countryCode)
+                .highRiskCountry(highRisk);
+
+        // ASN查询
+        LookupStatus asnStatus = LookupStatus.UNAVAILABLE;
+        String organization = null;
+        Integer asnNumber = null;
+        if (geoIpService.hasAsnDatabase()) {
+            try {
+                Optional<AsnResponse> response = geoIpService.asn(ipAddress);
+                if (response.isPresent()) {
+                    asnStatus = LookupStatus.FOUND;
+                    organization = response.get().getAutonomousSystemOrganization();
+                    asnNumber = response.get().getAutonomousSystemNumber();
+                    log.debug("IP {} ASN信息 - ASN: {}, 组织: {}", ip, asnNumber, organization);
+                } else {
+                    asnStatus = LookupStatus.NOT_FOUND;
+                }
+            } catch (GeoIp2Exception e) {
+                asnStatus = LookupStatus.NOT_FOUND;
+                log.debug("在GeoIP数据库中未找到IP {}: {}", ip, e.getMessage());
+            } catch (Exception e) {
+                asnStatus = LookupStatus.ERROR;
+                log.error("查询IP {}的ASN信息时出错", ip, e);
+            }
+        }
+        builder.asnStatus(asnStatus).asnNumber(asnNumber).asnOrganization(organization);
+
+        // 使用GeoIP2-Anonymous-IP数据库检查是否为匿名IP
+        boolean anonymous = false;
+        if (geoIpService.hasAnonymousIpDatabase()) {
+            try {
+                Optional<AnonymousIpResponse> response = geoIpService.anonymousIp(ipAddress);
+                if (response.isPresent()) {
+                    AnonymousIpResponse anonymousIp = response.get();
+                    builder.anonymousVpn(anonymousIp.isAnonymousVpn())
+                            .hostingProvider(anonymousIp.isHostingProvider())
+                            .publicProxy(anonymousIp.isPublicProxy())
+                            .torExitNode(anonymousIp.isTorExitNode())
+                            .residentialProxy(anonymousIp.isResidentialProxy());
+                    anonymous = anonymousIp.isAnonymousVpn() || anonymousIp.isHostingProvider()
+                            || anonymousIp.isPublicProxy() || anonymousIp.isTorExitNode()
+                            || anonymousIp.isResidentialProxy();
+                    if (anonymous) {
+                        log.debug("IP {} 被GeoIP2-Anonymous-IP检测为匿名IP - VPN: {}, 托管商: {}, 公共代理: {}, " +
+                                "Tor出口节点: {}, 住宅代理: {}",
+                                ip, anonymousIp.isAnonymousVpn(), anonymousIp.isHostingProvider(),
+                                anonymousIp.isPublicProxy(), anonymousIp.isTorExitNode(),
+                                anonymousIp.isResidentialProxy());
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("在GeoIP2-Anonymous-IP数据库中未找到IP {}: {}", ip, e.getMessage());
+            }
+        }
+
+        // 检查是否为数据中心或代理服务商（按ASN号缓存判定结果）
+        AsnClassifier.Classification classification = asnClassifier.classify(asnNumber, organization);
+        boolean isDatacenter = classification.isDatacenter();
+        boolean isProxyService = classification.isProxy();
+        if (isDatacenter) {
+            log.debug("IP {} 被检测为数据中心IP (组织: {}, 关键词: {})",
+                    ip, organization, classification.getDatacenterKeyword());
+        }
+        if (isProxyService) {
+            log.debug("IP {} 被检测为代理服务 (组织: {}, 关键词: {})",
+                    ip, organization, classification.getProxyKeyword());
+        }
+        if (highRisk) {
+            log.debug("IP {} 来自高风险国家: {}", ip, countryCode);
+        }
+        builder.datacenter(isDatacenter)
+                .proxyService(isProxyService)
+                .datacenterKeyword(classification.getDatacenterKeyword())
+                .proxyKeyword(classification.getProxyKeyword());
+
+        // 结合所有检测结果（ASN数据库不可用或未收录时不判定为代理）
+        boolean proxy;
+        if (!geoIpService.hasAsnDatabase()) {
+            log.debug("ASN数据库未初始化，无法检测IP是否为代理: {}", ip);
+            proxy = false;
+        } else if (anonymous) {
+            proxy = true;
+        } else {
+            proxy = asnStatus == LookupStatus.FOUND && (isDatacenter || isProxyService || highRisk);
+        }
+        builder.proxy(proxy);
+
+        return builder.geoInfo(buildGeoInfo(countryStatus, countryName, countryCode, asnStatus, organization))
+                .build();
+    }
+
+    private String buildGeoInfo(LookupStatus countryStatus, String countryName, String countryCode,
+                                LookupStatus asnStatus, String organization) {
+        switch (countryStatus) {
+            case FOUND:
+                String asnInfo = asnStatus == LookupStatus.FOUND ? " (" + organization + ")" : "";
+                return countryName + " (" + countryCode + ")" + asnInfo;
+            case NOT_FOUND:
+                return "未知地理位置";
+            case ERROR:
+                return "获取地理位置出错";
+            default:
+                return "未知";
+        }
+    }
+}
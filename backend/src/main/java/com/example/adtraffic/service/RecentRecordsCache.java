@@ -0,0 +1,247 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.model.TrafficScoreRecord;
+import com.example.adtraffic.model.TrafficScoreRecordSummary;
+import com.example.adtraffic.repository.TrafficScoreRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录列表第一页（最新的记录，可按结论过滤）的读穿缓存，供仪表盘轮询使用。
+ * 每个过滤条件缓存最新的 MAX_RECORDS 条摘要，同一条件的并发请求只查询一次数据库；
+ * 新记录写入后按(createdAt, id)倒序合并进已缓存的列表，不重新查询。
+ * 过期时间只用于兜底（如多实例部署时其他实例写入的记录），通常设得很短
+ */
+@Service
+public class RecentRecordsCache implements ScoreRecordListener {
+
+    // 与记录列表单页最多条数一致
+    public static final int MAX_RECORDS = 100;
+
+    private static final Comparator<TrafficScoreRecordSummary> NEWEST_FIRST =
+            Comparator.comparing(TrafficScoreRecordSummary::getCreatedAt)
+                    .thenComparing(TrafficScoreRecordSummary::getId)
+                    .reversed();
+
+    private final TrafficScoreRepository trafficScoreRepository;
+    // 过滤条件（结论，空字符串表示全部）-> 最新记录
+    private final Cache<String, Snapshot> cache;
+    // 每次加载或合并都生成新版本号，用作ETag
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis());
+
+    public RecentRecordsCache(
+            TrafficScoreRepository trafficScoreRepository,
+            @Value("${traffic-records.cache.maximum-size:64}") long maximumSize,
+            @Value("${traffic-records.cache.ttl-ms:5000}") long ttlMillis) {
+        this.trafficScoreRepository = trafficScoreRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 最新的记录，conclusion为null或空时不过滤。未缓存时查询数据库，
+     * 并发请求同一条件时只有一个线程查询，其余等待其结果
+     */
+    public Snapshot recent(String conclusion) {
+        return cache.get(conclusion == null ? "" : conclusion, this::load);
+    }
+
+    private Snapshot load(String conclusion) {
+        PageRequest page = PageRequest.of(0, MAX_RECORDS);
+        List<TrafficScoreRecordSummary> records = conclusion.isEmpty()
+                ? trafficScoreRepository.findRecentPage(page)
+                : trafficScoreRepository.findPageByConclusion(conclusion, page);
+        return new Snapshot(versions.incrementAndGet(), List.copyOf(records));
+    }
+
+    /**
+     * 把新写入的记录合并进已缓存的列表。写入在查询之前提交时，查询结果已包含该记录，按id去重；
+     * 同一条件正在加载时，合并等待加载完成后执行
+     */
+    @Override
+    public void onRecordsWritten(List<TrafficScoreRecord> records) {
+        List<TrafficScoreRecordSummary> written = new ArrayList<>(records.size());
+        for (TrafficScoreRecord record : records) {
+            if (record.getId() != null && record.getCreatedAt() != null) {
+                written.add(new WrittenRecord(record));
+            }
+        }
+        if (written.isEmpty()) {
+            return;
+        }
+        for (String conclusion : cache.asMap().keySet()) {
+            cache.asMap().computeIfPresent(conclusion, (key, snapshot) -> merge(key, snapshot, written));
+        }
+    }
+
+    private Snapshot merge(String conclusion, Snapshot snapshot, List<TrafficScoreRecordSummary> written) {
+        List<TrafficScoreRecordSummary> matched = new ArrayList<>();
+        Set<Long> cachedIds = null;
+        for (TrafficScoreRecordSummary record : written) {
+            if (!conclusion.isEmpty() && !conclusion.equals(record.getConclusion())) {
+                continue;
+            }
+            if (cachedIds == null) {
+                cachedIds = new HashSet<>();
+                for (TrafficScoreRecordSummary cached : snapshot.records) {
+                    cachedIds.add(cached.getId());
+                }
+            }
+            if (!cachedIds.contains(record.getId())) {
+                matched.add(record);
+            }
+        }
+        if (matched.isEmpty()) {
+            return snapshot;
+        }
+        // 列表已满时，比最后一条更早的记录不在最新的MAX_RECORDS条之内，合并后截断即可
+        List<TrafficScoreRecordSummary> merged = new ArrayList<>(snapshot.records.size() + matched.size());
+        merged.addAll(snapshot.records);
+        merged.addAll(matched);
+        merged.sort(NEWEST_FIRST);
+        if (merged.size() > MAX_RECORDS) {
+            merged = merged.subList(0, MAX_RECORDS);
+        }
+        return new Snapshot(versions.incrementAndGet(), List.copyOf(merged));
+    }
+
+    /**
+     * 缓存的条件数、命中和加载次数
+     */
+    public Map<String, Object> getStatistics() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("loadCount", stats.loadCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        return result;
+    }
+
+    /**
+     * 某个过滤条件下最新记录的不可变快照，version在内容变化时改变
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final List<TrafficScoreRecordSummary> records;
+
+        Snapshot(long version, List<TrafficScoreRecordSummary> records) {
+            this.version = version;
+            this.records = records;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * 最新的limit条（不超过MAX_RECORDS）
+         */
+        public List<TrafficScoreRecordSummary> first(int limit) {
+            if (limit <= 0) {
+                return Collections.emptyList();
+            }
+            return limit >= records.size() ? records : records.subList(0, limit);
+        }
+    }
+
+    /**
+     * 由刚写入的记录生成的摘要，序列化结果与查询得到的投影相同
+     */
+    static final class WrittenRecord implements TrafficScoreRecordSummary {
+        private final Long id;
+        private final String ip;
+        private final String userAgent;
+        private final Integer totalScore;
+        private final Integer ipScore;
+        private final Integer clickScore;
+        private final Integer sessionScore;
+        private final Integer deviceScore;
+        private final String conclusion;
+        private final LocalDateTime createdAt;
+
+        WrittenRecord(TrafficScoreRecord record) {
+            this.id = record.getId();
+            this.ip = record.getIp();
+            this.userAgent = record.getUserAgent();
+            this.totalScore = record.getTotalScore();
+            this.ipScore = record.getIpScore();
+            this.clickScore = record.getClickScore();
+            this.sessionScore = record.getSessionScore();
+            this.deviceScore = record.getDeviceScore();
+            this.conclusion = record.getConclusion();
+            // 与列精度(6位小数)一致，否则由它生成的cursor会与数据库中的值不相等
+            this.createdAt = record.getCreatedAt().truncatedTo(ChronoUnit.MICROS);
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getIp() {
+            return ip;
+        }
+
+        @Override
+        public String getUserAgent() {
+            return userAgent;
+        }
+
+        @Override
+        public Integer getTotalScore() {
+            return totalScore;
+        }
+
+        @Override
+        public Integer getIpScore() {
+            return ipScore;
+        }
+
+        @Override
+        public Integer getClickScore() {
+            return clickScore;
+        }
+
+        @Override
+        public Integer getSessionScore() {
+            return sessionScore;
+        }
+
+        @Override
+        public Integer getDeviceScore() {
+            return deviceScore;
+        }
+
+        @Override
+        public String getConclusion() {
+            return conclusion;
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.model.TrafficScoreRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+/**
+ * 评分明细的紧凑编码：已知的各项得分和布尔标记按固定schema编码为字节数组（score_details_bin），
+ * 其余明细项（ASN关键词、降级维度等）以JSON写入score_details_extra。
+ * 旧记录的明细仍是score_details列中的完整JSON，读取时两种格式都支持
+ *
+ * 二进制格式（版本1）：
+ * [版本号1字节][得分项存在位图varint][标记项存在位图varint][标记项取值位图varint][各得分项的zigzag varint...]
+ * SCORE_KEYS和FLAG_KEYS中的位置即位图中的位，只能在末尾追加，不能调整顺序或删除
+ */
+@Component
+@Slf4j
+public class ScoreDetailsCodec {
+
+    private static final byte VERSION = 1;
+
+    static final List<String> SCORE_KEYS = List.of(
+            "proxyScore", "ipBehaviorScore", "geoLocationScore",
+            "clickSpeedScore", "clickPatternScore", "clickPathScore", "displayInteractionScore",
+            "sessionDurationScore", "userInteractionScore", "conversionScore",
+            "deviceFingerprintScore", "browserBehaviorScore", "userAgentScore");
+
+    static final List<String> FLAG_KEYS = List.of("ipMalicious");
+
+    private static final Map<String, Integer> SCORE_INDEX = indexOf(SCORE_KEYS);
+    private static final Map<String, Integer> FLAG_INDEX = indexOf(FLAG_KEYS);
+    private static final TypeReference<LinkedHashMap<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+
+    public ScoreDetailsCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 编码明细并写入记录的score_details_bin和score_details_extra，score_details置空
+     */
+    public void apply(TrafficScoreRecord record, Map<String, Object> details) {
+        Map<String, Object> extra = new LinkedHashMap<>();
+        record.setScoreDetailsBin(encode(details, extra));
+        record.setScoreDetailsExtra(extra.isEmpty() ? null : toJson(extra));
+        record.setScoreDetails(null);
+    }
+
+    /**
+     * 读取记录的明细，新旧格式均可，无法解析时返回空Map
+     */
+    public Map<String, Object> read(byte[] bin, String extra, String legacyJson) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        if (bin != null) {
+            try {
+                // 先解码到临时Map，编码损坏时不返回部分得分项
+                Map<String, Object> decoded = new LinkedHashMap<>();
+                decode(bin, decoded);
+                details.putAll(decoded);
+            } catch (IllegalArgumentException e) {
+                log.warn("无法解析评分明细: {}", e.getMessage());
+            }
+            if (extra != null) {
+                details.putAll(parse(extra));
+            }
+        } else if (legacyJson != null) {
+            details.putAll(parse(legacyJson));
+        }
+        return details;
+    }
+
+    public Map<String, Object> read(TrafficScoreRecord record) {
+        return read(record.getScoreDetailsBin(), record.getScoreDetailsExtra(), record.getScoreDetails());
+    }
+
+    /**
+     * 明细的JSON表示，用于接口返回和归档
+     */
+    public String readJson(byte[] bin, String extra, String legacyJson) {
+        if (bin == null) {
+            return legacyJson;
+        }
+        return toJson(read(bin, extra, legacyJson));
+    }
+
+    /**
+     * 返回一份score_details为JSON的记录副本，接口返回的格式与旧记录一致
+     */
+    public TrafficScoreRecord render(TrafficScoreRecord stored) {
+        TrafficScoreRecord record = new TrafficScoreRecord();
+        record.setId(stored.getId());
+        record.setIp(stored.getIp());
+        record.setUserAgent(stored.getUserAgent());
+        record.setTotalScore(stored.getTotalScore());
+        record.setIpScore(stored.getIpScore());
+        record.setClickScore(stored.getClickScore());
+        record.setSessionScore(stored.getSessionScore());
+        record.setDeviceScore(stored.getDeviceScore());
+        record.setConclusion(stored.getConclusion());
+        record.setCreatedAt(stored.getCreatedAt());
+        record.setScoreDetails(readJson(stored.getScoreDetailsBin(), stored.getScoreDetailsExtra(), stored.getScoreDetails()));
+        return record;
+    }
+
+    /**
+     * 把可按schema编码的明细项写入字节数组，其余项放入extra
+     */
+    static byte[] encode(Map<String, Object> details, Map<String, Object> extra) {
+        long scorePresence = 0;
+        long flagPresence = 0;
+        long flagValues = 0;
+        int[] scores = new int[SCORE_KEYS.size()];
+        for (Map.Entry<String, Object> entry : details.entrySet()) {
+            Object value = entry.getValue();
+            Integer scoreIndex = SCORE_INDEX.get(entry.getKey());
+            if (scoreIndex != null && (value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+                scorePresence |= 1L << scoreIndex;
+                scores[scoreIndex] = ((Number) value).intValue();
+                continue;
+            }
+            Integer flagIndex = FLAG_INDEX.get(entry.getKey());
+            if (flagIndex != null && value instanceof Boolean) {
+                flagPresence |= 1L << flagIndex;
+                if ((Boolean) value) {
+                    flagValues |= 1L << flagIndex;
+                }
+                continue;
+            }
+            extra.put(entry.getKey(), value);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + Long.bitCount(scorePresence));
+        out.write(VERSION);
+        writeVarint(out, scorePresence);
+        writeVarint(out, flagPresence);
+        writeVarint(out, flagValues);
+        for (int i = 0; i < scores.length; i++) {
+            if ((scorePresence & (1L << i)) != 0) {
+                // zigzag编码，负数也只占少量字节
+                writeVarint(out, ((scores[i] << 1) ^ (scores[i] >> 31)) & 0xFFFFFFFFL);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static void decode(byte[] bin, Map<String, Object> details) {
+        if (bin.length == 0 || bin[0] != VERSION) {
+            throw new IllegalArgumentException("不支持的评分明细编码版本: " + (bin.length == 0 ? "空" : bin[0]));
+        }
+        int[] position = {1};
+        long scorePresence = readVarint(bin, position);
+        long flagPresence = readVarint(bin, position);
+        long flagValues = readVarint(bin, position);
+        for (int i = 0; i < SCORE_KEYS.size(); i++) {
+            if ((scorePresence & (1L << i)) != 0) {
+                int zigzag = (int) readVarint(bin, position);
+                details.put(SCORE_KEYS.get(i), (zigzag >>> 1) ^ -(zigzag & 1));
+            }
+        }
+        for (int i = 0; i < FLAG_KEYS.size(); i++) {
+            if ((flagPresence & (1L << i)) != 0) {
+                details.put(FLAG_KEYS.get(i), (flagValues & (1L << i)) != 0);
+            }
+        }
+    }
+
+    String toJson(Map<String, Object> map) {
+        try {
+            return objectMapper.writeValueAsString(map);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize score details", e);
+            return null;
+        }
+    }
+
+    private Map<String, Object> parse(String json) {
+        try {
+            return objectMapper.readValue(json, MAP_TYPE);
+        } catch (JsonProcessingException e) {
+            log.warn("无法解析评分明细: {}", e.getOriginalMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] bin, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= bin.length) {
+                throw new IllegalArgumentException("评分明细编码不完整");
+            }
+            byte b = bin[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("评分明细编码格式错误");
+    }
+
+    private static Map<String, Integer> indexOf(List<String> keys) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            index.put(keys.get(i), i);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.adtraffic.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把旧记录score_details列中的JSON明细分批转换为紧凑编码（score_details_bin + score_details_extra），
+ * 转换后清空score_details。按id顺序推进，每批一个短事务，全部转换完成后不再查询
+ */
+@Service
+@Slf4j
+public class ScoreDetailsMigrationService {
+
+    private static final String SELECT_SQL =
+            "SELECT id, score_details FROM traffic_score_records " +
+            "WHERE id > ? AND score_details IS NOT NULL AND score_details_bin IS NULL ORDER BY id LIMIT ?";
+
+    private static final String UPDATE_SQL =
+            "UPDATE traffic_score_records SET score_details_bin = ?, score_details_extra = ?, score_details = NULL " +
+            "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScoreDetailsCodec scoreDetailsCodec;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    // 已检查过的最大id，无法解析的记录会被跳过，不会反复读取
+    private volatile long lastId;
+    private volatile boolean completed;
+    private final AtomicLong migratedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+
+    public ScoreDetailsMigrationService(
+            JdbcTemplate jdbcTemplate,
+            ScoreDetailsCodec scoreDetailsCodec,
+            @Value("${score-details.migration.enabled:true}") boolean enabled,
+            @Value("${score-details.migration.batch-size:1000}") int batchSize,
+            @Value("${score-details.migration.max-batches-per-run:50}") int maxBatchesPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.scoreDetailsCodec = scoreDetailsCodec;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+    }
+
+    @Scheduled(fixedDelayString = "${score-details.migration.interval-ms:60000}",
+               initialDelayString = "${score-details.migration.initial-delay-ms:30000}")
+    public void migrate() {
+        if (!enabled || completed) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long migrated = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            List<Object[]> updates = new ArrayList<>(batchSize);
+            int[] read = new int[1];
+            jdbcTemplate.query(SELECT_SQL, rs -> {
+                long id = rs.getLong(1);
+                lastId = id;
+                read[0]++;
+                String json = rs.getString(2);
+                Map<String, Object> details = scoreDetailsCodec.read(null, null, json);
+                if (details.isEmpty() && !json.isBlank() && !json.trim().equals("{}")) {
+                    // 无法解析，保留原JSON
+                    skippedCount.incrementAndGet();
+                    return;
+                }
+                Map<String, Object> extra = new LinkedHashMap<>();
+                byte[] bin = ScoreDetailsCodec.encode(details, extra);
+                updates.add(new Object[]{bin, extra.isEmpty() ? null : scoreDetailsCodec.toJson(extra), id});
+            }, lastId, batchSize);
+
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+                migrated += updates.size();
+                migratedCount.addAndGet(updates.size());
+            }
+            if (read[0] < batchSize) {
+                completed = true;
+                log.info("评分明细迁移完成: 共转换 {} 条，跳过无法解析的 {} 条", migratedCount.get(), skippedCount.get());
+                break;
+            }
+        }
+        if (migrated > 0) {
+            log.info("评分明细迁移: 本次转换 {} 条，耗时 {}ms", migrated, System.currentTimeMillis() - started);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("completed", completed);
+        stats.put("lastId", lastId);
+        stats.put("migrated", migratedCount.get());
+        stats.put("skipped", skippedCount.get());
+        return stats;
+    }
+}
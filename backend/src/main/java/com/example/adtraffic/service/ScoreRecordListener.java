@@ -0,0 +1,13 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.model.TrafficScoreRecord;
+import java.util.List;
+
+/**
+ * 评分记录写入数据库（事务提交）后的回调，由ScoreRecordWriter在写入线程中调用，
+ * 实现应尽快返回，不应再访问数据库；records在回调返回后可能被复用，不要保存该列表
+ */
+public interface ScoreRecordListener {
+
+    void onRecordsWritten(List<TrafficScoreRecord> records);
+}
@@ -0,0 +1,422 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.model.TrafficScoreRecord;
+import com.example.adtraffic.repository.TrafficScoreRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 评分记录异步批量写入（write-behind）：
+ * 请求线程只把记录放入有界队列，由后台线程按批量大小或时间间隔合并为一次JDBC批量插入。
+ * 队列长度、各计数和每次写入的耗时同时以Micrometer指标输出
+ */
+@Service
+@Slf4j
+public class ScoreRecordWriter implements SmartLifecycle {
+
+    public enum OverflowPolicy {
+        BLOCK,          // 阻塞等待，超时后丢弃
+        DROP_NEWEST,    // 丢弃新记录
+        DROP_OLDEST,    // 丢弃队列中最旧的记录
+        CALLER_RUNS     // 由调用线程同步写入
+    }
+
+    private static final String INSERT_SQL =
+            "INSERT INTO traffic_score_records (ip, user_agent, total_score, ip_score, click_score, " +
+            "session_score, device_score, conclusion, score_details_bin, score_details_extra, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String[] ID_COLUMN = {"id"};
+
+    private final TrafficScoreRepository scoreRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<TrafficScoreRecord> queue;
+    private final ObjectProvider<ScoreRecordListener> listenerProvider;
+    private volatile List<ScoreRecordListener> listeners;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final Timer batchWriteTimer;
+    private final Timer singleWriteTimer;
+
+    private volatile boolean running;
+    private Thread drainer;
+
+    public ScoreRecordWriter(
+            TrafficScoreRepository scoreRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${persistence.write-behind.enabled:true}") boolean enabled,
+            @Value("${persistence.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${persistence.write-behind.batch-size:500}") int batchSize,
+            @Value("${persistence.write-behind.flush-interval-ms:200}") long flushIntervalMillis,
+            @Value("${persistence.write-behind.offer-timeout-ms:50}") long offerTimeoutMillis,
+            @Value("${persistence.write-behind.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+            ObjectProvider<ScoreRecordListener> listenerProvider,
+            MeterRegistry meterRegistry) {
+        this.scoreRepository = scoreRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.listenerProvider = listenerProvider;
+
+        this.batchWriteTimer = writeTimer(meterRegistry, "batch");
+        this.singleWriteTimer = writeTimer(meterRegistry, "single");
+        Gauge.builder("adtraffic.score-records.queue.size", queue, BlockingQueue::size)
+                .description("等待写入的评分记录数")
+                .register(meterRegistry);
+        recordCounter(meterRegistry, "submitted", submittedCount);
+        recordCounter(meterRegistry, "written", writtenCount);
+        recordCounter(meterRegistry, "dropped", droppedCount);
+        recordCounter(meterRegistry, "failed", failedCount);
+    }
+
+    private static Timer writeTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("adtraffic.score-records.write")
+                .description("评分记录写入数据库的耗时，batch为一次JDBC批量插入")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private static void recordCounter(MeterRegistry meterRegistry, String outcome, AtomicLong count) {
+        FunctionCounter.builder("adtraffic.score-records", count, AtomicLong::get)
+                .description("评分记录数")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交一条评分记录，不等待数据库写入完成
+     */
+    public void submit(TrafficScoreRecord record) {
+        submittedCount.incrementAndGet();
+        if (!enabled || !running) {
+            writeSynchronously(record);
+            return;
+        }
+
+        if (queue.offer(record)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    if (queue.offer(record, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                drop(record);
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(record)) {
+                    TrafficScoreRecord oldest = queue.poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                }
+                break;
+            case CALLER_RUNS:
+                writeSynchronously(record);
+                break;
+            case DROP_NEWEST:
+            default:
+                drop(record);
+                break;
+        }
+    }
+
+    /**
+     * 在一个事务中同步批量写入多条记录（批量评分接口使用），失败时抛出异常，全部回滚
+     */
+    public void writeBatch(List<TrafficScoreRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        submittedCount.addAndGet(records.size());
+        try {
+            insertBatch(records);
+        } catch (RuntimeException e) {
+            failedCount.addAndGet(records.size());
+            throw e;
+        }
+    }
+
+    /**
+     * 写入统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("overflowPolicy", overflowPolicy);
+        stats.put("queueSize", queue.size());
+        stats.put("queueRemainingCapacity", queue.remainingCapacity());
+        stats.put("submitted", submittedCount.get());
+        stats.put("written", writtenCount.get());
+        stats.put("dropped", droppedCount.get());
+        stats.put("failed", failedCount.get());
+        stats.put("batches", batchCount.get());
+        return stats;
+    }
+
+    private void drop(TrafficScoreRecord record) {
+        long dropped = droppedCount.incrementAndGet();
+        if (dropped % 1000 == 1) {
+            log.warn("评分记录写入队列已满，已丢弃 {} 条记录 (最近一条IP: {})", dropped, record.getIp());
+        }
+    }
+
+    private void writeSynchronously(TrafficScoreRecord record) {
+        long started = System.nanoTime();
+        try {
+            scoreRepository.save(record);
+            writtenCount.incrementAndGet();
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            log.error("Failed to save traffic score record", e);
+            return;
+        } finally {
+            singleWriteTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        notifyListeners(List.of(record));
+    }
+
+    /**
+     * 写入成功后通知监听器，监听器出错不影响写入结果
+     */
+    private void notifyListeners(List<TrafficScoreRecord> records) {
+        List<ScoreRecordListener> current = listeners;
+        if (current == null) {
+            current = listenerProvider.orderedStream().toList();
+            listeners = current;
+        }
+        for (ScoreRecordListener listener : current) {
+            try {
+                listener.onRecordsWritten(records);
+            } catch (Exception e) {
+                log.warn("评分记录监听器 {} 处理出错", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private void drainLoop() {
+        List<TrafficScoreRecord> batch = new ArrayList<>(batchSize);
+        long firstPendingAt = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                long waitMillis = batch.isEmpty()
+                        ? flushIntervalMillis
+                        : Math.max(1, firstPendingAt + flushIntervalMillis - System.currentTimeMillis());
+                TrafficScoreRecord record = queue.poll(waitMillis, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    if (batch.isEmpty()) {
+                        firstPendingAt = System.currentTimeMillis();
+                    }
+                    batch.add(record);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (batch.size() >= batchSize
+                    || (!batch.isEmpty() && System.currentTimeMillis() - firstPendingAt >= flushIntervalMillis)) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * 批量写入；因个别记录违反约束（如ip为空、字段超长）失败时逐条重试，只丢弃出错的记录
+     */
+    private void flush(List<TrafficScoreRecord> batch) {
+        try {
+            insertBatch(batch);
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                failedCount.incrementAndGet();
+                log.error("写入评分记录失败 (IP: {})", batch.get(0).getIp(), e);
+                return;
+            }
+            log.warn("批量写入 {} 条评分记录违反约束，逐条重试: {}", batch.size(), e.getMostSpecificCause().getMessage());
+            insertEach(batch);
+        } catch (Exception e) {
+            failedCount.addAndGet(batch.size());
+            log.error("批量写入 {} 条评分记录失败", batch.size(), e);
+        }
+    }
+
+    private void insertEach(List<TrafficScoreRecord> batch) {
+        List<TrafficScoreRecord> written = new ArrayList<>(batch.size());
+        for (TrafficScoreRecord record : batch) {
+            long started = System.nanoTime();
+            try {
+                executeBatch(List.of(record));
+                written.add(record);
+            } catch (Exception e) {
+                failedCount.incrementAndGet();
+                log.error("写入评分记录失败 (IP: {}): {}", record.getIp(), e.getMessage());
+            } finally {
+                singleWriteTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+        writtenCount.addAndGet(written.size());
+        if (!written.isEmpty()) {
+            notifyListeners(written);
+        }
+    }
+
+    private void insertBatch(List<TrafficScoreRecord> batch) {
+        long started = System.nanoTime();
+        try {
+            executeBatch(batch);
+        } finally {
+            batchWriteTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        writtenCount.addAndGet(batch.size());
+        batchCount.incrementAndGet();
+        log.debug("批量写入 {} 条评分记录", batch.size());
+        notifyListeners(batch);
+    }
+
+    /**
+     * 批量插入并取回自增id写回记录，监听器收到的记录与数据库中的一致
+     */
+    private void executeBatch(List<TrafficScoreRecord> batch) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, ID_COLUMN),
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                setRecord(ps, batch.get(i));
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return batch.size();
+                            }
+                        }, keyHolder));
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < batch.size() && i < keys.size(); i++) {
+            Object id = keys.get(i).values().stream().findFirst().orElse(null);
+            if (id instanceof Number) {
+                batch.get(i).setId(((Number) id).longValue());
+            }
+        }
+    }
+
+    private static void setRecord(PreparedStatement ps, TrafficScoreRecord record) throws SQLException {
+        ps.setString(1, record.getIp());
+        ps.setString(2, record.getUserAgent());
+        ps.setInt(3, record.getTotalScore());
+        setNullableInt(ps, 4, record.getIpScore());
+        setNullableInt(ps, 5, record.getClickScore());
+        setNullableInt(ps, 6, record.getSessionScore());
+        setNullableInt(ps, 7, record.getDeviceScore());
+        ps.setString(8, record.getConclusion());
+        ps.setBytes(9, record.getScoreDetailsBin());
+        ps.setString(10, record.getScoreDetailsExtra());
+        ps.setTimestamp(11, Timestamp.valueOf(record.getCreatedAt()));
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("评分记录异步写入已关闭，使用同步写入");
+            return;
+        }
+        running = true;
+        drainer = new Thread(this::drainLoop, "score-record-writer");
+        drainer.start();
+        log.info("评分记录异步写入已启动 (批量大小: {}, 刷新间隔: {}ms, 溢出策略: {})",
+                batchSize, flushIntervalMillis, overflowPolicy);
+    }
+
+    @Override
+    public void stop() {
+        if (drainer == null) {
+            return;
+        }
+        // 不中断后台线程，避免打断进行中的JDBC批量写入；poll超时后线程会自行退出
+        running = false;
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 停止期间仍可能有请求线程写入，这里兜底同步写完
+        List<TrafficScoreRecord> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+        log.info("评分记录异步写入已停止，累计写入 {} 条", writtenCount.get());
+        drainer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // 晚于Web服务器停止，保证停止接收请求后再清空队列
+        return 0;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.model.TrafficData;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Component;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 批量读取TrafficData：支持JSON数组、NDJSON（每行一个JSON对象）以及gzip压缩的请求体。
+ * 单条数据格式错误只影响该条，通过handler按输入顺序回调
+ */
+@Component
+public class TrafficDataBatchReader {
+
+    public interface ItemHandler {
+        void item(int index, TrafficData data);
+
+        void error(int index, String message);
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader trafficDataReader;
+
+    public TrafficDataBatchReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.trafficDataReader = objectMapper.readerFor(TrafficData.class);
+    }
+
+    /**
+     * 读取JSON数组，返回读取的条数；数组本身语法错误时抛出JsonProcessingException。
+     * 超过maxItems后停止读取并抛出BatchTooLargeException
+     */
+    public int readArray(InputStream input, int maxItems, ItemHandler handler) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "请求体应为JSON数组");
+            }
+            int index = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new JsonParseException(parser, "JSON数组不完整");
+                }
+                checkLimit(index, maxItems);
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    handler.error(index++, "元素不是JSON对象");
+                    continue;
+                }
+                // 先读成树再绑定，字段类型错误时解析器仍停在该元素末尾，不影响后续元素
+                JsonNode node = parser.readValueAsTree();
+                try {
+                    handler.item(index, trafficDataReader.readValue(node));
+                } catch (IOException e) {
+                    handler.error(index, describe(e));
+                }
+                index++;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 读取NDJSON，空行忽略，返回读取的条数
+     */
+    public int readNdjson(InputStream input, int maxItems, ItemHandler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        int index = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            checkLimit(index, maxItems);
+            try {
+                handler.item(index, trafficDataReader.readValue(line));
+            } catch (IOException e) {
+                handler.error(index, describe(e));
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 流式读取连续的JSON对象（NDJSON或以空白分隔的多个对象），边读边绑定并回调，
+     * 不构建中间树，也不按行缓冲。字段类型错误只跳过该条；
+     * JSON语法错误之后无法定位下一条，抛出JsonProcessingException，此前的数据已回调
+     */
+    public int readStream(InputStream input, int maxItems, ItemHandler handler) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(input)) {
+            int index = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                checkLimit(index, maxItems);
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    handler.error(index++, "元素不是JSON对象");
+                    continue;
+                }
+                TrafficData data;
+                try {
+                    data = trafficDataReader.readValue(parser);
+                } catch (JsonMappingException e) {
+                    skipToRoot(parser);
+                    handler.error(index++, describe(e));
+                    continue;
+                }
+                handler.item(index++, data);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 按Content-Encoding解压请求体，支持gzip，其他编码抛出IOException
+     */
+    public static InputStream decode(InputStream input, String contentEncoding) throws IOException {
+        if (contentEncoding == null || contentEncoding.isBlank() || contentEncoding.equalsIgnoreCase("identity")) {
+            return input;
+        }
+        String encoding = contentEncoding.trim().toLowerCase();
+        if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+            return new GZIPInputStream(input, 8192);
+        }
+        throw new UnsupportedEncodingException(contentEncoding);
+    }
+
+    /**
+     * 绑定失败后跳过当前对象的剩余部分，解析器停在该对象的结束符上
+     */
+    private static void skipToRoot(JsonParser parser) throws IOException {
+        while (!parser.getParsingContext().inRoot()) {
+            if (parser.nextToken() == null) {
+                return;
+            }
+        }
+    }
+
+    private static void checkLimit(int index, int maxItems) {
+        if (maxItems > 0 && index >= maxItems) {
+            throw new BatchTooLargeException(maxItems);
+        }
+    }
+
+    private static String describe(IOException e) {
+        if (e instanceof JsonProcessingException) {
+            return "无法解析: " + ((JsonProcessingException) e).getOriginalMessage();
+        }
+        return "无法解析: " + e.getMessage();
+    }
+
+    /**
+     * 批量条数超过上限
+     */
+    public static class BatchTooLargeException extends RuntimeException {
+        public BatchTooLargeException(int maxItems) {
+            super("单次最多提交 " + maxItems + " 条数据");
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.model.TrafficScoreRecord;
+import com.example.adtraffic.repository.TrafficScoreRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 流量统计：评分记录写入后增量更新各结论的累计数量，以及按分钟、按小时的汇总
+ * （数量、总分分布、各维度平均分），查询统计时不再对全表GROUP BY。
+ * 启动时从数据库初始化，之后由定时任务与数据库对账
+ */
+@Service
+@Slf4j
+public class TrafficStatisticsService implements ScoreRecordListener, InitializingBean {
+
+    // 总分分布按10分一档，90-100合并为最后一档
+    private static final int HISTOGRAM_BINS = 10;
+
+    private static final String BACKFILL_SQL =
+            "SELECT created_at, total_score, ip_score, click_score, session_score, device_score, conclusion " +
+            "FROM traffic_score_records WHERE created_at >= ?";
+
+    private final TrafficScoreRepository scoreRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int backfillMinutes;
+
+    private final Map<String, LongAdder> conclusionCounts = new ConcurrentHashMap<>();
+    private final RollupSeries minuteRollups;
+    private final RollupSeries hourRollups;
+    private volatile Map<String, Object> lastReconciliation = Collections.emptyMap();
+
+    public TrafficStatisticsService(
+            TrafficScoreRepository scoreRepository,
+            JdbcTemplate jdbcTemplate,
+            @Value("${statistics.rollup.minute-retention:180}") int minuteRetention,
+            @Value("${statistics.rollup.hour-retention:168}") int hourRetention,
+            @Value("${statistics.rollup.backfill-minutes:60}") int backfillMinutes) {
+        this.scoreRepository = scoreRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.backfillMinutes = backfillMinutes;
+        this.minuteRollups = new RollupSeries(60, minuteRetention);
+        this.hourRollups = new RollupSeries(3600, hourRetention);
+    }
+
+    /**
+     * 写入线程启动前初始化：结论计数做一次全表统计，汇总从最近backfillMinutes分钟的记录回填
+     */
+    @Override
+    public void afterPropertiesSet() {
+        long started = System.currentTimeMillis();
+        for (Object[] stat : scoreRepository.countByConclusion()) {
+            counter((String) stat[0]).add((Long) stat[1]);
+        }
+
+        int backfilled = 0;
+        if (backfillMinutes > 0) {
+            LocalDateTime since = LocalDateTime.now().minusMinutes(backfillMinutes);
+            int[] rows = new int[1];
+            jdbcTemplate.query(BACKFILL_SQL, rs -> {
+                Timestamp createdAt = rs.getTimestamp(1);
+                if (createdAt == null) {
+                    return;
+                }
+                long second = createdAt.toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+                int totalScore = rs.getInt(2);
+                int ipScore = rs.getInt(3);
+                int clickScore = rs.getInt(4);
+                int sessionScore = rs.getInt(5);
+                int deviceScore = rs.getInt(6);
+                String conclusion = rs.getString(7);
+                minuteRollups.add(second, totalScore, ipScore, clickScore, sessionScore, deviceScore, conclusion);
+                hourRollups.add(second, totalScore, ipScore, clickScore, sessionScore, deviceScore, conclusion);
+                rows[0]++;
+            }, Timestamp.valueOf(since));
+            backfilled = rows[0];
+        }
+        log.info("流量统计初始化完成: 结论计数 {}, 回填最近 {} 分钟的 {} 条记录, 耗时 {}ms",
+                getConclusionCounts(), backfillMinutes, backfilled, System.currentTimeMillis() - started);
+    }
+
+    @Override
+    public void onRecordsWritten(List<TrafficScoreRecord> records) {
+        for (TrafficScoreRecord record : records) {
+            counter(record.getConclusion()).increment();
+            LocalDateTime createdAt = record.getCreatedAt() != null ? record.getCreatedAt() : LocalDateTime.now();
+            long second = createdAt.toEpochSecond(ZoneOffset.UTC);
+            int totalScore = record.getTotalScore();
+            int ipScore = valueOf(record.getIpScore());
+            int clickScore = valueOf(record.getClickScore());
+            int sessionScore = valueOf(record.getSessionScore());
+            int deviceScore = valueOf(record.getDeviceScore());
+            minuteRollups.add(second, totalScore, ipScore, clickScore, sessionScore, deviceScore, record.getConclusion());
+            hourRollups.add(second, totalScore, ipScore, clickScore, sessionScore, deviceScore, record.getConclusion());
+        }
+    }
+
+    /**
+     * 各结论的累计数量
+     */
+    public Map<String, Long> getConclusionCounts() {
+        Map<String, Long> result = new HashMap<>();
+        conclusionCounts.forEach((conclusion, count) -> {
+            long value = count.sum();
+            if (value > 0) {
+                result.put(conclusion, value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 最近limit个时间段的汇总，按时间从早到晚排列，没有记录的时间段数量为0
+     */
+    public List<Map<String, Object>> getRollups(String granularity, int limit) {
+        RollupSeries series = "hour".equalsIgnoreCase(granularity) ? hourRollups : minuteRollups;
+        long currentSecond = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        return series.snapshot(currentSecond, limit);
+    }
+
+    public Map<String, Object> getLastReconciliation() {
+        return lastReconciliation;
+    }
+
+    /**
+     * 与数据库对账：重新统计各结论数量并修正累计计数。
+     * 统计期间新写入的记录保留在计数中，若已包含在统计结果里会暂时多计，下一次对账修正
+     */
+    @Scheduled(fixedDelayString = "${statistics.reconcile.interval-ms:3600000}",
+               initialDelayString = "${statistics.reconcile.interval-ms:3600000}")
+    public void reconcile() {
+        long started = System.currentTimeMillis();
+        Map<String, Long> before = getConclusionCounts();
+        Map<String, Long> database = new HashMap<>();
+        for (Object[] stat : scoreRepository.countByConclusion()) {
+            database.merge(normalize((String) stat[0]), (Long) stat[1], Long::sum);
+        }
+
+        Map<String, Long> drift = new HashMap<>();
+        Set<String> conclusions = new HashSet<>(database.keySet());
+        conclusions.addAll(before.keySet());
+        for (String conclusion : conclusions) {
+            long difference = database.getOrDefault(conclusion, 0L) - before.getOrDefault(conclusion, 0L);
+            if (difference != 0) {
+                counter(conclusion).add(difference);
+                drift.put(conclusion, difference);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("reconciledAt", LocalDateTime.now());
+        result.put("database", database);
+        result.put("drift", drift);
+        result.put("elapsedMillis", System.currentTimeMillis() - started);
+        lastReconciliation = result;
+        if (drift.isEmpty()) {
+            log.info("流量统计对账完成，计数与数据库一致，耗时 {}ms", result.get("elapsedMillis"));
+        } else {
+            log.warn("流量统计对账修正了计数偏差: {}", drift);
+        }
+    }
+
+    private LongAdder counter(String conclusion) {
+        return conclusionCounts.computeIfAbsent(normalize(conclusion), key -> new LongAdder());
+    }
+
+    private static String normalize(String conclusion) {
+        return conclusion == null ? "未知" : conclusion;
+    }
+
+    private static int valueOf(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * 固定数量的时间段汇总，按时间段序号取模复用槽位，超出保留范围的旧时间段被覆盖
+     */
+    private static final class RollupSeries {
+        private final long unitSeconds;
+        private final Bucket[] buckets;
+
+        RollupSeries(long unitSeconds, int retention) {
+            this.unitSeconds = unitSeconds;
+            this.buckets = new Bucket[Math.max(1, retention)];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        void add(long epochSecond, int totalScore, int ipScore, int clickScore,
+                 int sessionScore, int deviceScore, String conclusion) {
+            long unit = Math.floorDiv(epochSecond, unitSeconds);
+            Bucket bucket = buckets[(int) Math.floorMod(unit, (long) buckets.length)];
+            synchronized (bucket) {
+                if (bucket.unit < unit) {
+                    bucket.reset(unit);
+                } else if (bucket.unit > unit) {
+                    // 槽位已被更新的时间段占用，该记录超出保留范围
+                    return;
+                }
+                bucket.count++;
+                bucket.histogram[Math.min(Math.max(totalScore, 0) / 10, HISTOGRAM_BINS - 1)]++;
+                bucket.totalScoreSum += totalScore;
+                bucket.ipScoreSum += ipScore;
+                bucket.clickScoreSum += clickScore;
+                bucket.sessionScoreSum += sessionScore;
+                bucket.deviceScoreSum += deviceScore;
+                bucket.conclusions.merge(normalize(conclusion), 1L, Long::sum);
+            }
+        }
+
+        List<Map<String, Object>> snapshot(long currentSecond, int limit) {
+            long currentUnit = Math.floorDiv(currentSecond, unitSeconds);
+            int count = Math.max(0, Math.min(limit, buckets.length));
+            List<Map<String, Object>> result = new ArrayList<>(count);
+            for (long unit = currentUnit - count + 1; unit <= currentUnit; unit++) {
+                Bucket bucket = buckets[(int) Math.floorMod(unit, (long) buckets.length)];
+                synchronized (bucket) {
+                    result.add(bucket.unit == unit ? bucket.toMap(unitSeconds) : Bucket.emptyMap(unit, unitSeconds));
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class Bucket {
+        private long unit = Long.MIN_VALUE;
+        private long count;
+        private final long[] histogram = new long[HISTOGRAM_BINS];
+        private long totalScoreSum;
+        private long ipScoreSum;
+        private long clickScoreSum;
+        private long sessionScoreSum;
+        private long deviceScoreSum;
+        private final Map<String, Long> conclusions = new HashMap<>(4);
+
+        void reset(long unit) {
+            this.unit = unit;
+            count = 0;
+            Arrays.fill(histogram, 0);
+            totalScoreSum = 0;
+            ipScoreSum = 0;
+            clickScoreSum = 0;
+            sessionScoreSum = 0;
+            deviceScoreSum = 0;
+            conclusions.clear();
+        }
+
+        Map<String, Object> toMap(long unitSeconds) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("start", LocalDateTime.ofEpochSecond(unit * unitSeconds, 0, ZoneOffset.UTC));
+            map.put("count", count);
+            map.put("histogram", histogram.clone());
+            map.put("avgTotalScore", average(totalScoreSum));
+            map.put("avgIpScore", average(ipScoreSum));
+            map.put("avgClickScore", average(clickScoreSum));
+            map.put("avgSessionScore", average(sessionScoreSum));
+            map.put("avgDeviceScore", average(deviceScoreSum));
+            map.put("conclusions", new HashMap<>(conclusions));
+            return map;
+        }
+
+        private double average(long sum) {
+            return count == 0 ? 0 : Math.round(sum * 100.0 / count) / 100.0;
+        }
+
+        static Map<String, Object> emptyMap(long unit, long unitSeconds) {
+            Bucket empty = new Bucket();
+            empty.unit = unit;
+            return empty.toMap(unitSeconds);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.model.ScoreResult;
+import com.example.adtraffic.model.TrafficScoreRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 评分结果的实时推送（Server-Sent Events）：评分记录写入数据库后，把记录摘要和评分结果推送给订阅者，
+ * 代替仪表盘轮询记录列表。过滤条件（结论、分数范围）在服务端判断，每条记录只序列化一次。
+ * 每个订阅者有固定容量的缓冲区，满时丢弃最旧的事件并计数；发送在独立的线程池中进行，
+ * 慢客户端不会阻塞评分记录写入线程
+ */
+@Service
+@Slf4j
+public class TrafficStreamService implements ScoreRecordListener {
+
+    public static final String EVENT_NAME = "traffic-scored";
+
+    // 心跳事件，只在缓冲区为空时加入，保持连接并及时发现已断开的客户端
+    private static final StreamEvent HEARTBEAT = new StreamEvent(null, null);
+
+    private final ScoreDetailsCodec scoreDetailsCodec;
+    private final IpEnrichmentService ipEnrichmentService;
+    private final ObjectMapper objectMapper;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor sender;
+
+    // 订阅很少变化，每批记录都要遍历
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // 已占用的订阅名额，订阅前先占用，保证并发订阅时不超过上限；订阅结束时释放
+    private final AtomicInteger reservedSlots = new AtomicInteger();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    public TrafficStreamService(
+            ScoreDetailsCodec scoreDetailsCodec,
+            IpEnrichmentService ipEnrichmentService,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${traffic-stream.max-subscribers:100}") int maxSubscribers,
+            @Value("${traffic-stream.buffer-size:256}") int bufferSize,
+            @Value("${traffic-stream.sender-threads:2}") int senderThreads,
+            @Value("${traffic-stream.timeout-ms:1800000}") long timeoutMillis) {
+        this.scoreDetailsCodec = scoreDetailsCodec;
+        this.ipEnrichmentService = ipEnrichmentService;
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = Math.max(1, bufferSize);
+        this.timeoutMillis = timeoutMillis;
+        // 每个订阅者同时最多排队一个发送任务，队列长度不超过订阅者数
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "traffic-stream-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.sender.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("adtraffic.traffic-stream.subscribers", subscribers, List::size)
+                .description("实时推送的订阅者数")
+                .register(meterRegistry);
+        streamCounter(meterRegistry, "sent", sentCount);
+        streamCounter(meterRegistry, "dropped", droppedCount);
+    }
+
+    private static void streamCounter(MeterRegistry meterRegistry, String outcome, AtomicLong count) {
+        FunctionCounter.builder("adtraffic.traffic-stream.events", count, AtomicLong::get)
+                .description("实时推送的事件数，dropped为缓冲区满时丢弃的")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 新建订阅，conclusion为null或空时不按结论过滤，分数范围包含两端。订阅者已达上限时返回null
+     */
+    public SseEmitter subscribe(String conclusion, int minScore, int maxScore) {
+        if (reservedSlots.incrementAndGet() > maxSubscribers) {
+            reservedSlots.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(subscriberIds.incrementAndGet(), emitter,
+                conclusion == null || conclusion.isEmpty() ? null : conclusion, minScore, maxScore);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        subscribers.add(subscriber);
+        // 立即发送一次心跳，客户端收到响应头即认为连接已建立
+        subscriber.offer(HEARTBEAT);
+        log.debug("实时推送订阅 #{} (结论: {}, 分数: {}-{})", subscriber.id, subscriber.conclusion, minScore, maxScore);
+        return emitter;
+    }
+
+    @Override
+    public void onRecordsWritten(List<TrafficScoreRecord> records) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (TrafficScoreRecord record : records) {
+            if (record.getId() == null) {
+                continue;
+            }
+            // 只在有订阅者需要时才生成事件，生成后所有订阅者共用
+            StreamEvent event = null;
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.matches(record)) {
+                    continue;
+                }
+                if (event == null) {
+                    event = toEvent(record);
+                    if (event == null) {
+                        break;
+                    }
+                }
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * 事件内容为记录摘要（与记录列表的格式相同）和评分结果（与评分接口返回的格式相同），序列化失败时返回null
+     */
+    private StreamEvent toEvent(TrafficScoreRecord record) {
+        ScoreResult result = new ScoreResult();
+        result.setTotalScore(record.getTotalScore());
+        result.setConclusion(record.getConclusion());
+        result.setDetails(scoreDetailsCodec.read(record));
+        result.setIpGeoInfo(ipEnrichmentService.enrich(record.getIp()).getGeoInfo());
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("record", new RecentRecordsCache.WrittenRecord(record));
+        payload.put("result", result);
+        try {
+            return new StreamEvent(Long.toString(record.getId()), objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            log.warn("无法序列化推送事件 (记录 {}): {}", record.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${traffic-stream.heartbeat-interval-ms:15000}",
+            initialDelayString = "${traffic-stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offerHeartbeat();
+        }
+    }
+
+    /**
+     * 订阅者数、发送和丢弃的事件数，以及每个订阅者的过滤条件和缓冲情况
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("bufferSize", bufferSize);
+        stats.put("sent", sentCount.get());
+        stats.put("dropped", droppedCount.get());
+        List<Map<String, Object>> details = new ArrayList<>();
+        for (Subscriber subscriber : subscribers) {
+            details.add(subscriber.getStatistics());
+        }
+        stats.put("subscriberDetails", details);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+            subscriber.close();
+        }
+        sender.shutdown();
+    }
+
+    /**
+     * 已序列化的事件，id为记录id，json为null表示心跳
+     */
+    private static final class StreamEvent {
+        private final String id;
+        private final String json;
+
+        StreamEvent(String id, String json) {
+            this.id = id;
+            this.json = json;
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+        private final long id;
+        private final SseEmitter emitter;
+        private final String conclusion;
+        private final int minScore;
+        private final int maxScore;
+        // 以下三项由this保护
+        private final ArrayDeque<StreamEvent> buffer = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        Subscriber(long id, SseEmitter emitter, String conclusion, int minScore, int maxScore) {
+            this.id = id;
+            this.emitter = emitter;
+            this.conclusion = conclusion;
+            this.minScore = minScore;
+            this.maxScore = maxScore;
+        }
+
+        boolean matches(TrafficScoreRecord record) {
+            int score = record.getTotalScore();
+            return score >= minScore && score <= maxScore
+                    && (conclusion == null || conclusion.equals(record.getConclusion()));
+        }
+
+        /**
+         * 加入缓冲区，满时丢弃最旧的事件；没有发送任务在执行时提交一个
+         */
+        void offer(StreamEvent event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                    dropped.incrementAndGet();
+                    droppedCount.incrementAndGet();
+                }
+                buffer.addLast(event);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            try {
+                sender.execute(this);
+            } catch (RejectedExecutionException e) {
+                // 应用正在停止
+                close();
+            }
+        }
+
+        void offerHeartbeat() {
+            synchronized (this) {
+                if (!buffer.isEmpty()) {
+                    return;
+                }
+            }
+            offer(HEARTBEAT);
+        }
+
+        /**
+         * 依次发送缓冲区中的事件直到为空；同一订阅者同时只有一个发送任务，保证顺序
+         */
+        @Override
+        public void run() {
+            while (true) {
+                StreamEvent event;
+                synchronized (this) {
+                    event = buffer.pollFirst();
+                    if (event == null || closed) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    if (event.json == null) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        emitter.send(SseEmitter.event().id(event.id).name(EVENT_NAME)
+                                .data(event.json, MediaType.APPLICATION_JSON));
+                        sent.incrementAndGet();
+                        sentCount.incrementAndGet();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // 客户端已断开或连接已结束
+                    log.debug("实时推送订阅 #{} 发送失败: {}", id, e.getMessage());
+                    close();
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                buffer.clear();
+            }
+            subscribers.remove(this);
+            reservedSlots.decrementAndGet();
+            log.debug("实时推送订阅 #{} 已结束，发送 {} 条，丢弃 {} 条", id, sent.get(), dropped.get());
+        }
+
+        Map<String, Object> getStatistics() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("id", id);
+            stats.put("conclusion", conclusion);
+            stats.put("minScore", minScore);
+            stats.put("maxScore", maxScore);
+            synchronized (this) {
+                stats.put("buffered", buffer.size());
+            }
+            stats.put("sent", sent.get());
+            stats.put("dropped", dropped.get());
+            return stats;
+        }
+    }
+}
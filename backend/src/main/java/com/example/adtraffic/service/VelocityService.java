@@ -0,0 +1,131 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.model.VelocitySnapshot;
+import com.example.adtraffic.model.VelocitySnapshot.Window;
+import com.example.adtraffic.util.IpRangeSet;
+import com.example.adtraffic.util.SlidingCountMinSketch;
+import com.example.adtraffic.util.SlidingDistinctSketch;
+import com.example.adtraffic.util.SlidingWindowSketch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 访问频率统计：按IP、网段和设备指纹统计1分钟/10分钟/1小时窗口内的请求数，
+ * 以及每个IP的不同User-Agent数、每个设备指纹的不同IP数。
+ * 基于按时间分桶的sketch，无锁写入，内存固定，读取开销与流量和key数量无关
+ */
+@Service
+public class VelocityService {
+
+    private final SlidingCountMinSketch[] ipRequests;
+    private final SlidingCountMinSketch[] subnetRequests;
+    private final SlidingCountMinSketch[] fingerprintRequests;
+    private final SlidingDistinctSketch[] ipUserAgents;
+    private final SlidingDistinctSketch[] fingerprintIps;
+    private final LongAdder recorded = new LongAdder();
+    private final int depth;
+    private final int countWidth;
+    private final int distinctWidth;
+
+    public VelocityService(
+            @Value("${velocity.sketch.depth:4}") int depth,
+            @Value("${velocity.sketch.count-width:16384}") int countWidth,
+            @Value("${velocity.sketch.distinct-width:8192}") int distinctWidth) {
+        this.depth = depth;
+        this.countWidth = countWidth;
+        this.distinctWidth = distinctWidth;
+        int windows = Window.values().length;
+        ipRequests = new SlidingCountMinSketch[windows];
+        subnetRequests = new SlidingCountMinSketch[windows];
+        fingerprintRequests = new SlidingCountMinSketch[windows];
+        ipUserAgents = new SlidingDistinctSketch[windows];
+        fingerprintIps = new SlidingDistinctSketch[windows];
+        for (Window window : Window.values()) {
+            int i = window.ordinal();
+            ipRequests[i] = countSketch(window);
+            subnetRequests[i] = countSketch(window);
+            fingerprintRequests[i] = countSketch(window);
+            ipUserAgents[i] = distinctSketch(window);
+            fingerprintIps[i] = distinctSketch(window);
+        }
+    }
+
+    /**
+     * 记录一次请求，返回包含本次请求在内的各窗口统计值
+     */
+    public VelocitySnapshot record(TrafficData data) {
+        long now = System.currentTimeMillis();
+        String ip = data.getIp() != null ? data.getIp() : "";
+        long ipHash = SlidingWindowSketch.hash(ip);
+        long subnetHash = subnetHash(ip);
+        long userAgentHash = SlidingWindowSketch.hash(data.getUserAgent() != null ? data.getUserAgent() : "");
+        String fingerprint = data.getDeviceFingerprint();
+        boolean hasFingerprint = fingerprint != null && !fingerprint.isEmpty();
+        long fingerprintHash = hasFingerprint ? SlidingWindowSketch.hash(fingerprint) : 0;
+
+        VelocitySnapshot snapshot = new VelocitySnapshot(hasFingerprint);
+        for (Window window : Window.values()) {
+            int i = window.ordinal();
+            ipRequests[i].add(ipHash, now);
+            subnetRequests[i].add(subnetHash, now);
+            ipUserAgents[i].add(ipHash, userAgentHash, now);
+            if (hasFingerprint) {
+                fingerprintRequests[i].add(fingerprintHash, now);
+                fingerprintIps[i].add(fingerprintHash, ipHash, now);
+            }
+            snapshot.set(window,
+                    ipRequests[i].estimate(ipHash, now),
+                    subnetRequests[i].estimate(subnetHash, now),
+                    hasFingerprint ? fingerprintRequests[i].estimate(fingerprintHash, now) : 0,
+                    ipUserAgents[i].estimate(ipHash, now),
+                    hasFingerprint ? fingerprintIps[i].estimate(fingerprintHash, now) : 0);
+        }
+        recorded.increment();
+        return snapshot;
+    }
+
+    public Map<String, Object> getStatistics() {
+        long countBytes = 0;
+        long distinctBytes = 0;
+        for (int i = 0; i < ipRequests.length; i++) {
+            countBytes += ipRequests[i].footprintBytes() + subnetRequests[i].footprintBytes()
+                    + fingerprintRequests[i].footprintBytes();
+            distinctBytes += ipUserAgents[i].footprintBytes() + fingerprintIps[i].footprintBytes();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("recorded", recorded.sum());
+        stats.put("depth", depth);
+        stats.put("countWidth", countWidth);
+        stats.put("distinctWidth", distinctWidth);
+        stats.put("memoryBytes", countBytes + distinctBytes);
+        return stats;
+    }
+
+    /**
+     * IPv4按/24、IPv6按/48划分网段，无法解析时按原字符串统计
+     */
+    private static long subnetHash(String ip) {
+        long ipv4 = IpRangeSet.parseIpv4(ip, 0, ip.length());
+        if (ipv4 >= 0) {
+            return SlidingWindowSketch.hash(ipv4 >>> 8);
+        }
+        long[] ipv6 = IpRangeSet.parseIpv6(ip);
+        if (ipv6 != null) {
+            // 高位取反，与IPv4网段区分
+            return SlidingWindowSketch.hash(~(ipv6[0] >>> 16));
+        }
+        return SlidingWindowSketch.hash(ip);
+    }
+
+    private SlidingCountMinSketch countSketch(Window window) {
+        return new SlidingCountMinSketch(window.getMillis(), window.getBuckets(), depth, countWidth);
+    }
+
+    private SlidingDistinctSketch distinctSketch(Window window) {
+        return new SlidingDistinctSketch(window.getMillis(), window.getBuckets(), depth, distinctWidth);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.adtraffic.service.audit;
+
+/**
+ * 审计事件类型。编号写入审计文件，已有类型的编号不能修改；
+ * 抽样比例由 audit.sampling.<key> 配置，未配置时使用默认比例
+ */
+public enum AuditEventType {
+
+    // 采集接口收到的一条流量数据：value为点击数，value2为鼠标移动数，文本为User-Agent
+    TRAFFIC_COLLECTED(1, "traffic-collected", 1.0),
+    // 一次评分结果：value为总分，value2为四个维度得分（各占一个字节），code为结论，文本为规则集
+    TRAFFIC_SCORED(2, "traffic-scored", 1.0),
+    // IP维度检查后未判定为代理：value为ASN，value2为标记位，文本为ASN组织名
+    IP_CHECKED(3, "ip-checked", 0.01),
+    // IP被判定为代理、数据中心、匿名网络或高风险国家：value为ASN，value2为标记位，文本为命中的关键词
+    IP_FLAGGED(4, "ip-flagged", 1.0);
+
+    private static final AuditEventType[] BY_CODE = new AuditEventType[256];
+
+    static {
+        for (AuditEventType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+    private final String key;
+    private final double defaultRate;
+
+    AuditEventType(int code, String key, double defaultRate) {
+        this.code = code;
+        this.key = key;
+        this.defaultRate = defaultRate;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public double getDefaultRate() {
+        return defaultRate;
+    }
+
+    /**
+     * 未知编号返回null
+     */
+    public static AuditEventType fromCode(int code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.adtraffic.service.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 以内存映射方式写入滚动的审计文件，只由审计写入线程调用。
+ * 每个文件创建时预分配为固定大小，第一条记录的位置是文件头，写满后创建下一个文件；
+ * 未写满部分保持为0，解码时遇到类型为0的记录即结束。超过保留数量的旧文件按文件名顺序删除
+ */
+@Slf4j
+final class AuditFileWriter {
+
+    static final String FILE_PREFIX = "audit-";
+    static final String FILE_SUFFIX = ".bin";
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path directory;
+    private final long fileSize;
+    private final int maxFiles;
+    private final byte[] header = new byte[AuditRecord.SIZE];
+    private MappedByteBuffer buffer;
+    private volatile Path currentFile;
+    private int fileSequence;
+
+    AuditFileWriter(Path directory, long fileSizeBytes, int maxFiles) {
+        this.directory = directory;
+        // 至少容纳文件头和一条记录，并按记录长度对齐
+        long records = Math.max(2, fileSizeBytes / AuditRecord.SIZE);
+        this.fileSize = Math.min(records * AuditRecord.SIZE, Integer.MAX_VALUE / AuditRecord.SIZE * AuditRecord.SIZE);
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    void write(byte[] source, int offset) throws IOException {
+        if (buffer == null || !buffer.hasRemaining()) {
+            roll();
+        }
+        buffer.put(source, offset, AuditRecord.SIZE);
+    }
+
+    /**
+     * 把已写入的页刷到磁盘。不调用时数据也已在页缓存中，进程崩溃不会丢失
+     */
+    void force() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    void close() {
+        force();
+        buffer = null;
+    }
+
+    Path getCurrentFile() {
+        return currentFile;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    private void roll() throws IOException {
+        force();
+        buffer = null;
+        Files.createDirectories(directory);
+        long now = System.currentTimeMillis();
+        Path file = directory.resolve(FILE_PREFIX + LocalDateTime.now().format(FILE_TIME)
+                + String.format("-%03d", fileSequence++ % 1000) + FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 映射在通道关闭后仍然有效
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        }
+        AuditRecord.header(header, now);
+        buffer.put(header);
+        currentFile = file;
+        log.debug("审计文件已切换到 {}", file);
+        deleteExpiredFiles();
+    }
+
+    private void deleteExpiredFiles() {
+        List<Path> files = listFiles(directory);
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            try {
+                Files.deleteIfExists(files.get(i));
+            } catch (IOException e) {
+                log.warn("无法删除过期的审计文件 {}: {}", files.get(i), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 目录中的审计文件，按文件名（即创建时间）排序
+     */
+    static List<Path> listFiles(Path directory) {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("无法列出审计文件目录 {}: {}", directory, e.getMessage());
+        }
+        Collections.sort(files);
+        return files;
+    }
+}
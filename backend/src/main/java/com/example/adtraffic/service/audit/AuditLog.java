@@ -0,0 +1,300 @@
+package com.example.adtraffic.service.audit;
+
+import com.example.adtraffic.model.IpEnrichment;
+import com.example.adtraffic.model.ScoreResult;
+import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.service.rules.ScoringRules;
+import com.example.adtraffic.util.LogSampler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 审计日志：记录采集的流量、评分结果和IP判定，供广告计费争议时追溯。
+ * 请求线程按事件类型抽样后把定长记录写入环形缓冲区，不格式化字符串、不分配对象、不等待I/O；
+ * 后台线程把记录顺序写入内存映射的滚动文件。缓冲区满时丢弃新记录并计数。
+ * 文件可用 AuditLogDecoder 离线解码
+ */
+@Service
+@Slf4j
+public class AuditLog implements SmartLifecycle {
+
+    // 没有待写入记录时写入线程的休眠时间
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int DRAIN_LIMIT = 1024;
+
+    private final boolean enabled;
+    private final AuditRingBuffer ring;
+    private final AuditFileWriter fileWriter;
+    private final long flushIntervalNanos;
+    private final LogSampler[] samplers;
+    private final AuditRingBuffer.RecordHandler recordHandler = this::writeRecord;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private volatile boolean running;
+    private boolean writeFailing;
+    private Thread writer;
+
+    public AuditLog(
+            Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${audit.enabled:true}") boolean enabled,
+            @Value("${audit.directory:audit}") String directory,
+            @Value("${audit.file-size-bytes:67108864}") long fileSizeBytes,
+            @Value("${audit.max-files:32}") int maxFiles,
+            @Value("${audit.ring-capacity:16384}") int ringCapacity,
+            @Value("${audit.flush-interval-ms:1000}") long flushIntervalMillis) {
+        this.enabled = enabled;
+        this.ring = new AuditRingBuffer(ringCapacity);
+        this.fileWriter = new AuditFileWriter(Paths.get(directory), fileSizeBytes, maxFiles);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+
+        AuditEventType[] types = AuditEventType.values();
+        this.samplers = new LogSampler[types.length];
+        for (AuditEventType type : types) {
+            double rate = environment.getProperty("audit.sampling." + type.getKey(), Double.class, type.getDefaultRate());
+            samplers[type.ordinal()] = new LogSampler(rate);
+        }
+
+        auditCounter(meterRegistry, "written", writtenCount);
+        auditCounter(meterRegistry, "dropped", droppedCount);
+        auditCounter(meterRegistry, "failed", failedCount);
+    }
+
+    private static void auditCounter(MeterRegistry meterRegistry, String outcome, AtomicLong count) {
+        FunctionCounter.builder("adtraffic.audit.records", count, AtomicLong::get)
+                .description("审计记录数")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 采集接口收到的流量数据
+     */
+    public void trafficCollected(TrafficData data) {
+        long sequence = claim(AuditEventType.TRAFFIC_COLLECTED);
+        if (sequence < 0) {
+            return;
+        }
+        byte[] slots = ring.slots();
+        int offset = ring.offset(sequence);
+        try {
+            AuditRecord.start(slots, offset, AuditEventType.TRAFFIC_COLLECTED, System.currentTimeMillis());
+            AuditRecord.ip(slots, offset, data.getIp());
+            AuditRecord.value(slots, offset, data.getClicks() != null ? data.getClicks().size() : 0);
+            AuditRecord.value2(slots, offset, data.getMouseMovements() != null ? data.getMouseMovements().size() : 0);
+            AuditRecord.text(slots, offset, data.getUserAgent());
+        } finally {
+            ring.publish(sequence);
+        }
+    }
+
+    /**
+     * 一次评分的结果，恶意IP直接判0分时各维度得分为0
+     */
+    public void trafficScored(String ip, ScoreResult result, String ruleSet,
+                              int ipScore, int clickScore, int sessionScore, int deviceScore,
+                              boolean malicious, boolean degraded) {
+        long sequence = claim(AuditEventType.TRAFFIC_SCORED);
+        if (sequence < 0) {
+            return;
+        }
+        byte[] slots = ring.slots();
+        int offset = ring.offset(sequence);
+        try {
+            AuditRecord.start(slots, offset, AuditEventType.TRAFFIC_SCORED, System.currentTimeMillis());
+            AuditRecord.ip(slots, offset, ip);
+            AuditRecord.value(slots, offset, result.getTotalScore());
+            AuditRecord.value2(slots, offset, packScore(ipScore) | packScore(clickScore) << 8
+                    | packScore(sessionScore) << 16 | packScore(deviceScore) << 24);
+            AuditRecord.code(slots, offset, conclusionCode(result.getConclusion()));
+            AuditRecord.flags(slots, offset, (malicious ? AuditRecord.FLAG_MALICIOUS : 0)
+                    | (degraded ? AuditRecord.FLAG_DEGRADED : 0));
+            AuditRecord.text(slots, offset, ruleSet);
+        } finally {
+            ring.publish(sequence);
+        }
+    }
+
+    /**
+     * IP维度的代理判定：判定为代理时记为IP_FLAGGED（文本为命中的关键词），否则记为IP_CHECKED（文本为ASN组织名）
+     */
+    public void ipChecked(IpEnrichment enrichment, boolean listedProxy, boolean proxy) {
+        AuditEventType type = proxy ? AuditEventType.IP_FLAGGED : AuditEventType.IP_CHECKED;
+        long sequence = claim(type);
+        if (sequence < 0) {
+            return;
+        }
+        byte[] slots = ring.slots();
+        int offset = ring.offset(sequence);
+        try {
+            AuditRecord.start(slots, offset, type, System.currentTimeMillis());
+            AuditRecord.ip(slots, offset, enrichment.getIp());
+            AuditRecord.value(slots, offset, enrichment.getAsnNumber() != null ? enrichment.getAsnNumber() : 0);
+            AuditRecord.value2(slots, offset, ipFlags(enrichment, listedProxy));
+            AuditRecord.country(slots, offset, enrichment.getCountryCode());
+            if (proxy) {
+                AuditRecord.text(slots, offset, enrichment.getProxyKeyword() != null
+                        ? enrichment.getProxyKeyword() : enrichment.getDatacenterKeyword());
+            } else {
+                AuditRecord.text(slots, offset, enrichment.getAsnOrganization());
+            }
+        } finally {
+            ring.publish(sequence);
+        }
+    }
+
+    /**
+     * 抽样未选中、未启动或缓冲区已满时返回-1
+     */
+    private long claim(AuditEventType type) {
+        if (!running || !samplers[type.ordinal()].sample()) {
+            return -1;
+        }
+        long sequence = ring.claim();
+        if (sequence < 0) {
+            droppedCount.incrementAndGet();
+        }
+        return sequence;
+    }
+
+    private static int packScore(int score) {
+        return Math.max(0, Math.min(score, 255));
+    }
+
+    private static int conclusionCode(String conclusion) {
+        if (ScoringRules.GENUINE.equals(conclusion)) {
+            return AuditRecord.CONCLUSION_GENUINE;
+        }
+        if (ScoringRules.SUSPICIOUS.equals(conclusion)) {
+            return AuditRecord.CONCLUSION_SUSPICIOUS;
+        }
+        return ScoringRules.FAKE.equals(conclusion) ? AuditRecord.CONCLUSION_FAKE : 0;
+    }
+
+    private static int ipFlags(IpEnrichment enrichment, boolean listedProxy) {
+        int flags = 0;
+        flags |= enrichment.isAnonymousVpn() ? AuditRecord.IP_ANONYMOUS_VPN : 0;
+        flags |= enrichment.isHostingProvider() ? AuditRecord.IP_HOSTING_PROVIDER : 0;
+        flags |= enrichment.isPublicProxy() ? AuditRecord.IP_PUBLIC_PROXY : 0;
+        flags |= enrichment.isTorExitNode() ? AuditRecord.IP_TOR_EXIT_NODE : 0;
+        flags |= enrichment.isResidentialProxy() ? AuditRecord.IP_RESIDENTIAL_PROXY : 0;
+        flags |= enrichment.isDatacenter() ? AuditRecord.IP_DATACENTER : 0;
+        flags |= enrichment.isProxyService() ? AuditRecord.IP_PROXY_SERVICE : 0;
+        flags |= enrichment.isHighRiskCountry() ? AuditRecord.IP_HIGH_RISK_COUNTRY : 0;
+        flags |= listedProxy ? AuditRecord.IP_LISTED_PROXY : 0;
+        return flags;
+    }
+
+    /**
+     * 写入统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("running", running);
+        stats.put("directory", fileWriter.getDirectory().toAbsolutePath().toString());
+        Path currentFile = fileWriter.getCurrentFile();
+        stats.put("currentFile", currentFile != null ? currentFile.getFileName().toString() : null);
+        stats.put("ringCapacity", ring.capacity());
+        stats.put("pending", ring.pending());
+        stats.put("written", writtenCount.get());
+        stats.put("dropped", droppedCount.get());
+        stats.put("failed", failedCount.get());
+        Map<String, Object> sampling = new LinkedHashMap<>();
+        for (AuditEventType type : AuditEventType.values()) {
+            sampling.put(type.getKey(), samplers[type.ordinal()].getRate());
+        }
+        stats.put("samplingRates", sampling);
+        return stats;
+    }
+
+    private void writeLoop() {
+        long lastForce = System.nanoTime();
+        while (running || ring.pending() > 0) {
+            int drained = ring.drain(recordHandler, DRAIN_LIMIT);
+            long now = System.nanoTime();
+            if (now - lastForce >= flushIntervalNanos) {
+                fileWriter.force();
+                lastForce = now;
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        fileWriter.close();
+    }
+
+    private void writeRecord(byte[] slots, int offset) {
+        if (AuditRecord.type(slots, offset) == 0) {
+            return;
+        }
+        try {
+            fileWriter.write(slots, offset);
+            writtenCount.incrementAndGet();
+            writeFailing = false;
+        } catch (IOException | RuntimeException e) {
+            failedCount.incrementAndGet();
+            // 连续失败只输出一次，下一条记录会重新尝试创建文件
+            if (!writeFailing) {
+                log.error("写入审计文件失败，记录将被丢弃直到写入恢复", e);
+                writeFailing = true;
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("审计日志已关闭");
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "audit-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("审计日志已启动 (目录: {}, 缓冲区: {} 条)",
+                fileWriter.getDirectory().toAbsolutePath(), ring.capacity());
+    }
+
+    @Override
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        log.info("审计日志已停止，累计写入 {} 条，丢弃 {} 条", writtenCount.get(), droppedCount.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // 与评分记录写入线程一样晚于Web服务器停止
+        return 0;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.adtraffic.service.audit;
+
+import com.example.adtraffic.service.rules.ScoringRules;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 审计文件离线解码：把审计文件转换为JSON Lines（每行一条记录）输出到标准输出。
+ * 参数为审计文件或目录（目录按文件名顺序读取其中全部审计文件），可用 --type=&lt;事件类型&gt; 和 --ip=&lt;地址&gt; 过滤，例如：
+ * <pre>
+ * java -cp adtraffic-1.0-SNAPSHOT.jar -Dloader.main=com.example.adtraffic.service.audit.AuditLogDecoder \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher audit --type=ip-flagged
+ * </pre>
+ */
+public final class AuditLogDecoder {
+
+    private static final String[] CONCLUSIONS = {null, ScoringRules.GENUINE, ScoringRules.SUSPICIOUS, ScoringRules.FAKE};
+
+    private final AuditEventType typeFilter;
+    private final String ipFilter;
+
+    private AuditLogDecoder(AuditEventType typeFilter, String ipFilter) {
+        this.typeFilter = typeFilter;
+        this.ipFilter = ipFilter;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        AuditEventType type = null;
+        String ip = null;
+        for (String arg : args) {
+            if (arg.startsWith("--type=")) {
+                type = parseType(arg.substring("--type=".length()));
+            } else if (arg.startsWith("--ip=")) {
+                ip = arg.substring("--ip=".length());
+            } else {
+                Path path = Paths.get(arg);
+                files.addAll(Files.isDirectory(path) ? AuditFileWriter.listFiles(path) : List.of(path));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("用法: AuditLogDecoder <审计文件或目录>... [--type=事件类型] [--ip=地址]");
+            System.exit(2);
+        }
+
+        AuditLogDecoder decoder = new AuditLogDecoder(type, ip);
+        try (JsonGenerator generator = new JsonFactory().createGenerator((OutputStream) System.out, JsonEncoding.UTF8)) {
+            generator.setRootValueSeparator(null);
+            for (Path file : files) {
+                decoder.decode(file, generator);
+            }
+        }
+    }
+
+    private static AuditEventType parseType(String key) {
+        for (AuditEventType type : AuditEventType.values()) {
+            if (type.getKey().equals(key) || type.name().equalsIgnoreCase(key)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("未知的事件类型: " + key);
+    }
+
+    /**
+     * 解码一个文件，遇到类型为0的记录（文件未写满的部分）或文件结尾时结束
+     */
+    private void decode(Path file, JsonGenerator generator) throws IOException {
+        byte[] record = new byte[AuditRecord.SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            if (input.readNBytes(record, 0, AuditRecord.SIZE) < AuditRecord.SIZE || !AuditRecord.isHeader(record)) {
+                System.err.println("跳过非审计文件或版本不兼容的文件: " + file);
+                return;
+            }
+            while (input.readNBytes(record, 0, AuditRecord.SIZE) == AuditRecord.SIZE) {
+                int code = AuditRecord.type(record, 0);
+                if (code == 0) {
+                    break;
+                }
+                AuditEventType type = AuditEventType.fromCode(code);
+                if (type == null || (typeFilter != null && type != typeFilter)) {
+                    continue;
+                }
+                String ip = AuditRecord.ip(record, 0);
+                if (ipFilter != null && !ipFilter.equals(ip)) {
+                    continue;
+                }
+                write(generator, type, ip, record);
+                generator.writeRaw('\n');
+            }
+        }
+        generator.flush();
+    }
+
+    private void write(JsonGenerator generator, AuditEventType type, String ip, byte[] record) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("time", Instant.ofEpochMilli(AuditRecord.time(record, 0)).toString());
+        generator.writeStringField("type", type.getKey());
+        generator.writeStringField("ip", ip);
+        int value = AuditRecord.value(record, 0);
+        int value2 = AuditRecord.value2(record, 0);
+        String text = AuditRecord.text(record, 0);
+        switch (type) {
+            case TRAFFIC_COLLECTED:
+                generator.writeNumberField("clicks", value);
+                generator.writeNumberField("mouseMovements", value2);
+                generator.writeStringField("userAgent", text);
+                break;
+            case TRAFFIC_SCORED:
+                int conclusion = AuditRecord.code(record, 0);
+                int flags = AuditRecord.flags(record, 0);
+                generator.writeNumberField("totalScore", value);
+                generator.writeStringField("conclusion", conclusion < CONCLUSIONS.length ? CONCLUSIONS[conclusion] : null);
+                generator.writeStringField("ruleSet", text);
+                generator.writeNumberField("ipScore", value2 & 0xFF);
+                generator.writeNumberField("clickScore", (value2 >>> 8) & 0xFF);
+                generator.writeNumberField("sessionScore", (value2 >>> 16) & 0xFF);
+                generator.writeNumberField("deviceScore", value2 >>> 24);
+                generator.writeBooleanField("ipMalicious", (flags & AuditRecord.FLAG_MALICIOUS) != 0);
+                generator.writeBooleanField("degraded", (flags & AuditRecord.FLAG_DEGRADED) != 0);
+                break;
+            case IP_CHECKED:
+            case IP_FLAGGED:
+                generator.writeNumberField("asn", value);
+                generator.writeStringField("country", AuditRecord.country(record, 0));
+                generator.writeArrayFieldStart("flags");
+                for (int i = 0; i < AuditRecord.IP_FLAG_NAMES.length; i++) {
+                    if ((value2 & (1 << i)) != 0) {
+                        generator.writeString(AuditRecord.IP_FLAG_NAMES[i]);
+                    }
+                }
+                generator.writeEndArray();
+                generator.writeStringField(type == AuditEventType.IP_FLAGGED ? "keyword" : "asnOrganization", text);
+                break;
+            default:
+                break;
+        }
+        generator.writeEndObject();
+    }
+}
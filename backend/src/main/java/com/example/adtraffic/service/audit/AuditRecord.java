@@ -0,0 +1,273 @@
+package com.example.adtraffic.service.audit;
+
+import com.example.adtraffic.util.IpRangeSet;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 审计记录的固定布局（小端序，每条128字节），写入和解码共用：
+ * <pre>
+ *   0  u8   事件类型编号，0表示空槽位或文件结尾
+ *   1  u8   IP格式：0无，4为IPv4，6为IPv6，1为无法解析时的原始字符串（最多16个ASCII字符）
+ *   2  u8   code，TRAFFIC_SCORED中为结论编号
+ *   3  u8   文本长度（UTF-8字节数）
+ *   4  i32  value
+ *   8  i64  时间（epoch毫秒）
+ *  16  [16] IP地址，网络字节序
+ *  32  i32  value2
+ *  36  [2]  国家代码（ASCII）
+ *  38  u8   记录标记
+ *  39  u8   保留
+ *  40  [88] 文本，超长时按字符截断
+ * </pre>
+ * 写入只操作调用方给出的byte数组，不分配对象（IPv6地址解析时除外）
+ */
+final class AuditRecord {
+
+    static final int SIZE = 128;
+    static final int TEXT_CAPACITY = 88;
+
+    static final int FAMILY_NONE = 0;
+    static final int FAMILY_RAW = 1;
+    static final int FAMILY_IPV4 = 4;
+    static final int FAMILY_IPV6 = 6;
+
+    // TRAFFIC_SCORED的结论编号
+    static final int CONCLUSION_GENUINE = 1;
+    static final int CONCLUSION_SUSPICIOUS = 2;
+    static final int CONCLUSION_FAKE = 3;
+
+    // 记录标记（偏移38）
+    static final int FLAG_MALICIOUS = 1;
+    static final int FLAG_DEGRADED = 1 << 1;
+
+    // IP_CHECKED/IP_FLAGGED的value2标记位，顺序与IP_FLAG_NAMES一致
+    static final int IP_ANONYMOUS_VPN = 1;
+    static final int IP_HOSTING_PROVIDER = 1 << 1;
+    static final int IP_PUBLIC_PROXY = 1 << 2;
+    static final int IP_TOR_EXIT_NODE = 1 << 3;
+    static final int IP_RESIDENTIAL_PROXY = 1 << 4;
+    static final int IP_DATACENTER = 1 << 5;
+    static final int IP_PROXY_SERVICE = 1 << 6;
+    static final int IP_HIGH_RISK_COUNTRY = 1 << 7;
+    static final int IP_LISTED_PROXY = 1 << 8;
+    static final String[] IP_FLAG_NAMES = {"anonymousVpn", "hostingProvider", "publicProxy", "torExitNode",
+            "residentialProxy", "datacenter", "proxyService", "highRiskCountry", "listedProxy"};
+
+    // 文件头占一条记录的位置
+    static final byte[] MAGIC = "NLAUDIT1".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+
+    private static final int TYPE = 0;
+    private static final int FAMILY = 1;
+    private static final int CODE = 2;
+    private static final int TEXT_LENGTH = 3;
+    private static final int VALUE = 4;
+    private static final int TIME = 8;
+    private static final int IP = 16;
+    private static final int VALUE2 = 32;
+    private static final int COUNTRY = 36;
+    private static final int FLAGS = 38;
+    private static final int TEXT = 40;
+
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private AuditRecord() {
+    }
+
+    /**
+     * 清空槽位并写入类型和时间，其余字段默认为0
+     */
+    static void start(byte[] buffer, int offset, AuditEventType type, long timeMillis) {
+        Arrays.fill(buffer, offset, offset + SIZE, (byte) 0);
+        LONG.set(buffer, offset + TIME, timeMillis);
+        buffer[offset + TYPE] = (byte) type.getCode();
+    }
+
+    static void ip(byte[] buffer, int offset, String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return;
+        }
+        int position = offset + IP;
+        if (ip.indexOf(':') < 0) {
+            long v4 = IpRangeSet.parseIpv4(ip, 0, ip.length());
+            if (v4 >= 0) {
+                buffer[position] = (byte) (v4 >>> 24);
+                buffer[position + 1] = (byte) (v4 >>> 16);
+                buffer[position + 2] = (byte) (v4 >>> 8);
+                buffer[position + 3] = (byte) v4;
+                buffer[offset + FAMILY] = FAMILY_IPV4;
+                return;
+            }
+        } else {
+            long[] v6 = IpRangeSet.parseIpv6(ip);
+            if (v6 != null) {
+                for (int i = 0; i < 8; i++) {
+                    buffer[position + i] = (byte) (v6[0] >>> (56 - 8 * i));
+                    buffer[position + 8 + i] = (byte) (v6[1] >>> (56 - 8 * i));
+                }
+                buffer[offset + FAMILY] = FAMILY_IPV6;
+                return;
+            }
+        }
+        int length = Math.min(ip.length(), 16);
+        for (int i = 0; i < length; i++) {
+            char c = ip.charAt(i);
+            buffer[position + i] = (byte) (c < 0x80 ? c : '?');
+        }
+        buffer[offset + FAMILY] = FAMILY_RAW;
+    }
+
+    static void code(byte[] buffer, int offset, int code) {
+        buffer[offset + CODE] = (byte) code;
+    }
+
+    static void value(byte[] buffer, int offset, int value) {
+        INT.set(buffer, offset + VALUE, value);
+    }
+
+    static void value2(byte[] buffer, int offset, int value) {
+        INT.set(buffer, offset + VALUE2, value);
+    }
+
+    static void flags(byte[] buffer, int offset, int flags) {
+        buffer[offset + FLAGS] = (byte) flags;
+    }
+
+    static void country(byte[] buffer, int offset, String countryCode) {
+        if (countryCode != null && countryCode.length() == 2) {
+            buffer[offset + COUNTRY] = (byte) countryCode.charAt(0);
+            buffer[offset + COUNTRY + 1] = (byte) countryCode.charAt(1);
+        }
+    }
+
+    /**
+     * 按UTF-8写入文本，超过88字节时在字符边界截断
+     */
+    static void text(byte[] buffer, int offset, CharSequence text) {
+        if (text == null) {
+            return;
+        }
+        int position = offset + TEXT;
+        int end = position + TEXT_CAPACITY;
+        for (int i = 0; i < text.length(); i++) {
+            int c = text.charAt(i);
+            int units = 1;
+            if (Character.isHighSurrogate((char) c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                c = Character.toCodePoint((char) c, text.charAt(i + 1));
+                units = 2;
+            } else if (Character.isSurrogate((char) c)) {
+                c = '?';
+            }
+            int bytes = c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+            if (position + bytes > end) {
+                break;
+            }
+            switch (bytes) {
+                case 1:
+                    buffer[position] = (byte) c;
+                    break;
+                case 2:
+                    buffer[position] = (byte) (0xC0 | (c >> 6));
+                    buffer[position + 1] = (byte) (0x80 | (c & 0x3F));
+                    break;
+                case 3:
+                    buffer[position] = (byte) (0xE0 | (c >> 12));
+                    buffer[position + 1] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[position + 2] = (byte) (0x80 | (c & 0x3F));
+                    break;
+                default:
+                    buffer[position] = (byte) (0xF0 | (c >> 18));
+                    buffer[position + 1] = (byte) (0x80 | ((c >> 12) & 0x3F));
+                    buffer[position + 2] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[position + 3] = (byte) (0x80 | (c & 0x3F));
+                    break;
+            }
+            position += bytes;
+            i += units - 1;
+        }
+        buffer[offset + TEXT_LENGTH] = (byte) (position - offset - TEXT);
+    }
+
+    /**
+     * 文件头：魔数、版本号和记录长度
+     */
+    static void header(byte[] buffer, long createdAtMillis) {
+        Arrays.fill(buffer, 0, SIZE, (byte) 0);
+        System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+        INT.set(buffer, 8, VERSION);
+        INT.set(buffer, 12, SIZE);
+        LONG.set(buffer, 16, createdAtMillis);
+    }
+
+    static boolean isHeader(byte[] buffer) {
+        return Arrays.equals(buffer, 0, MAGIC.length, MAGIC, 0, MAGIC.length)
+                && (int) INT.get(buffer, 8) == VERSION && (int) INT.get(buffer, 12) == SIZE;
+    }
+
+    static int type(byte[] buffer, int offset) {
+        return buffer[offset + TYPE] & 0xFF;
+    }
+
+    static int code(byte[] buffer, int offset) {
+        return buffer[offset + CODE] & 0xFF;
+    }
+
+    static int value(byte[] buffer, int offset) {
+        return (int) INT.get(buffer, offset + VALUE);
+    }
+
+    static int value2(byte[] buffer, int offset) {
+        return (int) INT.get(buffer, offset + VALUE2);
+    }
+
+    static int flags(byte[] buffer, int offset) {
+        return buffer[offset + FLAGS] & 0xFF;
+    }
+
+    static long time(byte[] buffer, int offset) {
+        return (long) LONG.get(buffer, offset + TIME);
+    }
+
+    static String country(byte[] buffer, int offset) {
+        if (buffer[offset + COUNTRY] == 0) {
+            return null;
+        }
+        return new String(buffer, offset + COUNTRY, 2, StandardCharsets.US_ASCII);
+    }
+
+    static String text(byte[] buffer, int offset) {
+        int length = buffer[offset + TEXT_LENGTH] & 0xFF;
+        return length == 0 ? null : new String(buffer, offset + TEXT, length, StandardCharsets.UTF_8);
+    }
+
+    static String ip(byte[] buffer, int offset) {
+        int position = offset + IP;
+        switch (buffer[offset + FAMILY]) {
+            case FAMILY_IPV4:
+            case FAMILY_IPV6:
+                int length = buffer[offset + FAMILY] == FAMILY_IPV4 ? 4 : 16;
+                try {
+                    return InetAddress.getByAddress(Arrays.copyOfRange(buffer, position, position + length))
+                            .getHostAddress();
+                } catch (UnknownHostException e) {
+                    return null;
+                }
+            case FAMILY_RAW:
+                int end = position;
+                while (end < position + 16 && buffer[end] != 0) {
+                    end++;
+                }
+                return new String(buffer, position, end - position, StandardCharsets.US_ASCII);
+            default:
+                return null;
+        }
+    }
+}
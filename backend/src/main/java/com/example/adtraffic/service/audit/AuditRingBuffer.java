@@ -0,0 +1,90 @@
+package com.example.adtraffic.service.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 多生产者、单消费者的审计记录环形缓冲区，槽位是预先分配的同一个byte数组中的固定区间。
+ * 生产者CAS领取序号后直接在槽位中写入记录，再发布序号；缓冲区满时领取失败，调用方丢弃该记录，不等待。
+ * 消费者按序号顺序读取，遇到尚未发布的槽位即停止
+ */
+final class AuditRingBuffer {
+
+    /**
+     * 消费者处理一条记录，数据位于slots[offset, offset + AuditRecord.SIZE)
+     */
+    interface RecordHandler {
+        void handle(byte[] slots, int offset);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final byte[] slots;
+    // 槽位中已发布记录的序号加1，0表示从未发布
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+
+    AuditRingBuffer(int requestedCapacity) {
+        // 向上取整为2的幂
+        this.capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.slots = new byte[capacity * AuditRecord.SIZE];
+        this.published = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * 领取一个序号，缓冲区已满时返回-1
+     */
+    long claim() {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed.get() >= capacity) {
+                return -1;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    byte[] slots() {
+        return slots;
+    }
+
+    int offset(long sequence) {
+        return (int) (sequence & mask) * AuditRecord.SIZE;
+    }
+
+    void publish(long sequence) {
+        published.setRelease((int) (sequence & mask), sequence + 1);
+    }
+
+    /**
+     * 按顺序处理已发布的记录，最多limit条，返回处理的条数
+     */
+    int drain(RecordHandler handler, int limit) {
+        long next = consumed.get();
+        int count = 0;
+        while (count < limit && published.getAcquire((int) (next & mask)) == next + 1) {
+            handler.handle(slots, offset(next));
+            next++;
+            count++;
+        }
+        if (count > 0) {
+            consumed.setRelease(next);
+        }
+        return count;
+    }
+
+    /**
+     * 已领取但尚未被消费者处理的记录数
+     */
+    long pending() {
+        return claimed.get() - consumed.get();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.adtraffic.service.retention;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 不支持分区的数据库（H2等）：按时间段划分逻辑分区，删除时按id区间分批DELETE，
+ * 每批单独提交，避免一次大事务长时间锁表
+ */
+public class DeletePartitionStrategy implements PartitionStrategy {
+
+    private static final String TABLE = "traffic_score_records";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitionGranularity granularity;
+    private final int deleteBatchSize;
+
+    public DeletePartitionStrategy(JdbcTemplate jdbcTemplate, PartitionGranularity granularity, int deleteBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.granularity = granularity;
+        this.deleteBatchSize = Math.max(1, deleteBatchSize);
+    }
+
+    @Override
+    public String name() {
+        return "delete-" + granularity.name().toLowerCase();
+    }
+
+    @Override
+    public void ensurePartitions(LocalDateTime retainFrom, LocalDateTime until) {
+        // 逻辑分区不需要预先创建
+    }
+
+    /**
+     * 按时间段分组统计出有数据的逻辑分区，created_at为NULL的记录不属于任何分区
+     */
+    @Override
+    public List<RecordPartition> listPartitions() {
+        String groups = granularity == PartitionGranularity.DAY
+                ? "EXTRACT(YEAR FROM created_at), EXTRACT(MONTH FROM created_at), EXTRACT(DAY FROM created_at)"
+                : "EXTRACT(YEAR FROM created_at), EXTRACT(MONTH FROM created_at)";
+        String sql = "SELECT " + groups + ", COUNT(*) FROM " + TABLE +
+                " WHERE created_at IS NOT NULL GROUP BY " + groups + " ORDER BY " + groups;
+
+        List<RecordPartition> partitions = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(sql)) {
+            Object[] values = row.values().toArray();
+            int year = ((Number) values[0]).intValue();
+            int month = ((Number) values[1]).intValue();
+            int day = granularity == PartitionGranularity.DAY ? ((Number) values[2]).intValue() : 1;
+            long rows = ((Number) values[values.length - 1]).longValue();
+            LocalDateTime start = LocalDateTime.of(year, month, day, 0, 0);
+            partitions.add(new RecordPartition(granularity.partitionName(start), start, granularity.next(start), rows));
+        }
+        return partitions;
+    }
+
+    @Override
+    public void readPartition(RecordPartition partition, RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT " + ARCHIVE_COLUMNS + " FROM " + TABLE +
+                " WHERE created_at >= ? AND created_at < ? ORDER BY id", handler,
+                Timestamp.valueOf(partition.getStart()), Timestamp.valueOf(partition.getEnd()));
+    }
+
+    @Override
+    public long dropPartition(RecordPartition partition) {
+        Timestamp start = Timestamp.valueOf(partition.getStart());
+        Timestamp end = Timestamp.valueOf(partition.getEnd());
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM " + TABLE + " WHERE created_at >= ? AND created_at < ?",
+                start, end);
+        Number minId = (Number) range.get("min_id");
+        Number maxId = (Number) range.get("max_id");
+        if (minId == null || maxId == null) {
+            return 0;
+        }
+
+        long deleted = 0;
+        for (long from = minId.longValue(); from <= maxId.longValue(); from += deleteBatchSize) {
+            deleted += jdbcTemplate.update("DELETE FROM " + TABLE +
+                    " WHERE id >= ? AND id < ? AND created_at >= ? AND created_at < ?",
+                    from, from + deleteBatchSize, start, end);
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.adtraffic.service.retention;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * MySQL按created_at的RANGE COLUMNS分区，最后一个分区pmax（MAXVALUE）兜底。
+ * 新分区通过拆分空的pmax预先创建，过期分区用DROP PARTITION删除，不逐行DELETE，也不长时间锁表。
+ * 带created_at条件的查询（findByCreatedAtBetween、记录列表的键集分页）由MySQL自动裁剪分区
+ */
+@Slf4j
+public class MySqlPartitionStrategy implements PartitionStrategy {
+
+    private static final String TABLE = "traffic_score_records";
+    private static final String MAX_PARTITION = "pmax";
+    private static final String HISTORY_PARTITION = "p_history";
+    private static final DateTimeFormatter BOUNDARY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String PARTITIONS_SQL =
+            "SELECT PARTITION_NAME, PARTITION_DESCRIPTION, TABLE_ROWS FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION";
+
+    private static final String TABLE_ROWS_SQL =
+            "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final PartitionGranularity granularity;
+    private final long convertMaxRows;
+
+    public MySqlPartitionStrategy(JdbcTemplate jdbcTemplate, PartitionGranularity granularity, long convertMaxRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Connector/J只有fetchSize为Integer.MIN_VALUE时才逐行流式读取，否则把整个结果集读入内存
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.granularity = granularity;
+        this.convertMaxRows = convertMaxRows;
+    }
+
+    @Override
+    public String name() {
+        return "mysql-range-" + granularity.name().toLowerCase();
+    }
+
+    @Override
+    public void ensurePartitions(LocalDateTime retainFrom, LocalDateTime until) {
+        List<RecordPartition> partitions = listPartitions();
+        if (partitions.isEmpty()) {
+            convert(retainFrom, until);
+            return;
+        }
+
+        LocalDateTime lastEnd = null;
+        for (RecordPartition partition : partitions) {
+            if (partition.getEnd() != null) {
+                lastEnd = partition.getEnd();
+            }
+        }
+        if (lastEnd == null) {
+            log.warn("{} 只有一个MAXVALUE分区，不自动创建新分区", TABLE);
+            return;
+        }
+        if (lastEnd.isAfter(until)) {
+            return;
+        }
+
+        String definitions = rangeDefinitions(lastEnd, until);
+        RecordPartition last = partitions.get(partitions.size() - 1);
+        if (last.getEnd() == null) {
+            // MAXVALUE分区中通常没有数据，拆分只修改元数据
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + last.getName() + " INTO (" +
+                    definitions + ", PARTITION " + last.getName() + " VALUES LESS THAN (MAXVALUE))");
+        } else {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD PARTITION (" + definitions + ")");
+        }
+        log.info("{} 已创建分区至 {}", TABLE, granularity.next(granularity.floor(until)));
+    }
+
+    /**
+     * 把未分区的表转换为分区表。主键需要包含分区列，因此改为(id, created_at)；
+     * 转换会复制整张表并阻塞写入，默认（convertMaxRows为0）只输出DDL，由运维在低峰期执行；
+     * convertMaxRows大于0时，不超过该行数的表自动转换
+     */
+    private void convert(LocalDateTime retainFrom, LocalDateTime until) {
+        LocalDateTime firstStart = granularity.floor(retainFrom);
+        String ddl = "ALTER TABLE " + TABLE + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at) " +
+                "PARTITION BY RANGE COLUMNS(created_at) (" +
+                "PARTITION " + HISTORY_PARTITION + " VALUES LESS THAN (" + boundary(firstStart) + "), " +
+                rangeDefinitions(firstStart, until) + ", " + maxPartition() + ")";
+
+        Long rows = jdbcTemplate.queryForObject(TABLE_ROWS_SQL, Long.class, TABLE);
+        if (convertMaxRows <= 0) {
+            log.warn("{} 尚未分区，请在低峰期手动执行: {}", TABLE, ddl);
+            return;
+        }
+        if (rows == null || rows > convertMaxRows) {
+            log.warn("{} 约有 {} 行，超过自动分区转换上限 {}，请在低峰期手动执行: {}", TABLE, rows, convertMaxRows, ddl);
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        // 主键列不允许为NULL
+        jdbcTemplate.update("UPDATE " + TABLE + " SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL");
+        jdbcTemplate.execute(ddl);
+        log.info("{} 已转换为按created_at分区（{}），约 {} 行，耗时 {}ms",
+                TABLE, granularity, rows, System.currentTimeMillis() - started);
+    }
+
+    @Override
+    public List<RecordPartition> listPartitions() {
+        List<RecordPartition> partitions = new ArrayList<>();
+        LocalDateTime[] previousEnd = new LocalDateTime[1];
+        jdbcTemplate.query(PARTITIONS_SQL, rs -> {
+            String description = rs.getString(2);
+            LocalDateTime end = parseBoundary(description);
+            partitions.add(new RecordPartition(rs.getString(1), previousEnd[0], end, rs.getLong(3)));
+            previousEnd[0] = end;
+        }, TABLE);
+        return partitions;
+    }
+
+    @Override
+    public void readPartition(RecordPartition partition, RowCallbackHandler handler) {
+        streamingJdbcTemplate.query("SELECT " + ARCHIVE_COLUMNS + " FROM " + TABLE +
+                " PARTITION (" + partition.getName() + ") ORDER BY id", handler);
+    }
+
+    @Override
+    public long dropPartition(RecordPartition partition) {
+        if (partition.getEnd() == null) {
+            throw new IllegalArgumentException("不能删除没有上界的分区: " + partition.getName());
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition.getName());
+        return partition.getRows();
+    }
+
+    /**
+     * 从start起到覆盖until为止的各时间段的分区定义
+     */
+    private String rangeDefinitions(LocalDateTime start, LocalDateTime until) {
+        StringJoiner definitions = new StringJoiner(", ");
+        LocalDateTime periodStart = start;
+        do {
+            LocalDateTime periodEnd = granularity.next(periodStart);
+            definitions.add("PARTITION " + granularity.partitionName(periodStart) +
+                    " VALUES LESS THAN (" + boundary(periodEnd) + ")");
+            periodStart = periodEnd;
+        } while (!periodStart.isAfter(until));
+        return definitions.toString();
+    }
+
+    private static String maxPartition() {
+        return "PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)";
+    }
+
+    private static String boundary(LocalDateTime time) {
+        return "'" + BOUNDARY_FORMAT.format(time) + "'";
+    }
+
+    /**
+     * PARTITION_DESCRIPTION形如'2024-01-02 00:00:00'，MAXVALUE返回null
+     */
+    private static LocalDateTime parseBoundary(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        String value = description.replace("'", "").trim();
+        if (value.length() == 10) {
+            value += " 00:00:00";
+        }
+        return Timestamp.valueOf(value).toLocalDateTime();
+    }
+}
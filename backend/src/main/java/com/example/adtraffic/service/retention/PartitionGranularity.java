@@ -0,0 +1,55 @@
+package com.example.adtraffic.service.retention;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 评分记录分区的时间粒度
+ */
+public enum PartitionGranularity {
+    DAY(DateTimeFormatter.ofPattern("'p'yyyyMMdd")) {
+        @Override
+        public LocalDateTime floor(LocalDateTime time) {
+            return time.toLocalDate().atStartOfDay();
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime start) {
+            return start.plusDays(1);
+        }
+    },
+    MONTH(DateTimeFormatter.ofPattern("'p'yyyyMM")) {
+        @Override
+        public LocalDateTime floor(LocalDateTime time) {
+            return time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        }
+
+        @Override
+        public LocalDateTime next(LocalDateTime start) {
+            return start.plusMonths(1);
+        }
+    };
+
+    private final DateTimeFormatter nameFormat;
+
+    PartitionGranularity(DateTimeFormatter nameFormat) {
+        this.nameFormat = nameFormat;
+    }
+
+    /**
+     * time所在时间段的起点
+     */
+    public abstract LocalDateTime floor(LocalDateTime time);
+
+    /**
+     * 下一个时间段的起点，start须为某个时间段的起点
+     */
+    public abstract LocalDateTime next(LocalDateTime start);
+
+    /**
+     * 以起点命名的分区名，如p20240101、p202401
+     */
+    public String partitionName(LocalDateTime start) {
+        return nameFormat.format(start);
+    }
+}
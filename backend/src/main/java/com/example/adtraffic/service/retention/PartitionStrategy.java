@@ -0,0 +1,37 @@
+package com.example.adtraffic.service.retention;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * traffic_score_records按created_at分区的方式：MySQL使用RANGE COLUMNS分区，
+ * 不支持分区的数据库（H2）按同样的时间段划分逻辑分区，删除时分批DELETE
+ */
+public interface PartitionStrategy {
+
+    String name();
+
+    /**
+     * 保证[retainFrom, until]内的每个时间段都有对应分区，retainFrom之前的数据可归入一个历史分区
+     */
+    void ensurePartitions(LocalDateTime retainFrom, LocalDateTime until);
+
+    /**
+     * 按时间从早到晚列出分区
+     */
+    List<RecordPartition> listPartitions();
+
+    /**
+     * 逐行读取分区中的记录，列顺序为ARCHIVE_COLUMNS
+     */
+    void readPartition(RecordPartition partition, RowCallbackHandler handler);
+
+    /**
+     * 删除整个分区的数据，返回删除的行数（MySQL为估计值）
+     */
+    long dropPartition(RecordPartition partition);
+
+    String ARCHIVE_COLUMNS = "id, ip, user_agent, total_score, ip_score, click_score, session_score, " +
+            "device_score, conclusion, score_details, score_details_bin, score_details_extra, created_at";
+}
@@ -0,0 +1,116 @@
+package com.example.adtraffic.service.retention;
+
+import com.example.adtraffic.service.ScoreDetailsCodec;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 删除分区前把其中的记录写入本地gzip压缩的NDJSON文件（每行一条记录）。
+ * 先写临时文件，完成后原子重命名，目录中只会出现完整的归档文件
+ */
+public class RecordArchiver {
+
+    private final ObjectMapper objectMapper;
+    private final ScoreDetailsCodec scoreDetailsCodec;
+    private final Path directory;
+
+    public RecordArchiver(ObjectMapper objectMapper, ScoreDetailsCodec scoreDetailsCodec, Path directory) {
+        this.objectMapper = objectMapper;
+        this.scoreDetailsCodec = scoreDetailsCodec;
+        this.directory = directory;
+    }
+
+    /**
+     * 归档一个分区，返回归档文件路径和写入的行数；失败时抛出异常，调用方不应删除该分区
+     */
+    public ArchiveResult archive(PartitionStrategy strategy, RecordPartition partition) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve("traffic_score_records-" + partition.getName() + ".ndjson.gz");
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+
+        long[] rows = new long[1];
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(temp), 65536);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+            generator.setRootValueSeparator(null);
+            strategy.readPartition(partition, rs -> {
+                try {
+                    writeRow(generator, rs);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new ArchiveResult(target, rows[0]);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void writeRow(JsonGenerator generator, ResultSet rs) throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", rs.getLong(1));
+        generator.writeStringField("ip", rs.getString(2));
+        generator.writeStringField("userAgent", rs.getString(3));
+        writeInt(generator, "totalScore", rs, 4);
+        writeInt(generator, "ipScore", rs, 5);
+        writeInt(generator, "clickScore", rs, 6);
+        writeInt(generator, "sessionScore", rs, 7);
+        writeInt(generator, "deviceScore", rs, 8);
+        generator.writeStringField("conclusion", rs.getString(9));
+        // 新旧格式的明细统一归档为JSON
+        generator.writeStringField("scoreDetails",
+                scoreDetailsCodec.readJson(rs.getBytes(11), rs.getString(12), rs.getString(10)));
+        Timestamp createdAt = rs.getTimestamp(13);
+        generator.writeStringField("createdAt", createdAt != null ? createdAt.toLocalDateTime().toString() : null);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeInt(JsonGenerator generator, String field, ResultSet rs, int column)
+            throws IOException, SQLException {
+        int value = rs.getInt(column);
+        if (rs.wasNull()) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeNumberField(field, value);
+        }
+    }
+
+    public static class ArchiveResult {
+        private final Path file;
+        private final long rows;
+
+        ArchiveResult(Path file, long rows) {
+            this.file = file;
+            this.rows = rows;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+    }
+}
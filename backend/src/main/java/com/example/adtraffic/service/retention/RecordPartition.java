@@ -0,0 +1,41 @@
+package com.example.adtraffic.service.retention;
+
+import lombok.Getter;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 评分记录的一个时间分区：[start, end)，start为null表示没有下界，end为null表示没有上界（MAXVALUE）
+ */
+@Getter
+public class RecordPartition {
+    private final String name;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    // 行数，MySQL为统计信息中的估计值
+    private final long rows;
+
+    public RecordPartition(String name, LocalDateTime start, LocalDateTime end, long rows) {
+        this.name = name;
+        this.start = start;
+        this.end = end;
+        this.rows = rows;
+    }
+
+    /**
+     * 整个分区都早于cutoff
+     */
+    public boolean endsBefore(LocalDateTime cutoff) {
+        return end != null && !end.isAfter(cutoff);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", name);
+        map.put("start", start);
+        map.put("end", end);
+        map.put("rows", rows);
+        return map;
+    }
+}
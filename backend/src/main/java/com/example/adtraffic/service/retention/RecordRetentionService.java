@@ -0,0 +1,128 @@
+package com.example.adtraffic.service.retention;
+
+import com.example.adtraffic.service.ScoreDetailsCodec;
+import com.example.adtraffic.service.TrafficStatisticsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 评分记录保留策略：定时预先创建后续时间段的分区，并整分区删除超过保留天数的数据，
+ * 删除前可选归档到本地压缩文件
+ */
+@Service
+@Slf4j
+public class RecordRetentionService {
+
+    private final PartitionStrategy partitionStrategy;
+    private final TrafficStatisticsService trafficStatisticsService;
+    private final RecordArchiver archiver;
+    private final PartitionGranularity granularity;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int precreate;
+
+    private volatile Map<String, Object> lastRun = Collections.emptyMap();
+
+    public RecordRetentionService(
+            PartitionStrategy partitionStrategy,
+            TrafficStatisticsService trafficStatisticsService,
+            ObjectMapper objectMapper,
+            ScoreDetailsCodec scoreDetailsCodec,
+            @Value("${retention.enabled:true}") boolean enabled,
+            @Value("${retention.days:90}") int retentionDays,
+            @Value("${retention.partition.granularity:DAY}") PartitionGranularity granularity,
+            @Value("${retention.partition.precreate:7}") int precreate,
+            @Value("${retention.archive.enabled:false}") boolean archiveEnabled,
+            @Value("${retention.archive.directory:archive}") String archiveDirectory) {
+        this.partitionStrategy = partitionStrategy;
+        this.trafficStatisticsService = trafficStatisticsService;
+        this.archiver = archiveEnabled ? new RecordArchiver(objectMapper, scoreDetailsCodec, Paths.get(archiveDirectory)) : null;
+        this.granularity = granularity;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.precreate = Math.max(1, precreate);
+    }
+
+    /**
+     * 启动retention.initial-delay-ms后执行第一次，之后按retention.check-interval-ms间隔执行
+     */
+    @Scheduled(fixedDelayString = "${retention.check-interval-ms:3600000}",
+            initialDelayString = "${retention.initial-delay-ms:300000}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", now);
+        result.put("cutoff", cutoff);
+        try {
+            LocalDateTime until = now;
+            for (int i = 0; i < precreate; i++) {
+                until = granularity.next(granularity.floor(until));
+            }
+            partitionStrategy.ensurePartitions(cutoff, until);
+
+            List<String> dropped = new ArrayList<>();
+            List<String> failed = new ArrayList<>();
+            long droppedRows = 0;
+            for (RecordPartition partition : partitionStrategy.listPartitions()) {
+                if (!partition.endsBefore(cutoff)) {
+                    continue;
+                }
+                try {
+                    if (archiver != null) {
+                        RecordArchiver.ArchiveResult archived = archiver.archive(partitionStrategy, partition);
+                        log.info("分区 {} 已归档 {} 条记录到 {}", partition.getName(), archived.getRows(), archived.getFile());
+                    }
+                    droppedRows += partitionStrategy.dropPartition(partition);
+                    dropped.add(partition.getName());
+                } catch (Exception e) {
+                    // 归档失败时不删除，下次执行时重试
+                    log.error("删除过期分区 {} 失败", partition.getName(), e);
+                    failed.add(partition.getName());
+                }
+            }
+            result.put("droppedPartitions", dropped);
+            result.put("droppedRows", droppedRows);
+            if (!failed.isEmpty()) {
+                result.put("failedPartitions", failed);
+            }
+            if (!dropped.isEmpty()) {
+                log.info("已删除 {} 之前的 {} 个分区 {}，约 {} 条记录", cutoff, dropped.size(), dropped, droppedRows);
+                // 结论累计计数包含被删除的记录，立即与数据库对账
+                trafficStatisticsService.reconcile();
+            }
+        } catch (RuntimeException e) {
+            log.error("评分记录分区维护失败", e);
+            result.put("error", e.getMessage());
+        }
+        result.put("elapsedMillis", System.currentTimeMillis() - started);
+        lastRun = result;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("strategy", partitionStrategy.name());
+        stats.put("retentionDays", retentionDays);
+        stats.put("archiveDirectory", archiver != null ? archiver.getDirectory().toAbsolutePath().toString() : null);
+        List<Map<String, Object>> partitions = new ArrayList<>();
+        for (RecordPartition partition : partitionStrategy.listPartitions()) {
+            partitions.add(partition.toMap());
+        }
+        stats.put("partitions", partitions);
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+}
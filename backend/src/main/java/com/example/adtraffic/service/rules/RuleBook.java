@@ -0,0 +1,64 @@
+package com.example.adtraffic.service.rules;
+
+import com.example.adtraffic.util.SlidingWindowSketch;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * 一次加载得到的全部规则集及A/B分流设置，加载完成后整体替换
+ */
+final class RuleBook {
+
+    private final Map<String, ScoringRules> ruleSets;
+    private final ScoringRules defaultRules;
+    private final ScoringRules experimentRules;
+    private final int experimentPercent;
+    private final long salt;
+    private final String version;
+    private final Date loadedAt = new Date();
+
+    RuleBook(Map<String, ScoringRules> ruleSets, ScoringRules defaultRules, ScoringRules experimentRules,
+             int experimentPercent, long salt, String version) {
+        this.ruleSets = ruleSets;
+        this.defaultRules = defaultRules;
+        this.experimentRules = experimentRules;
+        this.experimentPercent = experimentPercent;
+        this.salt = salt;
+        this.version = version;
+    }
+
+    /**
+     * 按IP哈希分流，同一IP始终落在同一个规则集，修改salt可重新分组
+     */
+    ScoringRules select(String ip) {
+        if (experimentRules == null || experimentPercent == 0 || ip == null) {
+            return defaultRules;
+        }
+        long hash = SlidingWindowSketch.hash(SlidingWindowSketch.hash(ip) ^ salt);
+        return Long.remainderUnsigned(hash, 100) < experimentPercent ? experimentRules : defaultRules;
+    }
+
+    Map<String, ScoringRules> getRuleSets() {
+        return ruleSets;
+    }
+
+    ScoringRules getDefaultRules() {
+        return defaultRules;
+    }
+
+    ScoringRules getExperimentRules() {
+        return experimentRules;
+    }
+
+    int getExperimentPercent() {
+        return experimentPercent;
+    }
+
+    String getVersion() {
+        return version;
+    }
+
+    Date getLoadedAt() {
+        return loadedAt;
+    }
+}
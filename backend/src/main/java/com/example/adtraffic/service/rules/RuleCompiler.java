@@ -0,0 +1,337 @@
+package com.example.adtraffic.service.rules;
+
+import com.example.adtraffic.model.VelocitySnapshot;
+import com.example.adtraffic.model.VelocitySnapshot.Window;
+import com.example.adtraffic.service.rules.ScoringRules.CompiledRule;
+import com.example.adtraffic.service.scoring.ScoringStage;
+import com.example.adtraffic.util.InteractionFeatures.Trajectory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 把规则文件编译为RuleBook。特征名在编译时解析为取值函数，条件组合为Predicate，
+ * 任何未知的维度、参数、特征或运算符都会使整个文件编译失败，由调用方保留旧规则。
+ *
+ * <pre>
+ * {
+ *   "defaultRuleSet": "baseline",
+ *   "experiment": {"ruleSet": "candidate", "percent": 10, "salt": "2024-06"},
+ *   "ruleSets": {
+ *     "baseline": {
+ *       "weights": {"ip": 30, "click": 30, "session": 25, "device": 15},
+ *       "cutoffs": {"genuine": 80, "suspicious": 50},
+ *       "parameters": {"click.fast-interval-ms": 1000},
+ *       "rules": [{"name": "...", "when": {"all": [{"feature": "score.device", "op": "<=", "value": 2}]},
+ *                  "adjust": -10, "cap": 79}]
+ *     },
+ *     "candidate": {"extends": "baseline", "cutoffs": {"genuine": 75}}
+ *   }
+ * }
+ * </pre>
+ */
+final class RuleCompiler {
+
+    private static final int MAX_EXTENDS_DEPTH = 8;
+    // extends时逐项覆盖的节，必须是对象
+    private static final List<String> MERGED_SECTIONS = List.of("weights", "cutoffs", "parameters");
+
+    private final String[] stageNames;
+    private final int[] maxScores;
+
+    RuleCompiler(List<ScoringStage> stages) {
+        stageNames = new String[stages.size()];
+        maxScores = new int[stages.size()];
+        for (int i = 0; i < stages.size(); i++) {
+            stageNames[i] = stages.get(i).name();
+            maxScores[i] = stages.get(i).maxScore();
+        }
+    }
+
+    RuleBook compile(JsonNode root, String version) {
+        JsonNode ruleSetNodes = root.path("ruleSets");
+        if (!ruleSetNodes.isObject() || ruleSetNodes.isEmpty()) {
+            throw new IllegalArgumentException("缺少ruleSets");
+        }
+        Map<String, ScoringRules> ruleSets = new LinkedHashMap<>();
+        Iterator<String> names = ruleSetNodes.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            ruleSets.put(name, compileRuleSet(name, resolve(ruleSetNodes, name, 0)));
+        }
+
+        String defaultName = root.path("defaultRuleSet").asText(ruleSets.keySet().iterator().next());
+        ScoringRules defaultRules = require(ruleSets, defaultName);
+        JsonNode experiment = root.path("experiment");
+        if (!experiment.isObject()) {
+            return new RuleBook(ruleSets, defaultRules, null, 0, 0, version);
+        }
+        ScoringRules experimentRules = require(ruleSets, experiment.path("ruleSet").asText());
+        int percent = experiment.path("percent").asInt(0);
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("experiment.percent必须在0到100之间");
+        }
+        long salt = experiment.path("salt").asText("").hashCode();
+        return new RuleBook(ruleSets, defaultRules, experimentRules, percent, salt, version);
+    }
+
+    /**
+     * 展开extends：子规则集的weights、cutoffs、parameters逐项覆盖父规则集，rules整体覆盖
+     */
+    private ObjectNode resolve(JsonNode ruleSetNodes, String name, int depth) {
+        JsonNode node = ruleSetNodes.path(name);
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("规则集不存在: " + name);
+        }
+        if (depth > MAX_EXTENDS_DEPTH) {
+            throw new IllegalArgumentException("规则集extends层级过深: " + name);
+        }
+        for (String section : MERGED_SECTIONS) {
+            if (node.has(section) && !node.get(section).isObject()) {
+                throw new IllegalArgumentException(name + ": " + section + "必须是对象");
+            }
+        }
+        if (!node.has("extends")) {
+            return ((ObjectNode) node).deepCopy();
+        }
+        // 父规则集的各节已在递归中检查过
+        ObjectNode merged = resolve(ruleSetNodes, node.get("extends").asText(), depth + 1);
+        for (String section : MERGED_SECTIONS) {
+            if (node.has(section)) {
+                ObjectNode target = merged.has(section) ? (ObjectNode) merged.get(section) : merged.putObject(section);
+                target.setAll((ObjectNode) node.get(section));
+            }
+        }
+        if (node.has("rules")) {
+            merged.set("rules", node.get("rules"));
+        }
+        return merged;
+    }
+
+    private ScoringRules compileRuleSet(String name, JsonNode node) {
+        JsonNode weightNode = node.path("weights");
+        int[] weights = new int[stageNames.length];
+        double[] weightFactors = new double[stageNames.length];
+        int weightSum = 0;
+        for (int i = 0; i < stageNames.length; i++) {
+            weights[i] = weightNode.path(stageNames[i]).asInt(maxScores[i]);
+            if (weights[i] < 0) {
+                throw new IllegalArgumentException(name + ": 权重不能为负数: " + stageNames[i]);
+            }
+            weightFactors[i] = maxScores[i] > 0 ? (double) weights[i] / maxScores[i] : 0;
+            weightSum += weights[i];
+        }
+        Iterator<String> weightKeys = weightNode.fieldNames();
+        while (weightKeys.hasNext()) {
+            stageIndex(weightKeys.next());
+        }
+        if (weightSum != 100) {
+            throw new IllegalArgumentException(name + ": 各维度权重之和必须为100，当前为" + weightSum);
+        }
+
+        int genuineCutoff = node.path("cutoffs").path("genuine").asInt(80);
+        int suspiciousCutoff = node.path("cutoffs").path("suspicious").asInt(50);
+        if (suspiciousCutoff > genuineCutoff) {
+            throw new IllegalArgumentException(name + ": suspicious分数线不能高于genuine");
+        }
+
+        double[] parameters = new double[RuleParameter.values().length];
+        for (RuleParameter parameter : RuleParameter.values()) {
+            parameters[parameter.ordinal()] = parameter.getDefaultValue();
+        }
+        Iterator<Map.Entry<String, JsonNode>> parameterNodes = node.path("parameters").fields();
+        while (parameterNodes.hasNext()) {
+            Map.Entry<String, JsonNode> entry = parameterNodes.next();
+            if (!entry.getValue().isNumber()) {
+                throw new IllegalArgumentException(name + ": 参数必须是数值: " + entry.getKey());
+            }
+            parameters[RuleParameter.fromKey(entry.getKey()).ordinal()] = entry.getValue().asDouble();
+        }
+
+        List<CompiledRule> rules = new ArrayList<>();
+        for (JsonNode ruleNode : node.path("rules")) {
+            String ruleName = ruleNode.path("name").asText("rule" + rules.size());
+            try {
+                rules.add(new CompiledRule(ruleName, condition(ruleNode.path("when")),
+                        ruleNode.path("adjust").asInt(0), ruleNode.path("cap").asInt(-1)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(name + "." + ruleName + ": " + e.getMessage(), e);
+            }
+        }
+        return new ScoringRules(name, stageNames.clone(), weights, weightFactors,
+                genuineCutoff, suspiciousCutoff, parameters, rules.toArray(new CompiledRule[0]));
+    }
+
+    private Predicate<RuleInput> condition(JsonNode node) {
+        if (node.isMissingNode() || node.isNull()) {
+            throw new IllegalArgumentException("缺少when条件");
+        }
+        if (node.has("all") || node.has("any")) {
+            boolean all = node.has("all");
+            String key = all ? "all" : "any";
+            JsonNode children = node.get(key);
+            // 空列表会使all恒成立、any恒不成立，视为配置错误
+            if (!children.isArray() || children.isEmpty()) {
+                throw new IllegalArgumentException(key + "必须是非空数组");
+            }
+            List<Predicate<RuleInput>> predicates = new ArrayList<>(children.size());
+            for (JsonNode child : children) {
+                predicates.add(condition(child));
+            }
+            if (predicates.size() == 1) {
+                return predicates.get(0);
+            }
+            return all ? input -> {
+                for (Predicate<RuleInput> predicate : predicates) {
+                    if (!predicate.test(input)) {
+                        return false;
+                    }
+                }
+                return true;
+            } : input -> {
+                for (Predicate<RuleInput> predicate : predicates) {
+                    if (predicate.test(input)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+        if (node.has("not")) {
+            return condition(node.get("not")).negate();
+        }
+        ToDoubleFunction<RuleInput> feature = feature(node.path("feature").asText());
+        JsonNode valueNode = node.path("value");
+        if (!valueNode.isNumber() && !valueNode.isBoolean()) {
+            throw new IllegalArgumentException("value必须是数值或布尔值");
+        }
+        double value = valueNode.isBoolean() ? (valueNode.asBoolean() ? 1 : 0) : valueNode.asDouble();
+        // 缺失的特征取NaN，与任何值比较都不成立（!=除外）
+        switch (node.path("op").asText()) {
+            case ">":
+                return input -> feature.applyAsDouble(input) > value;
+            case ">=":
+                return input -> feature.applyAsDouble(input) >= value;
+            case "<":
+                return input -> feature.applyAsDouble(input) < value;
+            case "<=":
+                return input -> feature.applyAsDouble(input) <= value;
+            case "==":
+                return input -> feature.applyAsDouble(input) == value;
+            case "!=":
+                return input -> feature.applyAsDouble(input) != value;
+            default:
+                throw new IllegalArgumentException("未知的运算符: " + node.path("op").asText());
+        }
+    }
+
+    /**
+     * 特征名解析为取值函数：score.total、score.&lt;维度&gt;、detail.&lt;明细键&gt;、
+     * velocity.&lt;指标&gt;.&lt;窗口&gt;、trajectory.&lt;轨迹特征&gt;
+     */
+    private ToDoubleFunction<RuleInput> feature(String name) {
+        int dot = name.indexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("未知的特征: " + name);
+        }
+        String group = name.substring(0, dot);
+        String key = name.substring(dot + 1);
+        switch (group) {
+            case "score":
+                if (key.equals("total")) {
+                    return RuleInput::getTotalScore;
+                }
+                int index = stageIndex(key);
+                return input -> input.stageScore(index);
+            case "detail":
+                return input -> numeric(input.getDetails().get(key));
+            case "velocity":
+                return velocityFeature(key);
+            case "trajectory":
+                return trajectoryFeature(key);
+            default:
+                throw new IllegalArgumentException("未知的特征: " + name);
+        }
+    }
+
+    private static ToDoubleFunction<RuleInput> velocityFeature(String key) {
+        int dot = key.lastIndexOf('.');
+        String label = dot >= 0 ? key.substring(dot + 1) : "";
+        Window window = Arrays.stream(Window.values()).filter(w -> w.getLabel().equals(label)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("未知的时间窗口: velocity." + key));
+        switch (key.substring(0, dot)) {
+            case "ip-requests":
+                return input -> velocity(input).ipRequests(window);
+            case "subnet-requests":
+                return input -> velocity(input).subnetRequests(window);
+            case "fingerprint-requests":
+                return input -> velocity(input).fingerprintRequests(window);
+            case "ip-user-agents":
+                return input -> velocity(input).ipUserAgents(window);
+            case "fingerprint-ips":
+                return input -> velocity(input).fingerprintIps(window);
+            default:
+                throw new IllegalArgumentException("未知的特征: velocity." + key);
+        }
+    }
+
+    private static ToDoubleFunction<RuleInput> trajectoryFeature(String key) {
+        switch (key) {
+            case "samples":
+                return input -> trajectory(input).getSamples();
+            case "straightness":
+                return input -> trajectory(input).getStraightness();
+            case "mean-curvature":
+                return input -> trajectory(input).getMeanCurvature();
+            case "collinear-ratio":
+                return input -> trajectory(input).getCollinearRatio();
+            case "speed-variation":
+                return input -> trajectory(input).getSpeedVariation();
+            case "mean-jerk":
+                return input -> trajectory(input).getMeanJerk();
+            case "fixed-interval-ratio":
+                return input -> trajectory(input).getFixedIntervalRatio();
+            case "teleports":
+                return input -> trajectory(input).getTeleports();
+            default:
+                throw new IllegalArgumentException("未知的特征: trajectory." + key);
+        }
+    }
+
+    private static VelocitySnapshot velocity(RuleInput input) {
+        return input.getContext().getVelocity();
+    }
+
+    private static Trajectory trajectory(RuleInput input) {
+        return input.getContext().getTrajectory();
+    }
+
+    private static double numeric(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof Boolean bool) {
+            return bool ? 1 : 0;
+        }
+        return Double.NaN;
+    }
+
+    private int stageIndex(String stage) {
+        for (int i = 0; i < stageNames.length; i++) {
+            if (stageNames[i].equals(stage)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("未知的评分维度: " + stage);
+    }
+
+    private static ScoringRules require(Map<String, ScoringRules> ruleSets, String name) {
+        ScoringRules rules = ruleSets.get(name);
+        if (rules == null) {
+            throw new IllegalArgumentException("规则集不存在: " + name);
+        }
+        return rules;
+    }
+}
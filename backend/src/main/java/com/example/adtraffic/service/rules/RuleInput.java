@@ -0,0 +1,38 @@
+package com.example.adtraffic.service.rules;
+
+import com.example.adtraffic.service.scoring.ScoringContext;
+import java.util.Map;
+
+/**
+ * 规则条件的输入：评分上下文、各维度明细，以及按权重换算后的各维度得分和总分（规则调整前）
+ */
+public final class RuleInput {
+
+    private final ScoringContext context;
+    private final Map<String, Object> details;
+    private final int[] stageScores;
+    private final int totalScore;
+
+    RuleInput(ScoringContext context, Map<String, Object> details, int[] stageScores, int totalScore) {
+        this.context = context;
+        this.details = details;
+        this.stageScores = stageScores;
+        this.totalScore = totalScore;
+    }
+
+    public ScoringContext getContext() {
+        return context;
+    }
+
+    public Map<String, Object> getDetails() {
+        return details;
+    }
+
+    public int stageScore(int index) {
+        return stageScores[index];
+    }
+
+    public int getTotalScore() {
+        return totalScore;
+    }
+}
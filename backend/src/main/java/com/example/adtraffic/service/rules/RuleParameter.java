@@ -0,0 +1,41 @@
+package com.example.adtraffic.service.rules;
+
+/**
+ * 评分维度中可由规则文件调整的阈值参数，规则文件parameters中未配置的取默认值
+ */
+public enum RuleParameter {
+
+    // 小于该间隔（毫秒）的点击视为可疑点击
+    CLICK_FAST_INTERVAL_MS("click.fast-interval-ms", 1000),
+    // 出现小于该间隔（毫秒）的点击时点击速度直接0分
+    CLICK_MIN_INTERVAL_MS("click.min-interval-ms", 50),
+    // 会话时长（秒）低于该值0分
+    SESSION_SHORT_SECONDS("session.short-seconds", 5),
+    // 会话时长（秒）低于该值得一半分
+    SESSION_MEDIUM_SECONDS("session.medium-seconds", 30);
+
+    private final String key;
+    private final double defaultValue;
+
+    RuleParameter(String key, double defaultValue) {
+        this.key = key;
+        this.defaultValue = defaultValue;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public double getDefaultValue() {
+        return defaultValue;
+    }
+
+    public static RuleParameter fromKey(String key) {
+        for (RuleParameter parameter : values()) {
+            if (parameter.key.equals(key)) {
+                return parameter;
+            }
+        }
+        throw new IllegalArgumentException("未知的参数: " + key);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.adtraffic.service.rules;
+
+import com.example.adtraffic.service.scoring.ScoringContext;
+import com.example.adtraffic.service.scoring.ScoringPipeline.PipelineResult;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 编译后的规则集，不可变：各维度权重换算系数、结论分数线、阈值参数和附加规则都已展开为数组，
+ * 条件是加载时组合好的Predicate，评分时按顺序逐条判断，不再解析或遍历规则文件
+ */
+public final class ScoringRules {
+
+    public static final String GENUINE = "真实流量";
+    public static final String SUSPICIOUS = "可疑流量";
+    public static final String FAKE = "假流量";
+
+    private final String name;
+    private final String[] stageNames;
+    private final int[] weights;
+    // 维度得分乘以该系数即按权重换算后的得分（weight / maxScore）
+    private final double[] weightFactors;
+    private final int genuineCutoff;
+    private final int suspiciousCutoff;
+    private final double[] parameters;
+    private final CompiledRule[] rules;
+
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder genuine = new LongAdder();
+    private final LongAdder suspicious = new LongAdder();
+    private final LongAdder fake = new LongAdder();
+
+    ScoringRules(String name, String[] stageNames, int[] weights, double[] weightFactors,
+                 int genuineCutoff, int suspiciousCutoff, double[] parameters, CompiledRule[] rules) {
+        this.name = name;
+        this.stageNames = stageNames;
+        this.weights = weights;
+        this.weightFactors = weightFactors;
+        this.genuineCutoff = genuineCutoff;
+        this.suspiciousCutoff = suspiciousCutoff;
+        this.parameters = parameters;
+        this.rules = rules;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double parameter(RuleParameter parameter) {
+        return parameters[parameter.ordinal()];
+    }
+
+    /**
+     * 按权重换算各维度得分，再依次应用附加规则，得到最终总分（0~100）
+     */
+    public Evaluation evaluate(ScoringContext context, PipelineResult pipelineResult) {
+        int[] scores = new int[stageNames.length];
+        int total = 0;
+        for (int i = 0; i < stageNames.length; i++) {
+            scores[i] = (int) Math.round(pipelineResult.stageScore(stageNames[i]) * weightFactors[i]);
+            total += scores[i];
+        }
+        RuleInput input = new RuleInput(context, pipelineResult.getDetails(), scores, total);
+        int adjusted = total;
+        List<String> fired = null;
+        for (CompiledRule rule : rules) {
+            if (!rule.condition.test(input)) {
+                continue;
+            }
+            adjusted += rule.adjust;
+            if (rule.cap >= 0) {
+                adjusted = Math.min(adjusted, rule.cap);
+            }
+            rule.hits.increment();
+            if (fired == null) {
+                fired = new ArrayList<>(2);
+            }
+            fired.add(rule.name);
+        }
+        evaluated.increment();
+        return new Evaluation(scores, Math.max(0, Math.min(adjusted, 100)), fired);
+    }
+
+    /**
+     * 按分数线得出结论
+     */
+    public String conclude(int totalScore) {
+        if (totalScore >= genuineCutoff) {
+            genuine.increment();
+            return GENUINE;
+        } else if (totalScore >= suspiciousCutoff) {
+            suspicious.increment();
+            return SUSPICIOUS;
+        }
+        fake.increment();
+        return FAKE;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        Map<String, Integer> weightMap = new LinkedHashMap<>();
+        for (int i = 0; i < stageNames.length; i++) {
+            weightMap.put(stageNames[i], weights[i]);
+        }
+        stats.put("weights", weightMap);
+        stats.put("cutoffs", Map.of("genuine", genuineCutoff, "suspicious", suspiciousCutoff));
+        Map<String, Double> parameterMap = new LinkedHashMap<>();
+        for (RuleParameter parameter : RuleParameter.values()) {
+            parameterMap.put(parameter.getKey(), parameters[parameter.ordinal()]);
+        }
+        stats.put("parameters", parameterMap);
+        Map<String, Long> ruleHits = new LinkedHashMap<>();
+        for (CompiledRule rule : rules) {
+            ruleHits.put(rule.name, rule.hits.sum());
+        }
+        stats.put("ruleHits", ruleHits);
+        stats.put("evaluated", evaluated.sum());
+        Map<String, Long> conclusions = new LinkedHashMap<>();
+        conclusions.put(GENUINE, genuine.sum());
+        conclusions.put(SUSPICIOUS, suspicious.sum());
+        conclusions.put(FAKE, fake.sum());
+        stats.put("conclusions", conclusions);
+        return stats;
+    }
+
+    /**
+     * 一次评分的规则计算结果
+     */
+    public final class Evaluation {
+        private final int[] stageScores;
+        private final int totalScore;
+        private final List<String> firedRules;
+
+        private Evaluation(int[] stageScores, int totalScore, List<String> firedRules) {
+            this.stageScores = stageScores;
+            this.totalScore = totalScore;
+            this.firedRules = firedRules;
+        }
+
+        /**
+         * 按权重换算后的维度得分，未知维度返回0
+         */
+        public int stageScore(String stage) {
+            for (int i = 0; i < stageNames.length; i++) {
+                if (stageNames[i].equals(stage)) {
+                    return stageScores[i];
+                }
+            }
+            return 0;
+        }
+
+        public int getTotalScore() {
+            return totalScore;
+        }
+
+        /**
+         * 命中的附加规则名称，没有命中时为空列表
+         */
+        public List<String> getFiredRules() {
+            return firedRules != null ? firedRules : List.of();
+        }
+    }
+
+    static final class CompiledRule {
+        private final String name;
+        private final Predicate<RuleInput> condition;
+        private final int adjust;
+        // 命中后总分的上限，-1表示不限
+        private final int cap;
+        private final LongAdder hits = new LongAdder();
+
+        CompiledRule(String name, Predicate<RuleInput> condition, int adjust, int cap) {
+            this.name = name;
+            this.condition = condition;
+            this.adjust = adjust;
+            this.cap = cap;
+        }
+    }
+}
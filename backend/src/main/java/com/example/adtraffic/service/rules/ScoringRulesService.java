@@ -0,0 +1,158 @@
+package com.example.adtraffic.service.rules;
+
+import com.example.adtraffic.service.scoring.ScoringPipeline;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * 评分规则：从JSON规则文件加载各维度权重、结论分数线、阈值参数和附加规则，编译后原子替换。
+ * 本地文件修改后自动重新加载，编译失败时保留当前规则；classpath中的规则文件只在启动时加载
+ */
+@Service
+@Slf4j
+public class ScoringRulesService {
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final RuleCompiler compiler;
+    private final String source;
+    private volatile RuleBook current;
+    private volatile String lastError;
+    // 加载失败的文件版本，文件再次变化前不重复尝试
+    private volatile String failedVersion;
+    private volatile long reloads;
+
+    public ScoringRulesService(
+            ResourceLoader resourceLoader,
+            ObjectMapper objectMapper,
+            ScoringPipeline scoringPipeline,
+            @Value("${scoring.rules.file:classpath:scoring-rules.json}") String source) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.compiler = new RuleCompiler(scoringPipeline.getStages());
+        this.source = source.trim();
+        try {
+            this.current = load(version());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("无法加载评分规则 " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 本次请求使用的规则集（参与A/B实验时按IP分流）
+     */
+    public ScoringRules select(String ip) {
+        return current.select(ip);
+    }
+
+    /**
+     * 定期检查规则文件是否变化，变化后重新编译
+     */
+    @Scheduled(fixedDelayString = "${scoring.rules.reload-check-interval-ms:10000}")
+    public void reloadIfChanged() {
+        String version = version();
+        if (!version.equals(current.getVersion()) && !version.equals(failedVersion)) {
+            reload();
+        }
+    }
+
+    /**
+     * 立即重新加载规则文件，失败时保留当前规则并返回错误信息，成功返回null
+     */
+    public synchronized String reload() {
+        String version = version();
+        try {
+            long started = System.nanoTime();
+            RuleBook fresh = load(version);
+            current = fresh;
+            lastError = null;
+            failedVersion = null;
+            reloads++;
+            log.info("评分规则已加载: {} 个规则集 {}, 默认 {}, 实验 {} ({}%), 耗时 {}μs",
+                    fresh.getRuleSets().size(), fresh.getRuleSets().keySet(), fresh.getDefaultRules().getName(),
+                    fresh.getExperimentRules() != null ? fresh.getExperimentRules().getName() : "无",
+                    fresh.getExperimentPercent(), (System.nanoTime() - started) / 1000);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // 规则文件内容的问题都应记为本版本加载失败，否则定时检查会反复重试
+            lastError = e.getMessage();
+            failedVersion = version;
+            log.error("评分规则 {} 加载失败，继续使用当前规则: {}", source, e.getMessage());
+            return lastError;
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        RuleBook book = current;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("source", source);
+        stats.put("loadedAt", book.getLoadedAt());
+        stats.put("reloads", reloads);
+        stats.put("lastError", lastError);
+        stats.put("defaultRuleSet", book.getDefaultRules().getName());
+        if (book.getExperimentRules() != null) {
+            stats.put("experiment", Map.of("ruleSet", book.getExperimentRules().getName(),
+                    "percent", book.getExperimentPercent()));
+        }
+        List<Map<String, Object>> ruleSets = new ArrayList<>();
+        for (ScoringRules rules : book.getRuleSets().values()) {
+            ruleSets.add(rules.getStatistics());
+        }
+        stats.put("ruleSets", ruleSets);
+        return stats;
+    }
+
+    private RuleBook load(String version) throws IOException {
+        JsonNode root;
+        try (InputStream input = open()) {
+            root = objectMapper.readTree(input);
+        }
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("规则文件内容不是JSON对象");
+        }
+        return compiler.compile(root, version);
+    }
+
+    private InputStream open() throws IOException {
+        if (source.startsWith("classpath:")) {
+            Resource resource = resourceLoader.getResource(source);
+            if (!resource.exists()) {
+                throw new IOException("规则文件不存在");
+            }
+            return resource.getInputStream();
+        }
+        return Files.newInputStream(localPath());
+    }
+
+    /**
+     * 本地文件的修改时间和大小，用于判断是否需要重新加载
+     */
+    private String version() {
+        if (source.startsWith("classpath:")) {
+            return source;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(localPath(), BasicFileAttributes.class);
+            return source + ":" + attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+        } catch (IOException e) {
+            return source + ":missing";
+        }
+    }
+
+    private Path localPath() {
+        return Paths.get(source.startsWith("file:") ? source.substring(5) : source);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.adtraffic.service.scoring;
+
+import com.example.adtraffic.model.EventSeries;
+import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.service.rules.RuleParameter;
+import com.example.adtraffic.service.rules.ScoringRules;
+import com.example.adtraffic.util.InteractionFeatures;
+import com.example.adtraffic.util.InteractionFeatures.ClickTiming;
+import com.example.adtraffic.util.InteractionFeatures.Trajectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+
+/**
+ * 点击和展示行为分析 (30分)
+ */
+@Component
+@Order(2)
+public class ClickBehaviorStage implements ScoringStage {
+
+    private final long timeoutMillis;
+
+    public ClickBehaviorStage(@Value("${scoring.pipeline.click.timeout-ms:50}") long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public String name() {
+        return "click";
+    }
+
+    @Override
+    public int maxScore() {
+        return 30;
+    }
+
+    @Override
+    public boolean ioBound() {
+        return false;
+    }
+
+    @Override
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public int score(ScoringContext context, Map<String, Object> details) {
+        TrafficData data = context.getData();
+        int score = 0;
+
+        // 2.1 点击速度和频率
+        EventSeries clicks = EventSeries.orEmpty(data.getClicks());
+        ScoringRules rules = context.getRules();
+        ClickTiming timing = InteractionFeatures.clickTiming(clicks,
+                (long) rules.parameter(RuleParameter.CLICK_FAST_INTERVAL_MS));
+        int speedScore = analyzeClickSpeed(timing, (long) rules.parameter(RuleParameter.CLICK_MIN_INTERVAL_MS));
+        details.put("clickSpeedScore", speedScore);
+        score += speedScore;
+
+        // 2.2 点击模式随机性
+        int patternScore = analyzeClickPattern(timing);
+        details.put("clickPatternScore", patternScore);
+        score += patternScore;
+        if (timing.getIntervals() > 0 && (speedScore < 10 || patternScore < 10)) {
+            // 记录扣分时的点击时间特征，便于解释判定结果
+            details.put("clickTiming", timing.toMap());
+        }
+
+        // 2.3 点击来源路径
+        int pathScore = analyzeClickPath(data);
+        details.put("clickPathScore", pathScore);
+        score += pathScore;
+
+        // 2.4 展示互动
+        int interactionScore = analyzeDisplayInteraction(timing, context.getTrajectory(), details);
+        details.put("displayInteractionScore", interactionScore);
+        score += interactionScore;
+
+        return score;
+    }
+
+    private int analyzeClickSpeed(ClickTiming timing, long minIntervalMillis) {
+        if (timing.getClicks() == 0) {
+            return 0;
+        }
+        if (timing.getIntervals() > 0 && timing.getMinIntervalMillis() < minIntervalMillis) {
+            return 0; // 连续点击间隔超出人手速度
+        }
+
+        // 根据可疑点击（间隔小于click.fast-interval-ms）比例评分
+        double suspiciousRatio = (double) timing.getFastIntervals() / timing.getClicks();
+        if (suspiciousRatio > 0.5) {
+            return 0;
+        } else if (suspiciousRatio > 0.2) {
+            return 5;
+        }
+        return 10;
+    }
+
+    private int analyzeClickPattern(ClickTiming timing) {
+        // 分析点击模式随机性：间隔过于均匀、呈固定周期、分布集中，或反复点击同一坐标
+        if (timing.getIntervals() < 3) {
+            return 10; // 点击太少，无法判断
+        }
+        int score = 10;
+        if (timing.getIntervalVariation() < 0.1) {
+            score -= 5;
+        } else if (timing.getIntervalVariation() < 0.25) {
+            score -= 2;
+        }
+        if (timing.getPeriodicRatio() > 0.8) {
+            score -= 3;
+        }
+        if (timing.getIntervals() >= 5 && timing.getIntervalEntropy() < 0.3) {
+            score -= 2;
+        }
+        if ((double) timing.getSamePositionClicks() / (timing.getClicks() - 1) > 0.8) {
+            score -= 3;
+        }
+        return Math.max(score, 0);
+    }
+
+    private int analyzeClickPath(TrafficData data) {
+        // 分析点击路径
+        return 5;
+    }
+
+    private int analyzeDisplayInteraction(ClickTiming timing, Trajectory trajectory, Map<String, Object> details) {
+        // 分析展示互动：点击前是否有鼠标移动，以及鼠标轨迹是否像脚本生成
+        if (trajectory.getSamples() < 2) {
+            return timing.getClicks() > 0 ? 1 : 3; // 没有鼠标移动却有点击
+        }
+        if (trajectory.getSegments() < 10) {
+            return 4; // 移动太少，轨迹特征不可靠
+        }
+        int score = 5;
+        if (trajectory.getStraightness() > 0.98 || trajectory.getCollinearRatio() > 0.9) {
+            score -= 2; // 直线移动
+        }
+        if (trajectory.getSpeedVariation() < 0.05 || trajectory.getMeanJerk() == 0) {
+            score -= 2; // 匀速移动
+        }
+        if (trajectory.getFixedIntervalRatio() > 0.95) {
+            score -= 1; // 采样间隔完全固定，像回放的事件
+        }
+        if (trajectory.getTeleports() > trajectory.getSegments() / 10) {
+            score -= 2; // 频繁跳变
+        }
+        score = Math.max(score, 0);
+        if (score < 5) {
+            details.put("mouseTrajectory", trajectory.toMap());
+        }
+        return score;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.adtraffic.service.scoring;
+
+import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.model.VelocitySnapshot;
+import com.example.adtraffic.model.VelocitySnapshot.Window;
+import com.example.adtraffic.service.CardinalityStore;
+import com.example.adtraffic.service.CardinalityStore.Dimension;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 设备和浏览器指纹分析 (15分)
+ */
+@Component
+@Order(4)
+public class DeviceFingerprintStage implements ScoringStage {
+
+    private final CardinalityStore cardinalityStore;
+    private final long timeoutMillis;
+
+    public DeviceFingerprintStage(
+            CardinalityStore cardinalityStore,
+            @Value("${scoring.pipeline.device.timeout-ms:50}") long timeoutMillis) {
+        this.cardinalityStore = cardinalityStore;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public String name() {
+        return "device";
+    }
+
+    @Override
+    public int maxScore() {
+        return 15;
+    }
+
+    @Override
+    public boolean ioBound() {
+        return false;
+    }
+
+    @Override
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public int score(ScoringContext context, Map<String, Object> details) {
+        TrafficData data = context.getData();
+        int score = 0;
+
+        // 4.1 设备指纹重复性
+        int fingerprintScore = checkDeviceFingerprint(data, context.getVelocity(), details);
+        details.put("deviceFingerprintScore", fingerprintScore);
+        score += fingerprintScore;
+
+        // 4.2 浏览器行为
+        int browserScore = analyzeBrowserBehavior(data);
+        details.put("browserBehaviorScore", browserScore);
+        score += browserScore;
+
+        // 4.3 User-Agent可信度
+        int uaScore = analyzeUserAgent(data);
+        details.put("userAgentScore", uaScore);
+        score += uaScore;
+
+        return score;
+    }
+
+    private int checkDeviceFingerprint(TrafficData data, VelocitySnapshot velocity, Map<String, Object> details) {
+        // 检查设备指纹：缺少指纹，或同一指纹短时间内出现在大量IP上、请求过于频繁
+        if (!velocity.hasFingerprint()) {
+            return 2;
+        }
+        int score = 5;
+        // 小时级的不同IP数来自HyperLogLog，包含其他实例上的请求，数量较大时也不会饱和
+        long ips = cardinalityStore.estimate(Dimension.FINGERPRINT_IPS, data.getDeviceFingerprint());
+        if (ips > 20) {
+            score = 0;
+        } else if (ips > 5) {
+            score = 2;
+        }
+        if (velocity.fingerprintRequests(Window.MINUTE) > 60) {
+            score = Math.min(score, 1);
+        }
+
+        if (score < 5) {
+            Map<String, Object> fingerprintVelocity = new LinkedHashMap<>();
+            fingerprintVelocity.put("requests1m", velocity.fingerprintRequests(Window.MINUTE));
+            fingerprintVelocity.put("ips10m", velocity.fingerprintIps(Window.TEN_MINUTES));
+            fingerprintVelocity.put("ips1h", ips);
+            details.put("fingerprintVelocity", fingerprintVelocity);
+        }
+        return score;
+    }
+
+    private int analyzeBrowserBehavior(TrafficData data) {
+        // 分析浏览器行为
+        return 5;
+    }
+
+    private int analyzeUserAgent(TrafficData data) {
+        // 分析User-Agent
+        return 5;
+    }
+}
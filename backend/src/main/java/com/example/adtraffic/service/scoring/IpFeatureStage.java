@@ -0,0 +1,222 @@
+package com.example.adtraffic.service.scoring;
+
+import com.example.adtraffic.model.IpEnrichment;
+import com.example.adtraffic.model.IpEnrichment.LookupStatus;
+import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.model.VelocitySnapshot;
+import com.example.adtraffic.model.VelocitySnapshot.Window;
+import com.example.adtraffic.service.CardinalityStore;
+import com.example.adtraffic.service.CardinalityStore.Dimension;
+import com.example.adtraffic.service.IpBlocklistService;
+import com.example.adtraffic.service.IpEnrichmentService;
+import com.example.adtraffic.service.audit.AuditLog;
+import com.example.adtraffic.util.CountryLanguageTable;
+import com.example.adtraffic.util.CountryLanguageTable.LanguageMatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * IP地址和网络特征分析 (30分)：代理/数据中心、IP行为模式、地理位置一致性。
+ * 恶意IP黑名单已在进入流水线前检查
+ */
+@Component
+@Order(1)
+@Slf4j
+public class IpFeatureStage implements ScoringStage {
+
+    private final IpEnrichmentService ipEnrichmentService;
+    private final IpBlocklistService ipBlocklistService;
+    private final CardinalityStore cardinalityStore;
+    private final CountryLanguageTable countryLanguageTable;
+    private final AuditLog auditLog;
+    private final long timeoutMillis;
+
+    // 没有语言信息时假设用户使用简体中文
+    private static final String DEFAULT_LANGUAGE = "zh-CN";
+    private static final String FINGERPRINT_LANGUAGE_KEY = "language";
+
+    public IpFeatureStage(
+            IpEnrichmentService ipEnrichmentService,
+            IpBlocklistService ipBlocklistService,
+            CardinalityStore cardinalityStore,
+            CountryLanguageTable countryLanguageTable,
+            AuditLog auditLog,
+            @Value("${scoring.pipeline.ip.timeout-ms:100}") long timeoutMillis) {
+        this.ipEnrichmentService = ipEnrichmentService;
+        this.ipBlocklistService = ipBlocklistService;
+        this.cardinalityStore = cardinalityStore;
+        this.countryLanguageTable = countryLanguageTable;
+        this.auditLog = auditLog;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public String name() {
+        return "ip";
+    }
+
+    @Override
+    public int maxScore() {
+        // 代理10 + 行为模式10 + 地理位置5
+        return 25;
+    }
+
+    @Override
+    public boolean ioBound() {
+        return true;
+    }
+
+    @Override
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public int score(ScoringContext context, Map<String, Object> details) {
+        TrafficData data = context.getData();
+        int score = 0;
+
+        // 获取IP富化信息（地理位置、ASN、匿名标记），供后续判断和结果展示使用
+        IpEnrichment enrichment = ipEnrichmentService.enrich(data.getIp());
+        context.setEnrichment(enrichment);
+        cardinalityStore.recordAsn(enrichment.getAsnNumber(), data.getDeviceFingerprint());
+
+        // 1.1 检查是否来自数据中心或代理
+        boolean isProxy = checkIfProxy(enrichment);
+        int proxyScore = isProxy ? 0 : 10;
+        details.put("proxyScore", proxyScore);
+        if (isProxy && (enrichment.getProxyKeyword() != null || enrichment.getDatacenterKeyword() != null)) {
+            // 记录命中的ASN关键词，便于解释判定结果
+            details.put("asnMatchedKeyword", enrichment.getProxyKeyword() != null
+                    ? enrichment.getProxyKeyword() : enrichment.getDatacenterKeyword());
+        }
+        score += proxyScore;
+
+        // 1.2 IP行为模式分析
+        int behaviorScore = analyzeIpBehaviorPattern(data, context.getVelocity(), details);
+        details.put("ipBehaviorScore", behaviorScore);
+        score += behaviorScore;
+
+        // 1.3 地理位置一致性
+        int geoScore = checkGeoLocation(data, enrichment);
+        details.put("geoLocationScore", geoScore);
+        score += geoScore;
+
+        return score;
+    }
+
+    private boolean checkIfProxy(IpEnrichment enrichment) {
+        // 代理黑名单（Tor出口节点、手动标记等）；匿名IP、数据中心、代理服务商及高风险国家的判定已在富化阶段完成
+        boolean listedProxy = ipBlocklistService.isListedProxy(enrichment.getIp());
+        boolean proxy = listedProxy || enrichment.isProxy();
+
+        // 判定依据写入审计日志
+        auditLog.ipChecked(enrichment, listedProxy, proxy);
+        return proxy;
+    }
+
+    private int analyzeIpBehaviorPattern(TrafficData data, VelocitySnapshot velocity, Map<String, Object> details) {
+        // 分析IP行为模式：同一IP及其网段的访问频率，同一IP切换User-Agent和设备指纹的次数
+        int score = 10;
+        long perMinute = velocity.ipRequests(Window.MINUTE);
+        if (perMinute > 30) {
+            score -= 6;
+        } else if (perMinute > 10) {
+            score -= 3;
+        }
+        if (velocity.ipRequests(Window.HOUR) > 300) {
+            score -= 2;
+        }
+        if (velocity.subnetRequests(Window.MINUTE) > 100) {
+            score -= 2; // 同一网段内多个IP轮换
+        }
+        int userAgents = velocity.ipUserAgents(Window.TEN_MINUTES);
+        if (userAgents > 5) {
+            score -= 3;
+        } else if (userAgents > 2) {
+            score -= 1;
+        }
+        // 同一IP在最近1到2小时内出现大量不同设备指纹（设备农场），NAT出口也会有较多指纹，阈值放宽
+        long fingerprints = cardinalityStore.estimate(Dimension.IP_FINGERPRINTS, data.getIp());
+        if (fingerprints > 50) {
+            score -= 3;
+        } else if (fingerprints > 20) {
+            score -= 1;
+        }
+        score = Math.max(score, 0);
+
+        if (score < 10) {
+            // 记录扣分时的访问频率，便于解释判定结果
+            Map<String, Object> ipVelocity = new LinkedHashMap<>();
+            for (Window window : Window.values()) {
+                ipVelocity.put("requests" + window.getLabel(), velocity.ipRequests(window));
+            }
+            ipVelocity.put("subnetRequests1m", velocity.subnetRequests(Window.MINUTE));
+            ipVelocity.put("userAgents10m", userAgents);
+            ipVelocity.put("fingerprints1h", fingerprints);
+            details.put("ipVelocity", ipVelocity);
+        }
+        return score;
+    }
+
+    private int checkGeoLocation(TrafficData data, IpEnrichment enrichment) {
+        // 检查地理位置一致性
+        String ip = enrichment.getIp();
+
+        // 检查私有IP和保留IP
+        if (enrichment.isLocalAddress()) {
+            log.debug("IP {} 是本地或私有地址，地理位置检查给予满分", ip);
+            return 5;
+        }
+
+        if (enrichment.getCountryStatus() == LookupStatus.UNAVAILABLE) {
+            // 数据库缺失已在GeoIpService启动时提示，这里每个请求都会执行
+            log.debug("Country数据库未初始化，无法检测地理位置: {}", ip);
+            return 5; // 默认给满分
+        }
+
+        if (enrichment.getCountryStatus() != LookupStatus.FOUND) {
+            return 3; // 未知位置或出错时给予中等分数
+        }
+
+        // 检查用户浏览器语言与IP地理位置是否匹配，国家不在对照表中或没有可用语言时视为匹配
+        boolean languageMatchesCountry = matchLanguage(data, enrichment.getCountryCode()) != LanguageMatch.MISMATCH;
+
+        if (enrichment.isHighRiskCountry()) {
+            return languageMatchesCountry ? 2 : 1; // 高风险国家得分较低，不匹配更低
+        }
+
+        return languageMatchesCountry ? 5 : 2; // 语言匹配较高分，不匹配较低分
+    }
+
+    /**
+     * 语言来源依次为Accept-Language、设备指纹中的language字段（如"language:zh-CN|..."），都没有时使用默认语言；
+     * 直接在原字符串的区间上匹配，不截取子串
+     */
+    private LanguageMatch matchLanguage(TrafficData data, String countryCode) {
+        String acceptLanguage = data.getAcceptLanguage();
+        if (acceptLanguage != null && !acceptLanguage.isBlank()) {
+            return countryLanguageTable.match(countryCode, acceptLanguage);
+        }
+        String fingerprint = data.getDeviceFingerprint();
+        int key = fingerprint != null ? fingerprint.indexOf(FINGERPRINT_LANGUAGE_KEY) : -1;
+        if (key >= 0) {
+            int start = key + FINGERPRINT_LANGUAGE_KEY.length();
+            if (start < fingerprint.length() && fingerprint.charAt(start) == ':') {
+                int end = start + 1;
+                while (end < fingerprint.length() && fingerprint.charAt(end) != '|' && fingerprint.charAt(end) != ',') {
+                    end++;
+                }
+                LanguageMatch match = countryLanguageTable.match(countryCode, fingerprint, start + 1, end);
+                if (match != LanguageMatch.UNKNOWN) {
+                    return match;
+                }
+            }
+        }
+        return countryLanguageTable.match(countryCode, DEFAULT_LANGUAGE);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.adtraffic.service.scoring;
+
+import com.example.adtraffic.model.EventSeries;
+import com.example.adtraffic.model.IpEnrichment;
+import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.model.VelocitySnapshot;
+import com.example.adtraffic.service.rules.ScoringRules;
+import com.example.adtraffic.util.InteractionFeatures;
+import com.example.adtraffic.util.InteractionFeatures.Trajectory;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 一次评分中各维度共享的输入。TrafficData、访问频率统计和规则集在评分期间只读，
+ * IP富化结果由IP维度写入（完成前或超时时为null），其他维度不应依赖它
+ */
+@Getter
+public class ScoringContext {
+
+    private final TrafficData data;
+
+    private final VelocitySnapshot velocity;
+
+    // 本次请求使用的规则集，各维度从中读取阈值参数
+    private final ScoringRules rules;
+
+    @Setter
+    private volatile IpEnrichment enrichment;
+
+    @Getter(AccessLevel.NONE)
+    private volatile Trajectory trajectory;
+
+    public ScoringContext(TrafficData data, VelocitySnapshot velocity, ScoringRules rules) {
+        this.data = data;
+        this.velocity = velocity;
+        this.rules = rules;
+    }
+
+    /**
+     * 鼠标轨迹特征，点击和会话维度共用，首次调用时计算（并发时可能重复计算，结果相同）
+     */
+    public Trajectory getTrajectory() {
+        Trajectory result = trajectory;
+        if (result == null) {
+            result = InteractionFeatures.trajectory(EventSeries.orEmpty(data.getMouseMovements()));
+            trajectory = result;
+        }
+        return result;
+    }
+}
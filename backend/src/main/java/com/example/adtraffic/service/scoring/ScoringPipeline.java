@@ -0,0 +1,254 @@
+package com.example.adtraffic.service.scoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 评分流水线：所有ScoringStage并发执行，I/O密集型维度在有界线程池（或Java 21虚拟线程）中运行，
+ * CPU密集型维度在ForkJoinPool中运行。每个维度有独立的时间预算，
+ * 超时或出错时使用中性分，慢查询不会拖慢整个请求。
+ * 各维度的实际耗时（包括超时后仍在执行的部分）和降级次数记录为Micrometer指标
+ */
+@Component
+@Slf4j
+public class ScoringPipeline {
+
+    private final List<ScoringStage> stages;
+    // 与stages一一对应
+    private final StageMeters[] stageMeters;
+    private final ExecutorService ioExecutor;
+    private final ForkJoinPool cpuPool;
+
+    public ScoringPipeline(
+            List<ScoringStage> stages,
+            MeterRegistry meterRegistry,
+            @Value("${scoring.pipeline.io-threads:32}") int ioThreads,
+            @Value("${scoring.pipeline.io-queue-capacity:1000}") int ioQueueCapacity,
+            @Value("${scoring.pipeline.cpu-parallelism:0}") int cpuParallelism,
+            @Value("${scoring.pipeline.io-virtual-threads:false}") boolean ioVirtualThreads) {
+        // 注入的列表已按@Order排序，明细和总分按该顺序合并
+        this.stages = List.copyOf(stages);
+        this.stageMeters = new StageMeters[this.stages.size()];
+        for (int i = 0; i < stageMeters.length; i++) {
+            stageMeters[i] = new StageMeters(this.stages.get(i).name(), meterRegistry);
+        }
+        ExecutorService virtualExecutor = ioVirtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.ioExecutor = virtualExecutor;
+        } else {
+            // 队列满时拒绝，该维度直接使用中性分；不在请求线程中执行，否则时间预算不起作用
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(ioThreads, ioThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(ioQueueCapacity), daemonThreads("scoring-io-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            this.ioExecutor = pool;
+        }
+        int parallelism = cpuParallelism > 0 ? cpuParallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger cpuThreadIndex = new AtomicInteger();
+        this.cpuPool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("scoring-cpu-" + cpuThreadIndex.incrementAndGet());
+            return thread;
+        }, null, true);
+        log.info("评分流水线: {} 个维度 {}, I/O线程 {}, CPU并行度 {}",
+                this.stages.size(), this.stages.stream().map(ScoringStage::name).toList(),
+                virtualExecutor != null ? "虚拟线程" : ioThreads, parallelism);
+    }
+
+    /**
+     * 并发执行所有维度并等待结果，最长等待时间为各维度预算中的最大值
+     */
+    public PipelineResult run(ScoringContext context) {
+        return runAsync(context).join();
+    }
+
+    /**
+     * 提交所有维度后立即返回，全部维度完成（或超时）后合并结果，调用线程不阻塞
+     */
+    public CompletableFuture<PipelineResult> runAsync(ScoringContext context) {
+        List<CompletableFuture<StageOutcome>> futures = new ArrayList<>(stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            futures.add(submit(i, context));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> merge(futures));
+    }
+
+    private PipelineResult merge(List<CompletableFuture<StageOutcome>> futures) {
+        PipelineResult result = new PipelineResult();
+        for (int i = 0; i < stages.size(); i++) {
+            ScoringStage stage = stages.get(i);
+            StageOutcome outcome = futures.get(i).join();
+            result.stageScores.put(stage.name(), outcome.score);
+            result.totalScore += outcome.score;
+            result.details.putAll(outcome.details);
+            if (outcome.degradation != null) {
+                result.degradedStages.put(stage.name(), outcome.degradation);
+                stageMeters[i].degraded(outcome.degradation);
+            }
+        }
+        return result;
+    }
+
+    private CompletableFuture<StageOutcome> submit(int index, ScoringContext context) {
+        ScoringStage stage = stages.get(index);
+        Executor executor = stage.ioBound() ? ioExecutor : cpuPool;
+        // 超时后返回中性分；已开始的任务继续执行，但其明细写入的是自己的Map，不会混入结果
+        CompletableFuture<StageOutcome> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> execute(stage, stageMeters[index], context), executor);
+        } catch (RejectedExecutionException e) {
+            // 线程池队列已满（或正在关闭）
+            return CompletableFuture.completedFuture(StageOutcome.degraded(stage.neutralScore(), "rejected"));
+        }
+        return future.completeOnTimeout(StageOutcome.degraded(stage.neutralScore(), "timeout"),
+                        stage.timeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private StageOutcome execute(ScoringStage stage, StageMeters meters, ScoringContext context) {
+        Map<String, Object> details = new HashMap<>();
+        long started = System.nanoTime();
+        try {
+            int score = stage.score(context, details);
+            return new StageOutcome(score, details, null);
+        } catch (RuntimeException e) {
+            log.warn("评分维度 {} 执行出错，使用中性分: {}", stage.name(), e.toString());
+            return StageOutcome.degraded(stage.neutralScore(), "error");
+        } finally {
+            meters.duration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public List<ScoringStage> getStages() {
+        return stages;
+    }
+
+    /**
+     * 线程池运行状态
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stages", stages.stream().map(ScoringStage::name).toList());
+        if (ioExecutor instanceof ThreadPoolExecutor pool) {
+            stats.put("ioExecutor", "platform");
+            stats.put("ioActiveThreads", pool.getActiveCount());
+            stats.put("ioPoolSize", pool.getPoolSize());
+            stats.put("ioQueueSize", pool.getQueue().size());
+            stats.put("ioCompletedTasks", pool.getCompletedTaskCount());
+        } else {
+            stats.put("ioExecutor", "virtual");
+        }
+        stats.put("cpuParallelism", cpuPool.getParallelism());
+        stats.put("cpuActiveThreads", cpuPool.getActiveThreadCount());
+        stats.put("cpuQueuedTasks", cpuPool.getQueuedSubmissionCount() + cpuPool.getQueuedTaskCount());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdown();
+        cpuPool.shutdown();
+    }
+
+    /**
+     * Java 21的每任务一个虚拟线程的执行器；项目以Java 17为基线编译，因此通过反射获取，
+     * 低版本运行时返回null并回退到平台线程池
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("当前Java版本不支持虚拟线程，评分流水线I/O维度使用平台线程池");
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger index = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 一次流水线执行的结果
+     */
+    @Getter
+    public static class PipelineResult {
+        private int totalScore;
+        // 维度名称 -> 得分
+        private final Map<String, Integer> stageScores = new LinkedHashMap<>();
+        private final Map<String, Object> details = new HashMap<>();
+        // 使用了中性分的维度 -> 原因（timeout / error / rejected）
+        private final Map<String, String> degradedStages = new LinkedHashMap<>();
+
+        public int stageScore(String name) {
+            return stageScores.getOrDefault(name, 0);
+        }
+    }
+
+    /**
+     * 单个维度的指标，构造时注册，评分时不再按名称查找
+     */
+    private static final class StageMeters {
+        private final Timer duration;
+        private final Counter timeouts;
+        private final Counter errors;
+        private final Counter rejections;
+
+        StageMeters(String stage, MeterRegistry registry) {
+            this.duration = Timer.builder("adtraffic.scoring.stage")
+                    .description("评分维度执行耗时")
+                    .tag("stage", stage)
+                    .register(registry);
+            this.timeouts = degradedCounter(stage, "timeout", registry);
+            this.errors = degradedCounter(stage, "error", registry);
+            this.rejections = degradedCounter(stage, "rejected", registry);
+        }
+
+        void degraded(String reason) {
+            if ("timeout".equals(reason)) {
+                timeouts.increment();
+            } else if ("rejected".equals(reason)) {
+                rejections.increment();
+            } else {
+                errors.increment();
+            }
+        }
+
+        private static Counter degradedCounter(String stage, String reason, MeterRegistry registry) {
+            return Counter.builder("adtraffic.scoring.stage.degraded")
+                    .description("评分维度使用中性分的次数")
+                    .tag("stage", stage)
+                    .tag("reason", reason)
+                    .register(registry);
+        }
+    }
+
+    private static final class StageOutcome {
+        private final int score;
+        private final Map<String, Object> details;
+        private final String degradation;
+
+        StageOutcome(int score, Map<String, Object> details, String degradation) {
+            this.score = score;
+            this.details = details;
+            this.degradation = degradation;
+        }
+
+        static StageOutcome degraded(int score, String reason) {
+            return new StageOutcome(score, Collections.emptyMap(), reason);
+        }
+    }
+}
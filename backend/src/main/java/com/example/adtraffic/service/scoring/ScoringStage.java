@@ -0,0 +1,39 @@
+package com.example.adtraffic.service.scoring;
+
+import java.util.Map;
+
+/**
+ * 评分维度。每个维度注册为一个Bean，由ScoringPipeline按@Order顺序并发执行，
+ * 评分明细写入传入的details，超时或出错时使用中性分
+ */
+public interface ScoringStage {
+
+    /**
+     * 维度名称，对应评分记录中的分项（ip、click、session、device）
+     */
+    String name();
+
+    /**
+     * 该维度满分
+     */
+    int maxScore();
+
+    /**
+     * 超时或出错时的中性分，默认取满分的一半
+     */
+    default int neutralScore() {
+        return maxScore() / 2;
+    }
+
+    /**
+     * 是否为I/O密集型（GeoIP、黑名单等查询），决定在哪个线程池中执行
+     */
+    boolean ioBound();
+
+    /**
+     * 时间预算（毫秒），超过后使用中性分
+     */
+    long timeoutMillis();
+
+    int score(ScoringContext context, Map<String, Object> details);
+}
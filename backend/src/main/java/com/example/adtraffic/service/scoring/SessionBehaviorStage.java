@@ -0,0 +1,112 @@
+package com.example.adtraffic.service.scoring;
+
+import com.example.adtraffic.model.EventSeries;
+import com.example.adtraffic.model.TrafficData;
+import com.example.adtraffic.service.rules.RuleParameter;
+import com.example.adtraffic.service.rules.ScoringRules;
+import com.example.adtraffic.util.InteractionFeatures;
+import com.example.adtraffic.util.InteractionFeatures.ScrollProfile;
+import com.example.adtraffic.util.InteractionFeatures.Trajectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+
+/**
+ * 用户会话和行为分析 (25分)
+ */
+@Component
+@Order(3)
+public class SessionBehaviorStage implements ScoringStage {
+
+    private final long timeoutMillis;
+
+    public SessionBehaviorStage(@Value("${scoring.pipeline.session.timeout-ms:50}") long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public String name() {
+        return "session";
+    }
+
+    @Override
+    public int maxScore() {
+        return 25;
+    }
+
+    @Override
+    public boolean ioBound() {
+        return false;
+    }
+
+    @Override
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public int score(ScoringContext context, Map<String, Object> details) {
+        TrafficData data = context.getData();
+        int score = 0;
+
+        // 3.1 会话时长
+        int durationScore = analyzeSessionDuration(data.getSessionData(), context.getRules());
+        details.put("sessionDurationScore", durationScore);
+        score += durationScore;
+
+        // 3.2 用户互动深度
+        int interactionScore = analyzeUserInteraction(data, context.getTrajectory());
+        details.put("userInteractionScore", interactionScore);
+        score += interactionScore;
+
+        // 3.3 转化行为一致性
+        int conversionScore = analyzeConversionBehavior(data);
+        details.put("conversionScore", conversionScore);
+        score += conversionScore;
+
+        return score;
+    }
+
+    private int analyzeSessionDuration(Map<String, Object> sessionData, ScoringRules rules) {
+        double duration = Double.parseDouble(sessionData.get("duration").toString());
+        if (duration < rules.parameter(RuleParameter.SESSION_SHORT_SECONDS)) {
+            return 0;
+        } else if (duration < rules.parameter(RuleParameter.SESSION_MEDIUM_SECONDS)) {
+            return 5;
+        }
+        return 10;
+    }
+
+    private int analyzeUserInteraction(TrafficData data, Trajectory trajectory) {
+        // 分析用户互动深度：鼠标移动、滚动和点击的数量，滚动是否有往回翻看
+        ScrollProfile scroll = InteractionFeatures.scroll(EventSeries.orEmpty(data.getScrollEvents()));
+        int clicks = EventSeries.orEmpty(data.getClicks()).size();
+        int score = 0;
+        if (trajectory.getSamples() >= 20) {
+            score += 4;
+        } else if (trajectory.getSamples() >= 2) {
+            score += 2;
+        }
+        if (scroll.getSamples() >= 3) {
+            score += 3;
+            if (scroll.getReversals() > 0) {
+                score += 1; // 来回滚动阅读
+            }
+            if (scroll.getSamples() >= 5 && scroll.getPeriodicRatio() > 0.9) {
+                score -= 2; // 定时滚动
+            }
+        } else if (scroll.getSamples() > 0) {
+            score += 1;
+        }
+        if (clicks > 0) {
+            score += 2;
+        }
+        return Math.max(Math.min(score, 10), 0);
+    }
+
+    private int analyzeConversionBehavior(TrafficData data) {
+        // 分析转化行为
+        return 5;
+    }
+}
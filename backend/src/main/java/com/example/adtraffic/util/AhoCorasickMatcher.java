@@ -0,0 +1,216 @@
+package com.example.adtraffic.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * 多模式关键词匹配器（Aho-Corasick自动机），构建时展开为稠密的DFA转移表，
+ * 匹配时对输入只扫描一遍，忽略ASCII大小写，并报告每个类别首个命中的关键词
+ */
+public final class AhoCorasickMatcher {
+
+    // 关键词中出现的字符映射到紧凑的字母表下标，0表示关键词中未出现的字符
+    private final int[] charIndex;
+    private final int alphabetSize;
+    // transitions[state * alphabetSize + c]
+    private final int[] transitions;
+    // 每个状态（含后缀链接继承）命中的类别位图
+    private final int[] categoryMasks;
+    // outputs[state * categoryCount + category]：该状态在对应类别上命中的关键词
+    private final String[] outputs;
+    private final int categoryCount;
+
+    private AhoCorasickMatcher(int[] charIndex, int alphabetSize, int[] transitions,
+                               int[] categoryMasks, String[] outputs, int categoryCount) {
+        this.charIndex = charIndex;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.categoryMasks = categoryMasks;
+        this.outputs = outputs;
+        this.categoryCount = categoryCount;
+    }
+
+    public static Builder builder(int categoryCount) {
+        return new Builder(categoryCount);
+    }
+
+    /**
+     * 扫描文本，返回各类别首个命中的关键词
+     */
+    public Match match(CharSequence text) {
+        String[] matched = new String[categoryCount];
+        int mask = 0;
+        int allMask = (1 << categoryCount) - 1;
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n && mask != allMask; i++) {
+            state = transitions[state * alphabetSize + indexOf(text.charAt(i))];
+            int newCategories = categoryMasks[state] & ~mask;
+            if (newCategories != 0) {
+                for (int category = 0; category < categoryCount; category++) {
+                    if ((newCategories & (1 << category)) != 0) {
+                        matched[category] = outputs[state * categoryCount + category];
+                    }
+                }
+                mask |= newCategories;
+            }
+        }
+        return new Match(mask, matched);
+    }
+
+    public int stateCount() {
+        return categoryMasks.length;
+    }
+
+    private int indexOf(char c) {
+        char lower = c < 128 ? Character.toLowerCase(c) : c;
+        return lower < charIndex.length ? charIndex[lower] : 0;
+    }
+
+    public static final class Match {
+        private final int categoryMask;
+        private final String[] keywords;
+
+        private Match(int categoryMask, String[] keywords) {
+            this.categoryMask = categoryMask;
+            this.keywords = keywords;
+        }
+
+        public boolean matched(int category) {
+            return (categoryMask & (1 << category)) != 0;
+        }
+
+        public boolean matchedAny() {
+            return categoryMask != 0;
+        }
+
+        public String keyword(int category) {
+            return keywords[category];
+        }
+    }
+
+    public static final class Builder {
+        private final int categoryCount;
+        private final List<String> keywords = new ArrayList<>();
+        private final List<Integer> categories = new ArrayList<>();
+
+        private Builder(int categoryCount) {
+            if (categoryCount < 1 || categoryCount > 31) {
+                throw new IllegalArgumentException("categoryCount must be between 1 and 31");
+            }
+            this.categoryCount = categoryCount;
+        }
+
+        public Builder add(String keyword, int category) {
+            if (keyword == null || keyword.isEmpty()) {
+                return this;
+            }
+            if (category < 0 || category >= categoryCount) {
+                throw new IllegalArgumentException("Unknown category: " + category);
+            }
+            keywords.add(keyword.toLowerCase());
+            categories.add(category);
+            return this;
+        }
+
+        public Builder addAll(Iterable<String> keywords, int category) {
+            for (String keyword : keywords) {
+                add(keyword, category);
+            }
+            return this;
+        }
+
+        public AhoCorasickMatcher build() {
+            // 1. 建立字母表
+            int maxChar = 0;
+            for (String keyword : keywords) {
+                for (int i = 0; i < keyword.length(); i++) {
+                    maxChar = Math.max(maxChar, keyword.charAt(i));
+                }
+            }
+            int[] charIndex = new int[maxChar + 1];
+            int alphabetSize = 1;
+            for (String keyword : keywords) {
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = keyword.charAt(i);
+                    if (charIndex[c] == 0) {
+                        charIndex[c] = alphabetSize++;
+                    }
+                }
+            }
+
+            // 2. 构建trie（-1表示尚无转移）
+            int capacity = 1;
+            for (String keyword : keywords) {
+                capacity += keyword.length();
+            }
+            int[] trie = new int[capacity * alphabetSize];
+            Arrays.fill(trie, -1);
+            int[] masks = new int[capacity];
+            String[] outputs = new String[capacity * categoryCount];
+            int stateCount = 1;
+            for (int k = 0; k < keywords.size(); k++) {
+                String keyword = keywords.get(k);
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    int slot = state * alphabetSize + charIndex[keyword.charAt(i)];
+                    if (trie[slot] < 0) {
+                        trie[slot] = stateCount++;
+                    }
+                    state = trie[slot];
+                }
+                int category = categories.get(k);
+                masks[state] |= 1 << category;
+                if (outputs[state * categoryCount + category] == null) {
+                    outputs[state * categoryCount + category] = keyword;
+                }
+            }
+
+            // 3. 按BFS计算失败链接，同时把trie补全为DFA并继承后缀状态的输出
+            int[] fail = new int[stateCount];
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int c = 0; c < alphabetSize; c++) {
+                int next = trie[c];
+                if (next < 0) {
+                    trie[c] = 0;
+                } else {
+                    fail[next] = 0;
+                    queue.add(next);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                int failState = fail[state];
+                masks[state] |= masks[failState];
+                for (int category = 0; category < categoryCount; category++) {
+                    int slot = state * categoryCount + category;
+                    if (outputs[slot] == null) {
+                        outputs[slot] = outputs[failState * categoryCount + category];
+                    }
+                }
+                for (int c = 0; c < alphabetSize; c++) {
+                    int slot = state * alphabetSize + c;
+                    int next = trie[slot];
+                    if (next < 0) {
+                        trie[slot] = trie[failState * alphabetSize + c];
+                    } else {
+                        fail[next] = trie[failState * alphabetSize + c];
+                        queue.add(next);
+                    }
+                }
+            }
+            // 下标0（关键词中未出现的字符）始终回到根状态
+            for (int state = 0; state < stateCount; state++) {
+                trie[state * alphabetSize] = 0;
+            }
+
+            return new AhoCorasickMatcher(charIndex, alphabetSize,
+                    Arrays.copyOf(trie, stateCount * alphabetSize),
+                    Arrays.copyOf(masks, stateCount),
+                    Arrays.copyOf(outputs, stateCount * categoryCount),
+                    categoryCount);
+        }
+    }
+}
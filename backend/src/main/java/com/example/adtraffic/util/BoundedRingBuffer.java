@@ -0,0 +1,109 @@
+package com.example.adtraffic.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 固定容量的无锁环形缓冲区，满后覆盖最旧的元素。
+ * 每个槽位保存(序号, 元素)，写入时用CAS替换，只有序号更大的写入者能覆盖槽位：
+ * 写入线程被挂起期间，同一槽位已被后来的写入者占用时，它的元素直接丢弃，不会覆盖更新的元素。
+ * 读取时校验序号，跳过尚未写入或已被覆盖的槽位
+ */
+public final class BoundedRingBuffer<T> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<Entry<T>> entries;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    public BoundedRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(T item) {
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) (sequence % capacity);
+        Entry<T> entry = new Entry<>(sequence, item);
+        while (true) {
+            Entry<T> current = entries.get(slot);
+            if (current != null && current.sequence > sequence) {
+                // 已被后来的写入覆盖，本元素不在最新的capacity个之内
+                return;
+            }
+            if (entries.compareAndSet(slot, current, entry)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 最新写入的元素，缓冲区为空时返回null
+     */
+    public T latest() {
+        long end = nextSequence.get();
+        for (long sequence = end - 1; sequence >= Math.max(0, end - capacity); sequence--) {
+            T item = read(sequence);
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 最新的limit个元素，按从新到旧排列
+     */
+    public List<T> latest(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        long end = nextSequence.get();
+        long start = Math.max(0, end - Math.min(limit, capacity));
+        List<T> result = new ArrayList<>((int) (end - start));
+        for (long sequence = end - 1; sequence >= start; sequence--) {
+            T item = read(sequence);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    private T read(long sequence) {
+        Entry<T> entry = entries.get((int) (sequence % capacity));
+        return entry != null && entry.sequence == sequence ? entry.item : null;
+    }
+
+    /**
+     * 当前保存的元素个数（不超过容量）
+     */
+    public int size() {
+        return (int) Math.min(nextSequence.get(), capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 累计写入次数
+     */
+    public long totalAdded() {
+        return nextSequence.get();
+    }
+
+    private static final class Entry<T> {
+        private final long sequence;
+        private final T item;
+
+        Entry(long sequence, T item) {
+            this.sequence = sequence;
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.adtraffic.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 国家/地区与当地常用语言的对照表。国家代码的两个字母直接换算为26×26数组的下标，
+ * 每个国家保存若干BCP 47语言前缀；匹配时在原字符串上按下标比较，不分配对象。
+ * 语言可以是单个标签，也可以是Accept-Language格式的列表（zh-CN,zh;q=0.9,en;q=0.8）
+ */
+public final class CountryLanguageTable {
+
+    public enum LanguageMatch {
+        MATCH,
+        MISMATCH,
+        // 国家不在表中，或没有可用的语言标签
+        UNKNOWN
+    }
+
+    private static final int LETTERS = 26;
+
+    private final String[][] languages = new String[LETTERS * LETTERS][];
+    private int countries;
+
+    private CountryLanguageTable() {
+    }
+
+    /**
+     * 读取"国家代码 语言前缀..."格式的数据，#开头的行为注释
+     */
+    public static CountryLanguageTable load(InputStream input) throws IOException {
+        CountryLanguageTable table = new CountryLanguageTable();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            int index = countryIndex(fields[0]);
+            if (index < 0 || fields.length < 2) {
+                throw new IOException("第" + lineNumber + "行格式错误: " + line);
+            }
+            if (table.languages[index] == null) {
+                table.countries++;
+            }
+            String[] accepted = Arrays.copyOfRange(fields, 1, fields.length);
+            for (int i = 0; i < accepted.length; i++) {
+                // 统一为小写和连字符，匹配时只需把输入按ASCII转小写
+                accepted[i] = accepted[i].toLowerCase(Locale.ROOT).replace('_', '-');
+            }
+            table.languages[index] = accepted;
+        }
+        return table;
+    }
+
+    public int countryCount() {
+        return countries;
+    }
+
+    public LanguageMatch match(String countryCode, String languageList) {
+        return languageList == null ? LanguageMatch.UNKNOWN
+                : match(countryCode, languageList, 0, languageList.length());
+    }
+
+    /**
+     * 判断text[start, end)中的语言是否有一个（q大于0）属于该国家的常用语言
+     */
+    public LanguageMatch match(String countryCode, String text, int start, int end) {
+        int index = countryIndex(countryCode);
+        String[] accepted = index >= 0 ? languages[index] : null;
+        if (accepted == null) {
+            return LanguageMatch.UNKNOWN;
+        }
+        boolean sawLanguage = false;
+        int position = start;
+        while (position < end) {
+            int itemEnd = indexOf(text, ',', position, end);
+            int tagEnd = indexOf(text, ';', position, itemEnd);
+            int tagStart = skipSpaces(text, position, tagEnd);
+            int tagStop = trimSpaces(text, tagStart, tagEnd);
+            if (tagStop > tagStart && !(tagStop - tagStart == 1 && text.charAt(tagStart) == '*')
+                    && !isZeroQuality(text, tagEnd, itemEnd)) {
+                sawLanguage = true;
+                for (String language : accepted) {
+                    if (matches(text, tagStart, tagStop, language)) {
+                        return LanguageMatch.MATCH;
+                    }
+                }
+            }
+            position = itemEnd + 1;
+        }
+        return sawLanguage ? LanguageMatch.MISMATCH : LanguageMatch.UNKNOWN;
+    }
+
+    /**
+     * 语言前缀按子标签边界匹配（zh-TW匹配zh-TW和zh-TW-x，不匹配zh-TWN）；
+     * 只有主语言的标签匹配同一主语言的任一前缀（zh匹配zh-CN）
+     */
+    private static boolean matches(String text, int start, int end, String language) {
+        int length = end - start;
+        int prefix = language.length();
+        if (length >= prefix && regionEquals(text, start, language, prefix)
+                && (length == prefix || isSeparator(text.charAt(start + prefix)))) {
+            return true;
+        }
+        if (length < prefix && language.charAt(length) == '-' && indexOfSeparator(text, start, end) < 0) {
+            return regionEquals(text, start, language, length);
+        }
+        return false;
+    }
+
+    /**
+     * text从start开始的length个字符按ASCII忽略大小写（_视为-）后是否等于language的前length个字符
+     */
+    private static boolean regionEquals(String text, int start, String language, int length) {
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(start + i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            } else if (c == '_') {
+                c = '-';
+            }
+            if (c != language.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ;之后的q=0、q=0.0等表示不接受该语言
+     */
+    private static boolean isZeroQuality(String text, int start, int end) {
+        for (int i = start; i < end - 2; i++) {
+            char c = text.charAt(i);
+            if ((c == 'q' || c == 'Q') && text.charAt(i + 1) == '=') {
+                int j = i + 2;
+                if (text.charAt(j) != '0') {
+                    return false;
+                }
+                for (j++; j < end; j++) {
+                    char d = text.charAt(j);
+                    if (d != '0' && d != '.') {
+                        return d == ' ' || d == ';';
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countryIndex(String code) {
+        if (code == null || code.length() != 2) {
+            return -1;
+        }
+        int first = letter(code.charAt(0));
+        int second = letter(code.charAt(1));
+        return first < 0 || second < 0 ? -1 : first * LETTERS + second;
+    }
+
+    private static int letter(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        return -1;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '-' || c == '_';
+    }
+
+    private static int indexOfSeparator(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (isSeparator(text.charAt(i))) {
+                return i - start;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(String text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int skipSpaces(String text, int start, int end) {
+        while (start < end && text.charAt(start) == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimSpaces(String text, int start, int end) {
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.adtraffic.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * 固定大小的HyperLogLog基数估计：2^precision个单字节寄存器，标准误差约为1.04/sqrt(2^precision)。
+ * 寄存器只增不减，写入用CAS取最大值，无锁；合并即逐个寄存器取最大值，可重复合并
+ */
+public final class HyperLogLog {
+
+    private static final VarHandle REGISTERS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * 加入一个元素的64位哈希（应已充分混合，如SlidingWindowSketch.hash）
+     */
+    public void add(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        // 剩余位中前导零的个数加1，末尾补一个1保证不超过64 - precision + 1
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        update(index, rank);
+    }
+
+    /**
+     * 合并另一个同精度的寄存器数组
+     */
+    public void merge(byte[] other) {
+        if (other.length != registers.length) {
+            throw new IllegalArgumentException("precision mismatch");
+        }
+        for (int i = 0; i < other.length; i++) {
+            update(i, other[i]);
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        merge(other.registers);
+    }
+
+    public long estimate() {
+        return estimate(registers);
+    }
+
+    /**
+     * 多个同精度HyperLogLog并集的基数估计，不修改参数
+     */
+    public static long estimateUnion(HyperLogLog first, HyperLogLog second) {
+        byte[] union = first.snapshot();
+        for (int i = 0; i < union.length; i++) {
+            union[i] = (byte) Math.max(union[i], (byte) REGISTERS.getVolatile(second.registers, i));
+        }
+        return estimate(union);
+    }
+
+    /**
+     * 寄存器的副本，用于序列化和合并
+     */
+    public byte[] snapshot() {
+        byte[] copy = new byte[registers.length];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = (byte) REGISTERS.getVolatile(registers, i);
+        }
+        return copy;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public int sizeInBytes() {
+        return registers.length;
+    }
+
+    private void update(int index, byte rank) {
+        byte current = (byte) REGISTERS.getVolatile(registers, index);
+        while (rank > current) {
+            if (REGISTERS.compareAndSet(registers, index, current, rank)) {
+                return;
+            }
+            current = (byte) REGISTERS.getVolatile(registers, index);
+        }
+    }
+
+    private static long estimate(byte[] registers) {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // 小基数时使用线性计数
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+}
@@ -0,0 +1,471 @@
+package com.example.adtraffic.util;
+
+import com.example.adtraffic.model.EventSeries;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 从点击、鼠标移动和滚动事件中提取行为特征。
+ * 每类事件只遍历一遍EventSeries的原始类型列，不装箱，除点击间隔熵外不分配数组；
+ * 坐标缺失（MISSING）的事件跳过，时间戳不递增的相邻事件不参与速度计算
+ */
+public final class InteractionFeatures {
+
+    // 点击间隔直方图的桶宽（毫秒）
+    private static final long INTERVAL_BIN_MILLIS = 25;
+    // 超过该速度（像素/毫秒）的位移视为跳变，正常人手移动鼠标达不到
+    private static final double TELEPORT_SPEED = 20.0;
+    // 相邻位移向量夹角的正弦值低于该值视为共线
+    private static final double COLLINEAR_SIN = 1e-3;
+
+    private InteractionFeatures() {
+    }
+
+    /**
+     * 点击时间特征：间隔均值/方差、间隔分布熵、周期性和重复位置，小于fastIntervalMillis的间隔计为快速点击
+     */
+    public static ClickTiming clickTiming(EventSeries clicks, long fastIntervalMillis) {
+        ClickTiming result = new ClickTiming();
+        int n = clicks.size();
+        result.clicks = n;
+        if (n < 2) {
+            return result;
+        }
+        long[] t = clicks.timestamps();
+        int[] x = clicks.x();
+        int[] y = clicks.y();
+        int[] bins = new int[n - 1];
+        int intervals = 0;
+        int fast = 0;
+        int periodic = 0;
+        int samePosition = 0;
+        long minInterval = Long.MAX_VALUE;
+        long previousInterval = -1;
+        double mean = 0;
+        double m2 = 0;
+        for (int i = 1; i < n; i++) {
+            if (x[i] != EventSeries.MISSING && x[i] == x[i - 1] && y[i] == y[i - 1]) {
+                samePosition++;
+            }
+            if (t[i] <= 0 || t[i - 1] <= 0 || t[i] < t[i - 1]) {
+                previousInterval = -1;
+                continue;
+            }
+            long interval = t[i] - t[i - 1];
+            if (interval < fastIntervalMillis) {
+                fast++;
+            }
+            minInterval = Math.min(minInterval, interval);
+            if (previousInterval >= 0
+                    && Math.abs(interval - previousInterval) <= Math.max(10, previousInterval / 50)) {
+                periodic++;
+            }
+            previousInterval = interval;
+            bins[intervals++] = (int) Math.min(interval / INTERVAL_BIN_MILLIS, Integer.MAX_VALUE);
+            // Welford在线方差
+            double delta = interval - mean;
+            mean += delta / intervals;
+            m2 += delta * (interval - mean);
+        }
+        result.intervals = intervals;
+        result.fastIntervals = fast;
+        result.samePositionClicks = samePosition;
+        if (intervals == 0) {
+            return result;
+        }
+        result.minIntervalMillis = minInterval;
+        result.meanIntervalMillis = mean;
+        result.intervalStdDevMillis = Math.sqrt(m2 / intervals);
+        result.periodicRatio = intervals > 1 ? (double) periodic / (intervals - 1) : 0;
+        result.intervalEntropy = normalizedEntropy(bins, intervals);
+        return result;
+    }
+
+    /**
+     * 鼠标轨迹特征：路径长度、直线率、曲率、速度变异系数、加加速度和跳变
+     */
+    public static Trajectory trajectory(EventSeries movements) {
+        Trajectory result = new Trajectory();
+        int n = movements.size();
+        long[] t = movements.timestamps();
+        int[] x = movements.x();
+        int[] y = movements.y();
+
+        int samples = 0;
+        int firstX = 0;
+        int firstY = 0;
+        int lastX = 0;
+        int lastY = 0;
+        long lastT = 0;
+        // 上一段位移向量及其长度
+        double previousDx = 0;
+        double previousDy = 0;
+        double previousLength = 0;
+        double pathLength = 0;
+        double curvatureSum = 0;
+        int turns = 0;
+        int collinear = 0;
+        int teleports = 0;
+        // 速度（像素/秒）的和与平方和，速度量级有限，不需要Welford的逐步除法
+        int speeds = 0;
+        double speedSum = 0;
+        double speedSquares = 0;
+        double previousSpeed = Double.NaN;
+        double previousAcceleration = Double.NaN;
+        double jerkSum = 0;
+        int jerks = 0;
+        long previousDt = -1;
+        int sameDt = 0;
+        int dts = 0;
+
+        for (int i = 0; i < n; i++) {
+            int xi = x[i];
+            int yi = y[i];
+            if (xi == EventSeries.MISSING || yi == EventSeries.MISSING) {
+                continue;
+            }
+            long ti = t[i];
+            if (samples++ == 0) {
+                firstX = xi;
+                firstY = yi;
+                lastX = xi;
+                lastY = yi;
+                lastT = ti;
+                continue;
+            }
+            double dx = xi - lastX;
+            double dy = yi - lastY;
+            long dt = ti - lastT;
+            lastX = xi;
+            lastY = yi;
+            lastT = ti;
+            double length = Math.sqrt(dx * dx + dy * dy);
+            if (length == 0) {
+                continue;
+            }
+            pathLength += length;
+
+            if (previousLength > 0) {
+                // |a×b| / (|a||b|) 即转角的正弦，避免逐点调用atan2
+                double sin = Math.abs(previousDx * dy - previousDy * dx) / (previousLength * length);
+                curvatureSum += sin;
+                turns++;
+                if (sin < COLLINEAR_SIN) {
+                    collinear++;
+                }
+            }
+            previousDx = dx;
+            previousDy = dy;
+            previousLength = length;
+
+            if (dt <= 0) {
+                // 同一时刻出现在不同位置
+                teleports++;
+                previousSpeed = Double.NaN;
+                previousAcceleration = Double.NaN;
+                continue;
+            }
+            if (previousDt >= 0) {
+                dts++;
+                if (dt == previousDt) {
+                    sameDt++;
+                }
+            }
+            previousDt = dt;
+            // 每段只做一次除法，速度、加速度、加加速度都乘以1/dt
+            double perSecond = 1000.0 / dt;
+            double speed = length * perSecond;
+            if (speed > TELEPORT_SPEED * 1000) {
+                teleports++;
+            }
+            speeds++;
+            speedSum += speed;
+            speedSquares += speed * speed;
+            if (!Double.isNaN(previousSpeed)) {
+                double acceleration = (speed - previousSpeed) * perSecond;
+                if (!Double.isNaN(previousAcceleration)) {
+                    jerkSum += Math.abs(acceleration - previousAcceleration) * perSecond;
+                    jerks++;
+                }
+                previousAcceleration = acceleration;
+            }
+            previousSpeed = speed;
+        }
+
+        result.samples = samples;
+        result.pathLength = pathLength;
+        if (samples > 1 && pathLength > 0) {
+            double ddx = lastX - firstX;
+            double ddy = lastY - firstY;
+            result.straightness = Math.sqrt(ddx * ddx + ddy * ddy) / pathLength;
+        }
+        result.meanCurvature = turns > 0 ? curvatureSum / turns : 0;
+        result.collinearRatio = turns > 0 ? (double) collinear / turns : 0;
+        result.teleports = teleports;
+        result.segments = speeds;
+        double speedMean = speeds > 0 ? speedSum / speeds : 0;
+        result.meanSpeed = speedMean;
+        if (speeds > 1 && speedMean > 0) {
+            double variance = Math.max(speedSquares / speeds - speedMean * speedMean, 0);
+            result.speedVariation = Math.sqrt(variance) / speedMean;
+        }
+        result.meanJerk = jerks > 0 ? jerkSum / jerks : 0;
+        result.fixedIntervalRatio = dts > 0 ? (double) sameDt / dts : 0;
+        return result;
+    }
+
+    /**
+     * 滚动特征：滚动距离、方向反转次数和滚动间隔周期性
+     */
+    public static ScrollProfile scroll(EventSeries scrollEvents) {
+        ScrollProfile result = new ScrollProfile();
+        int n = scrollEvents.size();
+        long[] t = scrollEvents.timestamps();
+        int[] scrollY = scrollEvents.scrollY();
+        int samples = 0;
+        int lastY = 0;
+        long lastT = 0;
+        int lastDirection = 0;
+        long distance = 0;
+        int reversals = 0;
+        long previousDt = -1;
+        int periodic = 0;
+        int dts = 0;
+        for (int i = 0; i < n; i++) {
+            int yi = scrollY[i];
+            if (yi == EventSeries.MISSING) {
+                continue;
+            }
+            long ti = t[i];
+            if (samples++ > 0) {
+                int dy = yi - lastY;
+                distance += Math.abs(dy);
+                int direction = Integer.signum(dy);
+                if (direction != 0) {
+                    if (lastDirection != 0 && direction != lastDirection) {
+                        reversals++;
+                    }
+                    lastDirection = direction;
+                }
+                long dt = ti - lastT;
+                if (dt > 0) {
+                    if (previousDt > 0) {
+                        dts++;
+                        if (Math.abs(dt - previousDt) <= 2) {
+                            periodic++;
+                        }
+                    }
+                    previousDt = dt;
+                }
+            }
+            lastY = yi;
+            lastT = ti;
+        }
+        result.samples = samples;
+        result.distance = distance;
+        result.reversals = reversals;
+        result.periodicRatio = dts > 0 ? (double) periodic / dts : 0;
+        return result;
+    }
+
+    /**
+     * 间隔分桶后的香农熵，按log2(count)归一化到0~1；会打乱bins的顺序
+     */
+    private static double normalizedEntropy(int[] bins, int count) {
+        if (count < 2) {
+            return 0;
+        }
+        Arrays.sort(bins, 0, count);
+        double entropy = 0;
+        int run = 1;
+        for (int i = 1; i <= count; i++) {
+            if (i < count && bins[i] == bins[i - 1]) {
+                run++;
+                continue;
+            }
+            double p = (double) run / count;
+            entropy -= p * Math.log(p);
+            run = 1;
+        }
+        return entropy / Math.log(count);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    public static final class ClickTiming {
+        private int clicks;
+        private int intervals;
+        private int fastIntervals;
+        private int samePositionClicks;
+        private long minIntervalMillis;
+        private double meanIntervalMillis;
+        private double intervalStdDevMillis;
+        private double periodicRatio;
+        private double intervalEntropy;
+
+        public int getClicks() {
+            return clicks;
+        }
+
+        // 有效的点击间隔数
+        public int getIntervals() {
+            return intervals;
+        }
+
+        // 快速点击间隔数
+        public int getFastIntervals() {
+            return fastIntervals;
+        }
+
+        // 与上一次点击坐标完全相同的点击数
+        public int getSamePositionClicks() {
+            return samePositionClicks;
+        }
+
+        public long getMinIntervalMillis() {
+            return minIntervalMillis;
+        }
+
+        public double getMeanIntervalMillis() {
+            return meanIntervalMillis;
+        }
+
+        // 间隔变异系数，越接近0越像定时器
+        public double getIntervalVariation() {
+            return meanIntervalMillis > 0 ? intervalStdDevMillis / meanIntervalMillis : 0;
+        }
+
+        // 与前一个间隔几乎相同的间隔占比
+        public double getPeriodicRatio() {
+            return periodicRatio;
+        }
+
+        // 间隔分布的归一化熵，0表示所有间隔落在同一个桶
+        public double getIntervalEntropy() {
+            return intervalEntropy;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("intervals", intervals);
+            map.put("minIntervalMs", minIntervalMillis);
+            map.put("meanIntervalMs", round(meanIntervalMillis));
+            map.put("intervalVariation", round(getIntervalVariation()));
+            map.put("periodicRatio", round(periodicRatio));
+            map.put("intervalEntropy", round(intervalEntropy));
+            map.put("samePositionClicks", samePositionClicks);
+            return map;
+        }
+    }
+
+    public static final class Trajectory {
+        private int samples;
+        private int segments;
+        private int teleports;
+        private double pathLength;
+        private double straightness;
+        private double meanCurvature;
+        private double collinearRatio;
+        private double meanSpeed;
+        private double speedVariation;
+        private double meanJerk;
+        private double fixedIntervalRatio;
+
+        // 坐标有效的采样点数
+        public int getSamples() {
+            return samples;
+        }
+
+        // 时间递增且有位移的线段数
+        public int getSegments() {
+            return segments;
+        }
+
+        // 瞬移次数：同一时刻的位移或超过人手速度的位移
+        public int getTeleports() {
+            return teleports;
+        }
+
+        public double getPathLength() {
+            return pathLength;
+        }
+
+        // 首尾直线距离与路径长度之比，1表示完全走直线
+        public double getStraightness() {
+            return straightness;
+        }
+
+        // 相邻线段转角正弦的均值
+        public double getMeanCurvature() {
+            return meanCurvature;
+        }
+
+        // 相邻线段共线的占比
+        public double getCollinearRatio() {
+            return collinearRatio;
+        }
+
+        // 平均速度（像素/秒）
+        public double getMeanSpeed() {
+            return meanSpeed;
+        }
+
+        // 速度变异系数，越接近0越像匀速脚本
+        public double getSpeedVariation() {
+            return speedVariation;
+        }
+
+        // 平均加加速度绝对值（像素/秒³）
+        public double getMeanJerk() {
+            return meanJerk;
+        }
+
+        // 采样间隔与上一个间隔完全相同的占比
+        public double getFixedIntervalRatio() {
+            return fixedIntervalRatio;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("samples", samples);
+            map.put("pathLength", round(pathLength));
+            map.put("straightness", round(straightness));
+            map.put("meanCurvature", round(meanCurvature));
+            map.put("collinearRatio", round(collinearRatio));
+            map.put("speedVariation", round(speedVariation));
+            map.put("meanJerk", round(meanJerk));
+            map.put("fixedIntervalRatio", round(fixedIntervalRatio));
+            map.put("teleports", teleports);
+            return map;
+        }
+    }
+
+    public static final class ScrollProfile {
+        private int samples;
+        private long distance;
+        private int reversals;
+        private double periodicRatio;
+
+        public int getSamples() {
+            return samples;
+        }
+
+        // 滚动总距离（像素）
+        public long getDistance() {
+            return distance;
+        }
+
+        // 滚动方向反转次数
+        public int getReversals() {
+            return reversals;
+        }
+
+        // 滚动间隔与上一个间隔几乎相同的占比
+        public double getPeriodicRatio() {
+            return periodicRatio;
+        }
+    }
+}
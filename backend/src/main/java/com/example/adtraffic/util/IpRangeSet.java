@@ -0,0 +1,414 @@
+package com.example.adtraffic.util;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+
+/**
+ * 不可变的IP地址区间集合，支持IPv4/IPv6单个地址、CIDR和起止区间。
+ * 构建时排序并合并重叠区间，存储为原始类型数组，查询为二分查找：
+ * IPv4每个区间8字节，IPv6每个区间32字节。
+ * IPv4映射地址（::ffff:a.b.c.d）在添加和查询时都按IPv4处理
+ */
+public final class IpRangeSet {
+
+    private static final IpRangeSet EMPTY = new IpRangeSet(new int[0], new int[0],
+            new long[0], new long[0], new long[0], new long[0]);
+
+    // IPv4区间，按无符号整数比较
+    private final int[] v4Starts;
+    private final int[] v4Ends;
+    // IPv6区间，高64位和低64位分别按无符号整数比较
+    private final long[] v6StartHi;
+    private final long[] v6StartLo;
+    private final long[] v6EndHi;
+    private final long[] v6EndLo;
+
+    private IpRangeSet(int[] v4Starts, int[] v4Ends,
+                       long[] v6StartHi, long[] v6StartLo, long[] v6EndHi, long[] v6EndLo) {
+        this.v4Starts = v4Starts;
+        this.v4Ends = v4Ends;
+        this.v6StartHi = v6StartHi;
+        this.v6StartLo = v6StartLo;
+        this.v6EndHi = v6EndHi;
+        this.v6EndLo = v6EndLo;
+    }
+
+    public static IpRangeSet empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 判断IP字符串是否落在任一区间内，无法解析时返回false
+     */
+    public boolean contains(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return false;
+        }
+        if (ip.indexOf(':') < 0) {
+            long v4 = parseIpv4(ip, 0, ip.length());
+            return v4 >= 0 && containsIpv4((int) v4);
+        }
+        long[] v6 = parseIpv6(ip);
+        if (v6 == null) {
+            return false;
+        }
+        return isIpv4Mapped(v6[0], v6[1]) ? containsIpv4((int) v6[1]) : containsIpv6(v6[0], v6[1]);
+    }
+
+    public boolean contains(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            return containsIpv4(toInt(bytes, 0));
+        }
+        long hi = toLong(bytes, 0);
+        long lo = toLong(bytes, 8);
+        return isIpv4Mapped(hi, lo) ? containsIpv4((int) lo) : containsIpv6(hi, lo);
+    }
+
+    public boolean containsIpv4(int address) {
+        int low = 0;
+        int high = v4Starts.length - 1;
+        // 查找起始地址不大于address的最后一个区间
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(v4Starts[mid], address) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high >= 0 && Integer.compareUnsigned(address, v4Ends[high]) <= 0;
+    }
+
+    public boolean containsIpv6(long hi, long lo) {
+        int low = 0;
+        int high = v6StartHi.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare128(v6StartHi[mid], v6StartLo[mid], hi, lo) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high >= 0 && compare128(hi, lo, v6EndHi[high], v6EndLo[high]) <= 0;
+    }
+
+    public int ipv4RangeCount() {
+        return v4Starts.length;
+    }
+
+    public int ipv6RangeCount() {
+        return v6StartHi.length;
+    }
+
+    /**
+     * 区间数组占用的堆内存（字节）
+     */
+    public long memoryBytes() {
+        return 4L * (v4Starts.length + v4Ends.length)
+                + 8L * (v6StartHi.length + v6StartLo.length + v6EndHi.length + v6EndLo.length);
+    }
+
+    // ::ffff:0:0/96
+    private static boolean isIpv4Mapped(long hi, long lo) {
+        return hi == 0 && (lo >>> 32) == 0xffffL;
+    }
+
+    private static int compare128(long aHi, long aLo, long bHi, long bLo) {
+        int result = Long.compareUnsigned(aHi, bHi);
+        return result != 0 ? result : Long.compareUnsigned(aLo, bLo);
+    }
+
+    /**
+     * 解析点分十进制IPv4，返回无符号整数值，格式错误返回-1
+     */
+    public static long parseIpv4(CharSequence text, int start, int end) {
+        long result = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 3) {
+                result = (result << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (value < 0 || octets != 3) {
+            return -1;
+        }
+        return (result << 8) | value;
+    }
+
+    /**
+     * 解析IPv6字面量（含IPv4映射形式），返回{高64位, 低64位}，格式错误返回null
+     */
+    public static long[] parseIpv6(String text) {
+        if (text.indexOf(':') < 0) {
+            return null;
+        }
+        try {
+            // 字面量地址不会触发DNS查询
+            InetAddress address = InetAddress.getByName(text);
+            byte[] bytes = address.getAddress();
+            if (bytes.length == 4) {
+                // ::ffff:a.b.c.d 会被解析为IPv4
+                return new long[]{0L, 0x0000ffff00000000L | (toInt(bytes, 0) & 0xffffffffL)};
+            }
+            if (!(address instanceof Inet6Address)) {
+                return null;
+            }
+            return new long[]{toLong(bytes, 0), toLong(bytes, 8)};
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static int toInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | (bytes[offset + i] & 0xff);
+        }
+        return result;
+    }
+
+    public static final class Builder {
+        // IPv4区间打包为 (start << 32) | end，按无符号排序即按起始地址排序
+        private long[] v4 = new long[1024];
+        private int v4Size;
+        private long[] v6 = new long[256];
+        private int v6Size;
+
+        private Builder() {
+        }
+
+        /**
+         * 添加一条记录：单个地址、CIDR（a.b.c.d/n）或区间（start-end），格式错误返回false
+         */
+        public boolean add(String entry) {
+            if (entry == null) {
+                return false;
+            }
+            String text = entry.trim();
+            if (text.isEmpty()) {
+                return false;
+            }
+            int dash = text.indexOf('-');
+            if (dash > 0) {
+                return addRange(text.substring(0, dash).trim(), text.substring(dash + 1).trim());
+            }
+            int slash = text.indexOf('/');
+            String address = slash < 0 ? text : text.substring(0, slash);
+            int prefix;
+            try {
+                prefix = slash < 0 ? -1 : Integer.parseInt(text.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (slash >= 0 && prefix < 0) {
+                return false;
+            }
+
+            if (address.indexOf(':') < 0) {
+                long value = parseIpv4(address, 0, address.length());
+                if (value < 0 || prefix > 32) {
+                    return false;
+                }
+                int bits = prefix < 0 ? 32 : prefix;
+                long mask = bits == 0 ? 0 : (0xffffffffL << (32 - bits)) & 0xffffffffL;
+                long start = value & mask;
+                long end = start | (~mask & 0xffffffffL);
+                addIpv4(start, end);
+                return true;
+            }
+
+            long[] value = parseIpv6(address);
+            if (value == null || prefix > 128) {
+                return false;
+            }
+            int bits = prefix < 0 ? 128 : prefix;
+            if (bits >= 96 && isIpv4Mapped(value[0], value[1])) {
+                // 映射地址的区间落在 ::ffff:0:0/96 之内，按IPv4存储
+                long mask = bits == 96 ? 0 : (0xffffffffL << (128 - bits)) & 0xffffffffL;
+                long start = value[1] & mask;
+                addIpv4(start & 0xffffffffL, (start | ~mask) & 0xffffffffL);
+                return true;
+            }
+            long maskHi = bits >= 64 ? -1L : bits == 0 ? 0 : -1L << (64 - bits);
+            long maskLo = bits <= 64 ? 0 : bits == 128 ? -1L : -1L << (128 - bits);
+            addIpv6(value[0] & maskHi, value[1] & maskLo, value[0] | ~maskHi, value[1] | ~maskLo);
+            return true;
+        }
+
+        private boolean addRange(String from, String to) {
+            if (from.indexOf(':') < 0 && to.indexOf(':') < 0) {
+                long start = parseIpv4(from, 0, from.length());
+                long end = parseIpv4(to, 0, to.length());
+                if (start < 0 || end < 0 || start > end) {
+                    return false;
+                }
+                addIpv4(start, end);
+                return true;
+            }
+            long[] start = parseIpv6(from);
+            long[] end = parseIpv6(to);
+            if (start == null || end == null || compare128(start[0], start[1], end[0], end[1]) > 0) {
+                return false;
+            }
+            if (isIpv4Mapped(start[0], start[1]) && isIpv4Mapped(end[0], end[1])) {
+                addIpv4(start[1] & 0xffffffffL, end[1] & 0xffffffffL);
+                return true;
+            }
+            addIpv6(start[0], start[1], end[0], end[1]);
+            return true;
+        }
+
+        private void addIpv4(long start, long end) {
+            if (v4Size == v4.length) {
+                v4 = Arrays.copyOf(v4, v4.length * 2);
+            }
+            v4[v4Size++] = (start << 32) | end;
+        }
+
+        private void addIpv6(long startHi, long startLo, long endHi, long endLo) {
+            if (v6Size + 4 > v6.length) {
+                v6 = Arrays.copyOf(v6, v6.length * 2);
+            }
+            v6[v6Size++] = startHi;
+            v6[v6Size++] = startLo;
+            v6[v6Size++] = endHi;
+            v6[v6Size++] = endLo;
+        }
+
+        /**
+         * 排序并合并相邻或重叠的区间
+         */
+        public IpRangeSet build() {
+            // IPv4：翻转符号位后按有符号排序，等价于按无符号起始地址排序
+            long[] packed = new long[v4Size];
+            for (int i = 0; i < v4Size; i++) {
+                packed[i] = v4[i] ^ Long.MIN_VALUE;
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < v4Size; i++) {
+                packed[i] ^= Long.MIN_VALUE;
+            }
+            int[] starts = new int[v4Size];
+            int[] ends = new int[v4Size];
+            int count = 0;
+            for (long range : packed) {
+                long start = range >>> 32;
+                long end = range & 0xffffffffL;
+                if (count > 0 && start <= (ends[count - 1] & 0xffffffffL) + 1) {
+                    if (end > (ends[count - 1] & 0xffffffffL)) {
+                        ends[count - 1] = (int) end;
+                    }
+                } else {
+                    starts[count] = (int) start;
+                    ends[count] = (int) end;
+                    count++;
+                }
+            }
+
+            // IPv6：按起始地址对下标排序后合并
+            int v6Count = v6Size / 4;
+            int[] order = sortIpv6ByStart(v6Count);
+            long[] startHi = new long[v6Count];
+            long[] startLo = new long[v6Count];
+            long[] endHi = new long[v6Count];
+            long[] endLo = new long[v6Count];
+            int count6 = 0;
+            for (int index : order) {
+                long sHi = v6[index * 4];
+                long sLo = v6[index * 4 + 1];
+                long eHi = v6[index * 4 + 2];
+                long eLo = v6[index * 4 + 3];
+                if (count6 > 0 && adjacentOrOverlapping(endHi[count6 - 1], endLo[count6 - 1], sHi, sLo)) {
+                    if (compare128(eHi, eLo, endHi[count6 - 1], endLo[count6 - 1]) > 0) {
+                        endHi[count6 - 1] = eHi;
+                        endLo[count6 - 1] = eLo;
+                    }
+                } else {
+                    startHi[count6] = sHi;
+                    startLo[count6] = sLo;
+                    endHi[count6] = eHi;
+                    endLo[count6] = eLo;
+                    count6++;
+                }
+            }
+
+            return new IpRangeSet(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count),
+                    Arrays.copyOf(startHi, count6), Arrays.copyOf(startLo, count6),
+                    Arrays.copyOf(endHi, count6), Arrays.copyOf(endLo, count6));
+        }
+
+        // 堆排序下标数组，避免装箱
+        private int[] sortIpv6ByStart(int n) {
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            for (int i = n / 2 - 1; i >= 0; i--) {
+                siftDown(order, i, n);
+            }
+            for (int end = n - 1; end > 0; end--) {
+                int tmp = order[0];
+                order[0] = order[end];
+                order[end] = tmp;
+                siftDown(order, 0, end);
+            }
+            return order;
+        }
+
+        private void siftDown(int[] order, int root, int size) {
+            while (true) {
+                int child = root * 2 + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && compareStart(order[child + 1], order[child]) > 0) {
+                    child++;
+                }
+                if (compareStart(order[root], order[child]) >= 0) {
+                    return;
+                }
+                int tmp = order[root];
+                order[root] = order[child];
+                order[child] = tmp;
+                root = child;
+            }
+        }
+
+        private int compareStart(int a, int b) {
+            return compare128(v6[a * 4], v6[a * 4 + 1], v6[b * 4], v6[b * 4 + 1]);
+        }
+
+        // 前一区间的结束地址+1 >= 当前起始地址
+        private static boolean adjacentOrOverlapping(long endHi, long endLo, long startHi, long startLo) {
+            if (endHi == -1L && endLo == -1L) {
+                return true;
+            }
+            long nextLo = endLo + 1;
+            long nextHi = nextLo == 0 ? endHi + 1 : endHi;
+            return compare128(startHi, startLo, nextHi, nextLo) <= 0;
+        }
+    }
+}
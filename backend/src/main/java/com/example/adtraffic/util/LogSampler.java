@@ -0,0 +1,24 @@
+package com.example.adtraffic.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按比例抽样输出每个请求都会执行的日志，避免高峰期日志本身消耗大量吞吐。
+ * 比例为1时全部输出，为0时全部不输出；各线程独立取随机数，没有共享计数器的竞争
+ */
+public final class LogSampler {
+
+    private final double rate;
+
+    public LogSampler(double rate) {
+        this.rate = Math.max(0, Math.min(rate, 1));
+    }
+
+    public boolean sample() {
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public double getRate() {
+        return rate;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.adtraffic.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 滑动窗口内各key出现次数的count-min sketch。写入采用保守更新（只增加当前最小的单元格），
+ * 估计值不会低于真实值，高估程度明显小于普通更新
+ */
+public final class SlidingCountMinSketch extends SlidingWindowSketch<AtomicIntegerArray> {
+
+    public SlidingCountMinSketch(long windowMillis, int buckets, int depth, int width) {
+        super(windowMillis, buckets, depth, width);
+    }
+
+    @Override
+    protected AtomicIntegerArray newCells(int size) {
+        return new AtomicIntegerArray(size);
+    }
+
+    public void add(long keyHash, long nowMillis) {
+        AtomicIntegerArray cells = writableCells(nowMillis);
+        if (cells == null) {
+            return;
+        }
+        int depth = depth();
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, cells.get(cell(keyHash, row)));
+        }
+        for (int row = 0; row < depth; row++) {
+            int index = cell(keyHash, row);
+            if (cells.get(index) == min) {
+                cells.incrementAndGet(index);
+            }
+        }
+    }
+
+    /**
+     * 窗口内key出现次数的估计值
+     */
+    public long estimate(long keyHash, long nowMillis) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth(); row++) {
+            int index = cell(keyHash, row);
+            long sum = 0;
+            for (int slot = 0; slot < buckets(); slot++) {
+                AtomicIntegerArray cells = readableCells(slot, nowMillis);
+                if (cells != null) {
+                    sum += cells.get(index);
+                }
+            }
+            min = Math.min(min, sum);
+        }
+        return min;
+    }
+
+    public long footprintBytes() {
+        return footprint(Integer.BYTES);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.adtraffic.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滑动窗口内每个key对应的不同元素个数（如每个IP的不同User-Agent数）。
+ * 每个单元格是一个64位的线性计数位图，元素哈希决定置位的位置；
+ * 读取时把窗口内各桶的位图按位或（跨桶去重），按空位比例估计基数，各行取最小值。
+ * 适合估计较小的基数，超过约150后趋于饱和
+ */
+public final class SlidingDistinctSketch extends SlidingWindowSketch<AtomicLongArray> {
+
+    private static final int BITS = Long.SIZE;
+
+    public SlidingDistinctSketch(long windowMillis, int buckets, int depth, int width) {
+        super(windowMillis, buckets, depth, width);
+    }
+
+    @Override
+    protected AtomicLongArray newCells(int size) {
+        return new AtomicLongArray(size);
+    }
+
+    public void add(long keyHash, long elementHash, long nowMillis) {
+        AtomicLongArray cells = writableCells(nowMillis);
+        if (cells == null) {
+            return;
+        }
+        long bit = 1L << (elementHash >>> 58);
+        for (int row = 0; row < depth(); row++) {
+            int index = cell(keyHash, row);
+            // 已置位时不做CAS，重复元素只有一次volatile读
+            if ((cells.get(index) & bit) == 0) {
+                cells.getAndAccumulate(index, bit, (current, value) -> current | value);
+            }
+        }
+    }
+
+    /**
+     * 窗口内key对应的不同元素个数的估计值
+     */
+    public int estimate(long keyHash, long nowMillis) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth(); row++) {
+            int index = cell(keyHash, row);
+            long bits = 0;
+            for (int slot = 0; slot < buckets(); slot++) {
+                AtomicLongArray cells = readableCells(slot, nowMillis);
+                if (cells != null) {
+                    bits |= cells.get(index);
+                }
+            }
+            min = Math.min(min, linearCount(bits));
+        }
+        return min;
+    }
+
+    public long footprintBytes() {
+        return footprint(Long.BYTES);
+    }
+
+    private static int linearCount(long bits) {
+        int zeros = BITS - Long.bitCount(bits);
+        if (zeros == 0) {
+            // 位图已满，返回可估计的上限
+            return (int) Math.round(BITS * Math.log(BITS));
+        }
+        return (int) Math.round(-BITS * Math.log((double) zeros / BITS));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.adtraffic.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按时间分桶的滑动窗口sketch：窗口划分为固定数量的桶，环形复用，每个桶是depth行、width列的计数矩阵。
+ * 写入只落在当前桶，桶过期时用CAS整体替换为新桶，不加锁；内存只与depth、width和桶数有关，与key数量无关。
+ * 窗口按桶滑动，统计范围在(桶数-1)到桶数个桶宽之间
+ */
+public abstract class SlidingWindowSketch<C> {
+
+    private final long bucketMillis;
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final AtomicReferenceArray<Bucket<C>> ring;
+
+    protected SlidingWindowSketch(long windowMillis, int buckets, int depth, int width) {
+        if (windowMillis <= 0 || buckets <= 0 || depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("window, buckets, depth and width must be positive");
+        }
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.depth = depth;
+        // 列数取2的幂，用位运算取模
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.mask = this.width - 1;
+        this.ring = new AtomicReferenceArray<>(buckets);
+    }
+
+    protected abstract C newCells(int size);
+
+    /**
+     * 当前时间所在的桶，必要时替换过期的桶；时钟回退到已被覆盖的桶时返回null
+     */
+    protected final C writableCells(long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        int slot = (int) (epoch % ring.length());
+        while (true) {
+            Bucket<C> bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch == epoch) {
+                return bucket.cells;
+            }
+            if (bucket != null && bucket.epoch > epoch) {
+                return null;
+            }
+            // 被替换的旧桶上并发进行中的写入会丢失，对估计值的影响可以忽略
+            Bucket<C> fresh = new Bucket<>(epoch, newCells(depth * width));
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh.cells;
+            }
+        }
+    }
+
+    /**
+     * 第slot个桶仍在窗口内时返回它的计数矩阵，否则返回null
+     */
+    protected final C readableCells(int slot, long nowMillis) {
+        Bucket<C> bucket = ring.get(slot);
+        if (bucket == null) {
+            return null;
+        }
+        long epoch = nowMillis / bucketMillis;
+        return bucket.epoch <= epoch && bucket.epoch > epoch - ring.length() ? bucket.cells : null;
+    }
+
+    protected final int buckets() {
+        return ring.length();
+    }
+
+    protected final int depth() {
+        return depth;
+    }
+
+    /**
+     * key在第row行中对应的单元格下标（双重哈希）
+     */
+    protected final int cell(long keyHash, int row) {
+        long h = keyHash + row * (Long.rotateLeft(keyHash, 32) | 1L);
+        return row * width + (int) (mix(h) & mask);
+    }
+
+    /**
+     * 按当前配置计算的内存占用（字节），每个单元格cellBytes字节
+     */
+    protected final long footprint(int cellBytes) {
+        return (long) ring.length() * depth * width * cellBytes;
+    }
+
+    /**
+     * 字符串的64位哈希（FNV-1a后再做一次混合）
+     */
+    public static long hash(CharSequence text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    public static long hash(long value) {
+        return mix(value + 0x9e3779b97f4a7c15L);
+    }
+
+    // MurmurHash3的fmix64
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Bucket<C> {
+        private final long epoch;
+        private final C cells;
+
+        Bucket(long epoch, C cells) {
+            this.epoch = epoch;
+            this.cells = cells;
+        }
+    }
+}
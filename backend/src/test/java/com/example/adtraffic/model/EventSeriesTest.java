@@ -0,0 +1,105 @@
+package com.example.adtraffic.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventSeriesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void nestedValuesInKnownFieldsDoNotShiftLaterFields() throws Exception {
+        String json = "{\"clicks\":[{\"timestamp\":[1,2],\"ip\":\"6.6.6.6\"}],\"ip\":\"1.1.1.1\",\"userAgent\":\"ua\"}";
+
+        TrafficData data = objectMapper.readValue(json, TrafficData.class);
+
+        assertThat(data.getIp()).isEqualTo("1.1.1.1");
+        assertThat(data.getUserAgent()).isEqualTo("ua");
+        assertThat(data.getClicks().size()).isEqualTo(1);
+        assertThat(data.getClicks().timestamp(0)).isZero();
+    }
+
+    @Test
+    void nestedObjectsInEveryKnownFieldAreTreatedAsMissing() throws Exception {
+        String json = "[{\"timestamp\":{\"a\":{\"b\":1}},\"x\":[[1],[2]],\"y\":{},\"scrollY\":[],"
+                + "\"target\":{\"id\":\"btn\"},\"path\":[\"/a\"]},{\"timestamp\":5,\"x\":1,\"target\":\"btn\"}]";
+
+        EventSeries series = objectMapper.readValue(json, EventSeries.class);
+
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.timestamp(0)).isZero();
+        assertThat(series.x()[0]).isEqualTo(EventSeries.MISSING);
+        assertThat(series.y()[0]).isEqualTo(EventSeries.MISSING);
+        assertThat(series.scrollY()[0]).isEqualTo(EventSeries.MISSING);
+        assertThat(series.target(0)).isNull();
+        assertThat(series.path(0)).isNull();
+        assertThat(series.timestamp(1)).isEqualTo(5);
+        assertThat(series.x()[1]).isEqualTo(1);
+        assertThat(series.target(1)).isEqualTo("btn");
+    }
+
+    @Test
+    void nullFieldsAndElementsAreSkipped() throws Exception {
+        String json = "[null,{\"timestamp\":null,\"x\":null,\"target\":null},{\"timestamp\":7}]";
+
+        EventSeries series = objectMapper.readValue(json, EventSeries.class);
+
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.timestamp(0)).isZero();
+        assertThat(series.x()[0]).isEqualTo(EventSeries.MISSING);
+        assertThat(series.target(0)).isNull();
+        assertThat(series.timestamp(1)).isEqualTo(7);
+    }
+
+    @Test
+    void nullSeriesStaysNull() throws Exception {
+        TrafficData data = objectMapper.readValue("{\"clicks\":null,\"ip\":\"1.1.1.1\"}", TrafficData.class);
+
+        assertThat(data.getClicks()).isNull();
+        assertThat(EventSeries.orEmpty(data.getClicks()).isEmpty()).isTrue();
+        assertThat(data.getIp()).isEqualTo("1.1.1.1");
+    }
+
+    @Test
+    void readsNumbersSentAsStrings() throws Exception {
+        String json = "[{\"timestamp\":\"1700000000000\",\"x\":\"12\",\"y\":\"-3\",\"scrollY\":40.9}]";
+
+        EventSeries series = objectMapper.readValue(json, EventSeries.class);
+
+        assertThat(series.timestamp(0)).isEqualTo(1700000000000L);
+        assertThat(series.x()[0]).isEqualTo(12);
+        assertThat(series.y()[0]).isEqualTo(-3);
+        assertThat(series.scrollY()[0]).isEqualTo(40);
+    }
+
+    @Test
+    void skipsUnknownFieldsOfAnyShape() throws Exception {
+        String json = "[{\"extra\":{\"deep\":[1,{\"x\":99}]},\"timestamp\":3,\"tag\":\"t\",\"list\":[],\"x\":4}]";
+
+        EventSeries series = objectMapper.readValue(json, EventSeries.class);
+
+        assertThat(series.size()).isEqualTo(1);
+        assertThat(series.timestamp(0)).isEqualTo(3);
+        assertThat(series.x()[0]).isEqualTo(4);
+    }
+
+    @Test
+    void rejectsNonArraySeries() {
+        assertThatThrownBy(() -> objectMapper.readValue("{\"timestamp\":1}", EventSeries.class))
+                .isInstanceOf(MismatchedInputException.class);
+    }
+
+    @Test
+    void roundTripsThroughTheSerializer() throws Exception {
+        String json = "[{\"timestamp\":1,\"x\":2,\"y\":3,\"target\":\"a\",\"path\":\"/p\"},"
+                + "{\"timestamp\":4,\"scrollY\":5,\"target\":\"a\"}]";
+
+        EventSeries series = objectMapper.readValue(json, EventSeries.class);
+
+        assertThat(objectMapper.writeValueAsString(series)).isEqualTo(json);
+    }
+}
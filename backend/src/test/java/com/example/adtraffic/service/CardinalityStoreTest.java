@@ -0,0 +1,63 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.util.SlidingWindowSketch;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CardinalityStoreTest {
+
+    // 小时序号（epoch毫秒除以一小时），HourlyCounter按它轮换
+    private static final long HOUR = 480_000;
+
+    private static void addRange(CardinalityStore.HourlyCounter counter, long hour, int from, int to) {
+        for (int i = from; i < to; i++) {
+            counter.add(hour, SlidingWindowSketch.hash("fingerprint" + i));
+        }
+    }
+
+    @Test
+    void countsTheCurrentAndPreviousHour() {
+        CardinalityStore.HourlyCounter counter = new CardinalityStore.HourlyCounter(12);
+        addRange(counter, HOUR, 0, 300);
+        addRange(counter, HOUR + 1, 200, 500);
+
+        // 两个小时的并集，重叠部分只计一次
+        assertThat((double) counter.estimate(HOUR + 1)).isCloseTo(500, within(25.0));
+        assertThat((double) counter.estimate(HOUR)).isCloseTo(500, within(25.0));
+    }
+
+    @Test
+    void expiresHoursOutsideTheWindow() {
+        CardinalityStore.HourlyCounter counter = new CardinalityStore.HourlyCounter(12);
+        addRange(counter, HOUR, 0, 300);
+        addRange(counter, HOUR + 1, 300, 400);
+
+        // 第一个小时滑出窗口，只剩上一小时
+        assertThat((double) counter.estimate(HOUR + 2)).isCloseTo(100, within(5.0));
+        assertThat(counter.estimate(HOUR + 3)).isZero();
+    }
+
+    @Test
+    void rotationDropsHoursOlderThanThePreviousOne() {
+        CardinalityStore.HourlyCounter counter = new CardinalityStore.HourlyCounter(12);
+        addRange(counter, HOUR, 0, 300);
+        // 中间隔了一个小时，旧的小时不保留为上一小时
+        addRange(counter, HOUR + 2, 300, 310);
+
+        assertThat((double) counter.estimate(HOUR + 2)).isCloseTo(10, within(1.0));
+    }
+
+    @Test
+    void lateWritesGoToThePreviousHourOrAreDropped() {
+        CardinalityStore.HourlyCounter counter = new CardinalityStore.HourlyCounter(12);
+        addRange(counter, HOUR + 1, 0, 50);
+        addRange(counter, HOUR, 50, 100);
+        // 早于上一小时的写入丢弃
+        addRange(counter, HOUR - 1, 100, 400);
+
+        assertThat((double) counter.estimate(HOUR + 1)).isCloseTo(100, within(5.0));
+        assertThat((double) counter.estimate(HOUR + 2)).isCloseTo(50, within(3.0));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.adtraffic.service;
+
+import com.example.adtraffic.model.TrafficScoreRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScoreDetailsCodecTest {
+
+    private final ScoreDetailsCodec codec = new ScoreDetailsCodec(new ObjectMapper());
+
+    @Test
+    void roundTripsEveryScoreAndFlagKey() {
+        int[] values = {0, 1, -1, 63, -64, 64, 127, 128, 300, -300, 65535, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (int i = 0; i < ScoreDetailsCodec.SCORE_KEYS.size(); i++) {
+            details.put(ScoreDetailsCodec.SCORE_KEYS.get(i), values[i % values.length]);
+        }
+        for (String key : ScoreDetailsCodec.FLAG_KEYS) {
+            details.put(key, true);
+        }
+
+        Map<String, Object> extra = new LinkedHashMap<>();
+        byte[] bin = ScoreDetailsCodec.encode(details, extra);
+        Map<String, Object> decoded = new LinkedHashMap<>();
+        ScoreDetailsCodec.decode(bin, decoded);
+
+        assertThat(extra).isEmpty();
+        assertThat(decoded).isEqualTo(details);
+    }
+
+    @Test
+    void roundTripsExtremeValuesInEverySlot() {
+        for (int value : new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0}) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            for (String key : ScoreDetailsCodec.SCORE_KEYS) {
+                details.put(key, value);
+            }
+            Map<String, Object> decoded = new LinkedHashMap<>();
+            ScoreDetailsCodec.decode(ScoreDetailsCodec.encode(details, new LinkedHashMap<>()), decoded);
+            assertThat(decoded).isEqualTo(details);
+        }
+    }
+
+    @Test
+    void keepsFalseFlagsAndAbsentKeysDistinct() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("ipMalicious", false);
+        details.put("clickSpeedScore", 5);
+
+        Map<String, Object> decoded = new LinkedHashMap<>();
+        ScoreDetailsCodec.decode(ScoreDetailsCodec.encode(details, new LinkedHashMap<>()), decoded);
+
+        assertThat(decoded).containsOnly(Map.entry("ipMalicious", false), Map.entry("clickSpeedScore", 5));
+    }
+
+    @Test
+    void splitsUnknownKeysAndNonIntegerValuesIntoExtra() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("proxyScore", 10);
+        details.put("ruleSet", "baseline");
+        details.put("degradedStages", Map.of("ip", "timeout"));
+        // 不是int的得分项和不是boolean的标记项不按schema编码
+        details.put("userAgentScore", 5L);
+        details.put("ipMalicious", "yes");
+
+        TrafficScoreRecord record = new TrafficScoreRecord();
+        record.setScoreDetails("{\"stale\":true}");
+        codec.apply(record, details);
+
+        assertThat(record.getScoreDetails()).isNull();
+        assertThat(record.getScoreDetailsExtra()).doesNotContain("proxyScore");
+        Map<String, Object> read = codec.read(record);
+        assertThat(read).containsEntry("proxyScore", 10)
+                .containsEntry("ruleSet", "baseline")
+                .containsEntry("degradedStages", Map.of("ip", "timeout"))
+                .containsEntry("userAgentScore", 5)
+                .containsEntry("ipMalicious", "yes")
+                .doesNotContainKey("stale");
+    }
+
+    @Test
+    void omitsExtraWhenEverythingFitsTheSchema() {
+        TrafficScoreRecord record = new TrafficScoreRecord();
+        codec.apply(record, Map.of("proxyScore", 10, "ipMalicious", false));
+
+        assertThat(record.getScoreDetailsExtra()).isNull();
+        assertThat(codec.read(record)).isEqualTo(Map.of("proxyScore", 10, "ipMalicious", false));
+    }
+
+    @Test
+    void rejectsEveryTruncatedPrefix() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (String key : ScoreDetailsCodec.SCORE_KEYS) {
+            details.put(key, Integer.MIN_VALUE);
+        }
+        details.put("ipMalicious", true);
+        byte[] bin = ScoreDetailsCodec.encode(details, new LinkedHashMap<>());
+
+        for (int length = 0; length < bin.length; length++) {
+            byte[] truncated = Arrays.copyOf(bin, length);
+            assertThatThrownBy(() -> ScoreDetailsCodec.decode(truncated, new LinkedHashMap<>()))
+                    .as("length %d", length)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void readReturnsNoPartialScoresForCorruptedInput() {
+        byte[] bin = ScoreDetailsCodec.encode(Map.of("proxyScore", 10, "userAgentScore", 300), new LinkedHashMap<>());
+        byte[] truncated = Arrays.copyOf(bin, bin.length - 1);
+
+        Map<String, Object> read = codec.read(truncated, "{\"ruleSet\":\"baseline\"}", null);
+
+        assertThat(read).isEqualTo(Map.of("ruleSet", "baseline"));
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] bin = ScoreDetailsCodec.encode(Map.of("proxyScore", 10), new LinkedHashMap<>());
+        bin[0] = 2;
+
+        assertThatThrownBy(() -> ScoreDetailsCodec.decode(bin, new LinkedHashMap<>()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(codec.read(bin, null, null)).isEmpty();
+    }
+
+    @Test
+    void readsLegacyJsonWhenThereIsNoBinaryColumn() {
+        String legacy = "{\"proxyScore\":10,\"ipMalicious\":false,\"rulesFired\":[\"burst\"]}";
+
+        Map<String, Object> read = codec.read(null, null, legacy);
+
+        assertThat(read).containsEntry("proxyScore", 10)
+                .containsEntry("ipMalicious", false)
+                .containsEntry("rulesFired", List.of("burst"));
+        assertThat(codec.readJson(null, null, legacy)).isEqualTo(legacy);
+    }
+
+    @Test
+    void legacyJsonReadsBackUnchangedAfterMigration() {
+        // 与ScoreDetailsMigrationService的转换步骤相同
+        String legacy = "{\"proxyScore\":10,\"clickSpeedScore\":-3,\"userAgentScore\":5000000000,"
+                + "\"geoLocationScore\":2.5,\"ipMalicious\":true,\"ruleSet\":\"candidate\","
+                + "\"clickTiming\":{\"intervals\":4,\"meanIntervalMs\":212.5}}";
+        Map<String, Object> original = codec.read(null, null, legacy);
+
+        Map<String, Object> extra = new LinkedHashMap<>();
+        byte[] bin = ScoreDetailsCodec.encode(original, extra);
+        Map<String, Object> migrated = codec.read(bin, codec.toJson(extra), null);
+
+        assertThat(migrated).isEqualTo(original);
+    }
+
+    @Test
+    void prefersBinaryColumnsOverLegacyJson() {
+        byte[] bin = ScoreDetailsCodec.encode(Map.of("proxyScore", 10), new LinkedHashMap<>());
+
+        assertThat(codec.read(bin, null, "{\"proxyScore\":99}")).isEqualTo(Map.of("proxyScore", 10));
+    }
+
+    @Test
+    void returnsEmptyMapForMalformedLegacyJson() {
+        assertThat(codec.read(null, null, "{not json")).isEmpty();
+        assertThat(codec.read(null, null, null)).isEmpty();
+    }
+}
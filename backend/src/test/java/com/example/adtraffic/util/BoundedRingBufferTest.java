@@ -0,0 +1,152 @@
+package com.example.adtraffic.util;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedRingBufferTest {
+
+    private static final int WRITERS = 8;
+    private static final int ADDS_PER_WRITER = 20_000;
+
+    @Test
+    void returnsTheLatestItemsNewestFirst() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(i);
+        }
+
+        assertThat(buffer.latest(4)).containsExactly(9, 8, 7, 6);
+        assertThat(buffer.latest(2)).containsExactly(9, 8);
+        assertThat(buffer.latest(100)).containsExactly(9, 8, 7, 6);
+        assertThat(buffer.latest()).isEqualTo(9);
+        assertThat(buffer.size()).isEqualTo(4);
+        assertThat(buffer.totalAdded()).isEqualTo(10);
+    }
+
+    @Test
+    void partiallyFilledBufferReturnsOnlyWrittenItems() {
+        BoundedRingBuffer<String> buffer = new BoundedRingBuffer<>(8);
+        buffer.add("a");
+        buffer.add("b");
+        buffer.add("c");
+
+        assertThat(buffer.latest(8)).containsExactly("c", "b", "a");
+        assertThat(buffer.size()).isEqualTo(3);
+    }
+
+    @Test
+    void emptyBufferReturnsNothing() {
+        BoundedRingBuffer<String> buffer = new BoundedRingBuffer<>(4);
+
+        assertThat(buffer.latest()).isNull();
+        assertThat(buffer.latest(4)).isEmpty();
+        assertThat(buffer.size()).isZero();
+        buffer.add("a");
+        assertThat(buffer.latest(0)).isEmpty();
+        assertThat(buffer.latest(-1)).isEmpty();
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThatThrownBy(() -> new BoundedRingBuffer<>(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BoundedRingBuffer<>(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void concurrentWritersLeaveExactlyCapacityItems() throws Exception {
+        for (int capacity : new int[]{1, 4, 16, 1000}) {
+            BoundedRingBuffer<long[]> buffer = new BoundedRingBuffer<>(capacity);
+            runWriters(buffer);
+
+            List<long[]> latest = buffer.latest(capacity);
+            assertThat(latest).as("capacity %d", capacity).hasSize(capacity);
+            assertThat(buffer.size()).isEqualTo(capacity);
+            assertThat(buffer.totalAdded()).isEqualTo((long) WRITERS * ADDS_PER_WRITER);
+            assertNewestFirstPerWriter(latest);
+            Set<Long> distinct = new HashSet<>();
+            for (long[] item : latest) {
+                distinct.add(item[0] * ADDS_PER_WRITER + item[1]);
+            }
+            assertThat(distinct).hasSize(capacity);
+        }
+    }
+
+    @Test
+    void readersSeeEachWritersItemsNewestFirstWhileWritersRun() throws Exception {
+        int capacity = 32;
+        BoundedRingBuffer<long[]> buffer = new BoundedRingBuffer<>(capacity);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (writing.get()) {
+                    List<long[]> latest = buffer.latest(capacity);
+                    assertThat(latest.size()).isLessThanOrEqualTo(capacity);
+                    assertNewestFirstPerWriter(latest);
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+        try {
+            runWriters(buffer);
+        } finally {
+            writing.set(false);
+            reader.join();
+        }
+
+        assertThat(failure.get()).isNull();
+        assertThat(buffer.latest(capacity)).hasSize(capacity);
+    }
+
+    /**
+     * 每个元素为{写入线程编号, 该线程内的写入序号}
+     */
+    private static void runWriters(BoundedRingBuffer<long[]> buffer) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            long writer = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < ADDS_PER_WRITER; i++) {
+                    buffer.add(new long[]{writer, i});
+                }
+            });
+            thread.start();
+            writers.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+    }
+
+    /**
+     * 结果按写入顺序从新到旧排列，同一线程的元素序号必须严格递减
+     */
+    private static void assertNewestFirstPerWriter(List<long[]> latest) {
+        long[] previous = new long[WRITERS];
+        Arrays.fill(previous, Long.MAX_VALUE);
+        for (long[] item : latest) {
+            int writer = (int) item[0];
+            assertThat(item[1]).as("writer %d", writer).isLessThan(previous[writer]);
+            previous[writer] = item[1];
+        }
+    }
+}
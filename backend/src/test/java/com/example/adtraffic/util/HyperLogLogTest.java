@@ -0,0 +1,88 @@
+package com.example.adtraffic.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    private static HyperLogLog of(int precision, long from, long to) {
+        HyperLogLog hll = new HyperLogLog(precision);
+        for (long i = from; i < to; i++) {
+            hll.add(SlidingWindowSketch.hash(i));
+        }
+        return hll;
+    }
+
+    @Test
+    void emptyEstimateIsZero() {
+        assertThat(new HyperLogLog(10).estimate()).isZero();
+    }
+
+    @Test
+    void estimatesWithinTheStandardError() {
+        // precision 14: 标准误差约0.8%，取4倍
+        for (int n : new int[]{10, 100, 1_000, 10_000, 100_000, 1_000_000}) {
+            long estimate = of(14, 0, n).estimate();
+            assertThat((double) estimate).as("n=%d", n).isCloseTo(n, within(Math.max(1, n * 0.033)));
+        }
+    }
+
+    @Test
+    void defaultPrecisionStaysWithinItsStandardError() {
+        // CardinalityStore默认precision 10: 标准误差约3.3%，取4倍
+        for (int n : new int[]{20, 200, 2_000, 20_000}) {
+            long estimate = of(10, 0, n).estimate();
+            assertThat((double) estimate).as("n=%d", n).isCloseTo(n, within(Math.max(1, n * 0.13)));
+        }
+    }
+
+    @Test
+    void duplicatesDoNotChangeTheEstimate() {
+        HyperLogLog hll = of(12, 0, 5_000);
+        long estimate = hll.estimate();
+        for (long i = 0; i < 5_000; i++) {
+            hll.add(SlidingWindowSketch.hash(i));
+        }
+
+        assertThat(hll.estimate()).isEqualTo(estimate);
+    }
+
+    @Test
+    void unionCountsOverlapOnce() {
+        HyperLogLog first = of(14, 0, 60_000);
+        HyperLogLog second = of(14, 40_000, 100_000);
+        long firstEstimate = first.estimate();
+
+        long union = HyperLogLog.estimateUnion(first, second);
+
+        assertThat((double) union).isCloseTo(100_000, within(3_300.0));
+        // 不修改参数
+        assertThat(first.estimate()).isEqualTo(firstEstimate);
+        first.merge(second);
+        assertThat(first.estimate()).isEqualTo(union);
+        // 重复合并不改变结果
+        first.merge(second);
+        assertThat(first.estimate()).isEqualTo(union);
+    }
+
+    @Test
+    void snapshotMergesIntoAnEqualCounter() {
+        HyperLogLog original = of(10, 0, 3_000);
+        HyperLogLog restored = new HyperLogLog(10);
+        restored.merge(original.snapshot());
+
+        assertThat(restored.estimate()).isEqualTo(original.estimate());
+        assertThat(restored.sizeInBytes()).isEqualTo(1 << 10);
+    }
+
+    @Test
+    void rejectsInvalidPrecisionAndMismatchedMerges() {
+        assertThatThrownBy(() -> new HyperLogLog(3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HyperLogLog(17)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HyperLogLog(10).merge(new HyperLogLog(11)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
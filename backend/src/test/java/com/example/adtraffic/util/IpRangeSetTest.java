@@ -0,0 +1,190 @@
+package com.example.adtraffic.util;
+
+import org.junit.jupiter.api.Test;
+import java.net.InetAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpRangeSetTest {
+
+    private static IpRangeSet of(String... entries) {
+        IpRangeSet.Builder builder = IpRangeSet.builder();
+        for (String entry : entries) {
+            assertThat(builder.add(entry)).as(entry).isTrue();
+        }
+        return builder.build();
+    }
+
+    @Test
+    void ipv4SlashZeroCoversEverything() {
+        IpRangeSet set = of("0.0.0.0/0");
+
+        assertThat(set.contains("0.0.0.0")).isTrue();
+        assertThat(set.contains("128.0.0.0")).isTrue();
+        assertThat(set.contains("255.255.255.255")).isTrue();
+        assertThat(set.contains("::1")).isFalse();
+        assertThat(set.ipv4RangeCount()).isEqualTo(1);
+    }
+
+    @Test
+    void ipv4Slash32IsASingleAddress() {
+        IpRangeSet set = of("10.1.2.3/32");
+
+        assertThat(set.contains("10.1.2.3")).isTrue();
+        assertThat(set.contains("10.1.2.2")).isFalse();
+        assertThat(set.contains("10.1.2.4")).isFalse();
+    }
+
+    @Test
+    void cidrMasksHostBits() {
+        IpRangeSet set = of("192.168.1.77/24", "172.16.5.5/12");
+
+        assertThat(set.contains("192.168.1.0")).isTrue();
+        assertThat(set.contains("192.168.1.255")).isTrue();
+        assertThat(set.contains("192.168.2.0")).isFalse();
+        assertThat(set.contains("172.16.0.0")).isTrue();
+        assertThat(set.contains("172.31.255.255")).isTrue();
+        assertThat(set.contains("172.32.0.0")).isFalse();
+    }
+
+    @Test
+    void handlesAddressesAboveTheSignedIntRange() {
+        IpRangeSet set = of("200.0.0.0/8", "10.0.0.0/8");
+
+        assertThat(set.contains("200.255.255.255")).isTrue();
+        assertThat(set.contains("201.0.0.0")).isFalse();
+        assertThat(set.contains("10.0.0.1")).isTrue();
+        assertThat(set.contains("127.0.0.1")).isFalse();
+    }
+
+    @Test
+    void includesTheLastIpv4Address() {
+        IpRangeSet set = of("255.255.255.255", "255.255.255.0-255.255.255.254");
+
+        assertThat(set.contains("255.255.255.255")).isTrue();
+        assertThat(set.contains("255.255.255.0")).isTrue();
+        assertThat(set.contains("255.255.254.255")).isFalse();
+        assertThat(set.ipv4RangeCount()).isEqualTo(1);
+    }
+
+    @Test
+    void mergesOverlappingAndAdjacentIpv4Ranges() {
+        IpRangeSet set = of("10.0.0.0-10.0.0.10", "10.0.0.5-10.0.0.20", "10.0.0.21/32",
+                "10.0.1.0/24", "10.0.0.23");
+
+        // 10.0.0.0-10.0.0.21 合并为一个区间；10.0.0.22 不在集合中
+        assertThat(set.ipv4RangeCount()).isEqualTo(3);
+        assertThat(set.contains("10.0.0.21")).isTrue();
+        assertThat(set.contains("10.0.0.22")).isFalse();
+        assertThat(set.contains("10.0.0.23")).isTrue();
+        assertThat(set.contains("10.0.0.24")).isFalse();
+        assertThat(set.contains("10.0.1.128")).isTrue();
+    }
+
+    @Test
+    void containedRangeDoesNotShrinkTheOuterOne() {
+        IpRangeSet set = of("10.0.0.0/16", "10.0.3.0/24");
+
+        assertThat(set.ipv4RangeCount()).isEqualTo(1);
+        assertThat(set.contains("10.0.255.255")).isTrue();
+    }
+
+    @Test
+    void ipv6SlashZeroAndSlash128() {
+        IpRangeSet all = of("::/0");
+        assertThat(all.contains("::")).isTrue();
+        assertThat(all.contains("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff")).isTrue();
+        assertThat(all.contains("1.2.3.4")).isFalse();
+
+        IpRangeSet single = of("2001:db8::1/128");
+        assertThat(single.contains("2001:db8::1")).isTrue();
+        assertThat(single.contains("2001:db8::2")).isFalse();
+        assertThat(single.contains("2001:db8::")).isFalse();
+    }
+
+    @Test
+    void ipv6CidrAcrossTheSixtyFourBitBoundary() {
+        IpRangeSet set = of("2001:db8:0:0:8000::/65", "2001:db8:1::/48");
+
+        assertThat(set.contains("2001:db8::8000:0:0:0")).isTrue();
+        assertThat(set.contains("2001:db8::ffff:ffff:ffff:ffff")).isTrue();
+        assertThat(set.contains("2001:db8::7fff:ffff:ffff:ffff")).isFalse();
+        assertThat(set.contains("2001:db8:1:ffff:ffff:ffff:ffff:ffff")).isTrue();
+        assertThat(set.contains("2001:db8:2::")).isFalse();
+    }
+
+    @Test
+    void includesTheLastIpv6Address() {
+        IpRangeSet set = of("ffff:ffff:ffff:ffff:ffff:ffff:ffff:fff0/124",
+                "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff");
+
+        assertThat(set.contains("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff")).isTrue();
+        assertThat(set.contains("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffef")).isFalse();
+        assertThat(set.ipv6RangeCount()).isEqualTo(1);
+    }
+
+    @Test
+    void mergesAdjacentIpv6RangesAcrossTheLowWordCarry() {
+        // 第一个区间结束于低64位全1，下一个区间从高64位+1开始
+        IpRangeSet set = of("2001:db8::/64", "2001:db8:0:1::/64", "2001:db8:0:3::/64");
+
+        assertThat(set.ipv6RangeCount()).isEqualTo(2);
+        assertThat(set.contains("2001:db8::ffff:ffff:ffff:ffff")).isTrue();
+        assertThat(set.contains("2001:db8:0:1::")).isTrue();
+        assertThat(set.contains("2001:db8:0:2::")).isFalse();
+    }
+
+    @Test
+    void mergesOverlappingIpv6Ranges() {
+        IpRangeSet set = of("2001:db8::1-2001:db8::100", "2001:db8::80-2001:db8::200", "2001:db8::/120");
+
+        assertThat(set.ipv6RangeCount()).isEqualTo(1);
+        assertThat(set.contains("2001:db8::")).isTrue();
+        assertThat(set.contains("2001:db8::200")).isTrue();
+        assertThat(set.contains("2001:db8::201")).isFalse();
+    }
+
+    @Test
+    void ipv4MappedAddressesMatchIpv4Ranges() throws Exception {
+        IpRangeSet set = of("203.0.113.0/24", "::ffff:198.51.100.0/120");
+
+        assertThat(set.contains("::ffff:203.0.113.9")).isTrue();
+        assertThat(set.contains("::ffff:203.0.114.9")).isFalse();
+        assertThat(set.contains("198.51.100.200")).isTrue();
+        assertThat(set.contains("::ffff:198.51.100.200")).isTrue();
+        assertThat(set.contains(InetAddress.getByName("::ffff:203.0.113.1"))).isTrue();
+        assertThat(set.ipv6RangeCount()).isZero();
+    }
+
+    @Test
+    void rejectsMalformedEntries() {
+        IpRangeSet.Builder builder = IpRangeSet.builder();
+        String[] malformed = {null, "", "   ", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "1.2.3.4/33",
+                "1.2.3.4/-1", "1.2.3.4/", "1.2.3.4/x", "10.0.0.5-10.0.0.1", "10.0.0.1-", "2001:db8::/129",
+                "2001:db8::2-2001:db8::1", "2001:db8:::1", "gggg::1", "example.com"};
+        for (String entry : malformed) {
+            assertThat(builder.add(entry)).as(String.valueOf(entry)).isFalse();
+        }
+        IpRangeSet set = builder.build();
+        assertThat(set.ipv4RangeCount()).isZero();
+        assertThat(set.ipv6RangeCount()).isZero();
+    }
+
+    @Test
+    void malformedLookupsAreNotContained() {
+        IpRangeSet set = of("0.0.0.0/0", "::/0");
+
+        assertThat(set.contains((String) null)).isFalse();
+        assertThat(set.contains("")).isFalse();
+        assertThat(set.contains("1.2.3")).isFalse();
+        assertThat(set.contains("1.2.3.256")).isFalse();
+        assertThat(set.contains("not-an-ip")).isFalse();
+        assertThat(set.contains("2001:db8:::1")).isFalse();
+    }
+
+    @Test
+    void emptySetContainsNothing() {
+        assertThat(IpRangeSet.empty().contains("1.2.3.4")).isFalse();
+        assertThat(IpRangeSet.builder().build().contains("::1")).isFalse();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.adtraffic.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlidingCountMinSketchTest {
+
+    // 60秒窗口分6个桶，每桶10秒；起点对齐到桶边界
+    private static final long WINDOW = 60_000;
+    private static final long BUCKET = 10_000;
+    private static final long START = 1_700_000_000_000L;
+
+    private static long key(String text) {
+        return SlidingWindowSketch.hash(text);
+    }
+
+    private static void add(SlidingCountMinSketch sketch, String key, int times, long now) {
+        for (int i = 0; i < times; i++) {
+            sketch.add(key(key), now);
+        }
+    }
+
+    @Test
+    void countsDistinctKeysSeparately() {
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(WINDOW, 6, 4, 1024);
+        add(sketch, "1.1.1.1", 37, START);
+        add(sketch, "2.2.2.2", 5, START + 1);
+
+        assertThat(sketch.estimate(key("1.1.1.1"), START + 2)).isEqualTo(37);
+        assertThat(sketch.estimate(key("2.2.2.2"), START + 2)).isEqualTo(5);
+        assertThat(sketch.estimate(key("3.3.3.3"), START + 2)).isZero();
+    }
+
+    @Test
+    void neverUnderestimatesAndStaysCloseUnderCollisions() {
+        // 500个key挤在256列中，必然有冲突
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(WINDOW, 6, 4, 256);
+        for (int k = 0; k < 500; k++) {
+            add(sketch, "ip" + k, k % 5 + 1, START);
+        }
+        add(sketch, "heavy", 1000, START);
+
+        for (int k = 0; k < 500; k++) {
+            long estimate = sketch.estimate(key("ip" + k), START);
+            assertThat(estimate).as("ip%d", k).isBetween((long) k % 5 + 1, (long) k % 5 + 1 + 10);
+        }
+        assertThat(sketch.estimate(key("heavy"), START)).isBetween(1000L, 1010L);
+    }
+
+    @Test
+    void countsAcrossBucketsUntilTheyLeaveTheWindow() {
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(WINDOW, 6, 4, 1024);
+        add(sketch, "1.1.1.1", 10, START);
+        add(sketch, "1.1.1.1", 5, START + 3 * BUCKET);
+
+        assertThat(sketch.estimate(key("1.1.1.1"), START + WINDOW - 1)).isEqualTo(15);
+        // 第一个桶滑出窗口
+        assertThat(sketch.estimate(key("1.1.1.1"), START + WINDOW)).isEqualTo(5);
+        assertThat(sketch.estimate(key("1.1.1.1"), START + 3 * BUCKET + WINDOW - 1)).isEqualTo(5);
+        assertThat(sketch.estimate(key("1.1.1.1"), START + 3 * BUCKET + WINDOW)).isZero();
+    }
+
+    @Test
+    void reusedBucketStartsFromZero() {
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(WINDOW, 6, 4, 1024);
+        add(sketch, "1.1.1.1", 10, START);
+        // 一个窗口之后落在同一个桶上，旧计数不能带入
+        add(sketch, "1.1.1.1", 2, START + WINDOW);
+
+        assertThat(sketch.estimate(key("1.1.1.1"), START + WINDOW)).isEqualTo(2);
+    }
+
+    @Test
+    void ignoresWritesForBucketsAlreadyReused() {
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(WINDOW, 6, 4, 1024);
+        add(sketch, "1.1.1.1", 3, START + WINDOW);
+        // 时钟回退到已被覆盖的桶
+        add(sketch, "1.1.1.1", 7, START);
+
+        assertThat(sketch.estimate(key("1.1.1.1"), START + WINDOW)).isEqualTo(3);
+    }
+
+    @Test
+    void rejectsNonPositiveDimensions() {
+        assertThatThrownBy(() -> new SlidingCountMinSketch(0, 6, 4, 1024)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SlidingCountMinSketch(WINDOW, 0, 4, 1024)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SlidingCountMinSketch(WINDOW, 6, 0, 1024)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SlidingCountMinSketch(WINDOW, 6, 4, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void footprintDependsOnlyOnDimensions() {
+        // 列数向上取2的幂：1000 -> 1024
+        SlidingCountMinSketch sketch = new SlidingCountMinSketch(WINDOW, 6, 4, 1000);
+        long before = sketch.footprintBytes();
+        add(sketch, "1.1.1.1", 100, START);
+
+        assertThat(before).isEqualTo(6L * 4 * 1024 * Integer.BYTES);
+        assertThat(sketch.footprintBytes()).isEqualTo(before);
+    }
+}
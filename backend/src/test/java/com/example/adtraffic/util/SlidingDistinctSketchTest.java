@@ -0,0 +1,84 @@
+package com.example.adtraffic.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingDistinctSketchTest {
+
+    // 60秒窗口分6个桶，每桶10秒；起点对齐到桶边界
+    private static final long WINDOW = 60_000;
+    private static final long BUCKET = 10_000;
+    private static final long START = 1_700_000_000_000L;
+
+    private static long hash(String text) {
+        return SlidingWindowSketch.hash(text);
+    }
+
+    private static void addElements(SlidingDistinctSketch sketch, String key, String prefix, int count, long now) {
+        for (int i = 0; i < count; i++) {
+            sketch.add(hash(key), hash(prefix + i), now);
+        }
+    }
+
+    @Test
+    void ignoresDuplicateElements() {
+        SlidingDistinctSketch sketch = new SlidingDistinctSketch(WINDOW, 6, 4, 1024);
+        for (int round = 0; round < 20; round++) {
+            addElements(sketch, "1.1.1.1", "ua", 1, START + round);
+        }
+
+        assertThat(sketch.estimate(hash("1.1.1.1"), START + 20)).isEqualTo(1);
+        assertThat(sketch.estimate(hash("2.2.2.2"), START + 20)).isZero();
+    }
+
+    @Test
+    void estimatesSmallCardinalities() {
+        SlidingDistinctSketch sketch = new SlidingDistinctSketch(WINDOW, 6, 4, 8192);
+        int keys = 200;
+        for (int n : new int[]{3, 10, 30, 50}) {
+            long sum = 0;
+            for (int k = 0; k < keys; k++) {
+                String key = n + "-" + k;
+                addElements(sketch, key, key + "-ua", n, START);
+                int estimate = sketch.estimate(hash(key), START);
+                // 单个key只有64位位图，误差较大；多个key的平均值应接近真实值
+                assertThat(estimate).as("n=%d key=%d", n, k).isBetween(n / 2, n * 3 / 2);
+                sum += estimate;
+            }
+            assertThat((double) sum / keys).as("n=%d", n).isBetween(n * 0.95, n * 1.05);
+        }
+    }
+
+    @Test
+    void saturatesAtTheBitmapLimit() {
+        SlidingDistinctSketch sketch = new SlidingDistinctSketch(WINDOW, 6, 4, 1024);
+        addElements(sketch, "1.1.1.1", "ua", 2000, START);
+
+        assertThat(sketch.estimate(hash("1.1.1.1"), START)).isEqualTo(Math.round(64 * Math.log(64)));
+    }
+
+    @Test
+    void deduplicatesAcrossBucketsAndExpiresOldOnes() {
+        SlidingDistinctSketch sketch = new SlidingDistinctSketch(WINDOW, 6, 4, 1024);
+        sketch.add(hash("1.1.1.1"), hash("chrome"), START);
+        sketch.add(hash("1.1.1.1"), hash("firefox"), START);
+        // 同一元素出现在另一个桶中，只计一次
+        sketch.add(hash("1.1.1.1"), hash("chrome"), START + 3 * BUCKET);
+        sketch.add(hash("1.1.1.1"), hash("safari"), START + 3 * BUCKET);
+
+        assertThat(sketch.estimate(hash("1.1.1.1"), START + WINDOW - 1)).isEqualTo(3);
+        // 第一个桶滑出窗口，只剩第二个桶的两个元素
+        assertThat(sketch.estimate(hash("1.1.1.1"), START + WINDOW)).isEqualTo(2);
+        assertThat(sketch.estimate(hash("1.1.1.1"), START + 3 * BUCKET + WINDOW)).isZero();
+    }
+
+    @Test
+    void reusedBucketStartsEmpty() {
+        SlidingDistinctSketch sketch = new SlidingDistinctSketch(WINDOW, 6, 4, 1024);
+        addElements(sketch, "1.1.1.1", "old", 10, START);
+        addElements(sketch, "1.1.1.1", "new", 1, START + WINDOW);
+
+        assertThat(sketch.estimate(hash("1.1.1.1"), START + WINDOW)).isEqualTo(1);
+    }
+}
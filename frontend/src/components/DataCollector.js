@@ -5,6 +5,7 @@ class DataCollector {
         this.data = {
             ip: '',
             userAgent: navigator.userAgent,
+            acceptLanguage: (navigator.languages || [navigator.language]).join(','),
             startTime: new Date().getTime(),
             clicks: [],
             mouseMovements: [],
@@ -279,6 +280,7 @@ class DataCollector {
             essential: {
                 ip: this.data.ip,
                 userAgent: this.data.userAgent,
+                acceptLanguage: this.data.acceptLanguage,
                 deviceFingerprint: this.data.deviceFingerprint,
                 startTime: this.data.startTime,
                 sessionData: {